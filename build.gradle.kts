@@ -45,6 +45,20 @@ application {
     mainClass.set("com.evopromptopt.app.EvoPromptRunner")
 }
 
+tasks.register<JavaExec>("runMultiTask") {
+    group = "application"
+    description = "Optimizes prompts for several tasks concurrently against one backend"
+    mainClass.set("com.evopromptopt.app.MultiTaskRunner")
+    classpath = sourceSets["main"].runtimeClasspath
+}
+
+tasks.register<JavaExec>("compileTask") {
+    group = "application"
+    description = "Compiles a JSON task file into the memory-mapped binary task format"
+    mainClass.set("com.evopromptopt.app.TaskCompiler")
+    classpath = sourceSets["main"].runtimeClasspath
+}
+
 tasks.withType<JavaCompile> {
     options.encoding = "UTF-8"
 }
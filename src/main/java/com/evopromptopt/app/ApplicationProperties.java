@@ -0,0 +1,63 @@
+package com.evopromptopt.app;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * Typed access to the settings in application.properties
+ */
+public class ApplicationProperties {
+    private static final Logger logger = LoggerFactory.getLogger(ApplicationProperties.class);
+
+    private final Properties properties;
+
+    public ApplicationProperties(Properties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Loads application.properties from the classpath, falling back to defaults if it is missing
+     */
+    public static ApplicationProperties load() {
+        Properties properties = new Properties();
+        try (InputStream inputStream = ApplicationProperties.class.getResourceAsStream("/application.properties")) {
+            if (inputStream != null) {
+                properties.load(inputStream);
+            } else {
+                logger.warn("application.properties not found on classpath, using defaults");
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to read application.properties, using defaults", e);
+        }
+        return new ApplicationProperties(properties);
+    }
+
+    public String getString(String key, String defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null || value.isBlank() ? defaultValue : value.trim();
+    }
+
+    public int getInt(String key, int defaultValue) {
+        String value = getString(key, null);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    public long getLong(String key, long defaultValue) {
+        String value = getString(key, null);
+        return value == null ? defaultValue : Long.parseLong(value);
+    }
+
+    public double getDouble(String key, double defaultValue) {
+        String value = getString(key, null);
+        return value == null ? defaultValue : Double.parseDouble(value);
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        String value = getString(key, null);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+}
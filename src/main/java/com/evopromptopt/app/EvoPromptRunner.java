@@ -1,13 +1,26 @@
 package com.evopromptopt.app;
 
+import com.evopromptopt.core.evaluation.EmbeddingCache;
+import com.evopromptopt.core.evaluation.LlmJudgeEvaluator;
+import com.evopromptopt.core.evolution.BudgetLimit;
 import com.evopromptopt.core.evolution.EvolutionEngineFactory;
+import com.evopromptopt.core.evolution.GenomeArchive;
+import com.evopromptopt.core.execution.EvaluationScheduler;
+import com.evopromptopt.core.execution.MeteredPromptExecutor;
 import com.evopromptopt.core.execution.MockPromptExecutor;
+import com.evopromptopt.core.execution.ResponseCache;
+import com.evopromptopt.core.execution.SpeculativeExecution;
+import com.evopromptopt.core.execution.ollama.OllamaClient;
 import com.evopromptopt.core.execution.ollama.OllamaPromptExecutor;
 import com.evopromptopt.core.genome.PromptGenome;
 import com.evopromptopt.core.genome.PromptGenotypeFactory;
+import com.evopromptopt.core.tasks.EvaluationResultSink;
+import com.evopromptopt.core.tasks.JsonlResultSink;
 import com.evopromptopt.core.tasks.TaskDefinition;
 import com.evopromptopt.core.tasks.TaskLoader;
 import com.evopromptopt.core.tasks.TaskRunner;
+import com.evopromptopt.core.tasks.TestCaseResultStore;
+import com.evopromptopt.core.tasks.TestCaseSampler;
 import io.jenetics.IntegerGene;
 import io.jenetics.engine.EvolutionResult;
 import io.jenetics.util.ISeq;
@@ -15,11 +28,17 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class EvoPromptRunner {
     private static final Logger logger = LoggerFactory.getLogger(EvoPromptRunner.class);
+    private static final long SHUTDOWN_GRACE_SECONDS = 30;
 
     public static void main(String[] args) {
         // Configuration
@@ -32,9 +51,14 @@ public class EvoPromptRunner {
         logger.info("Model: {}, Task file: {}, Generations: {}, Population: {}",
                    modelName, taskFile, generations, populationSize);
 
+        var finished = new CountDownLatch(1);
         try {
+            var properties = ApplicationProperties.load();
+
             // Initialize components
-            var ollamaExecutor = new OllamaPromptExecutor(modelName);
+            var ollamaClient = new OllamaClient(properties.getString("ollama.base_url", "http://localhost:11434"));
+            var ollamaExecutor = new OllamaPromptExecutor(ollamaClient, modelName,
+                                                          properties.getBoolean("ollama.format_guard", false));
 
             // Check if Ollama is available, fall back to mock if not
             boolean usingMock = false;
@@ -44,13 +68,24 @@ public class EvoPromptRunner {
                 usingMock = true;
             }
 
-            // Load task definition
-            var taskLoader = new TaskLoader();
+            // All calls to the backend go through its bulkhead in the shared scheduler, the metered executor
+            // counts calls and tokens for budget enforcement
+            String backendName = usingMock ? "mock" : modelName;
+            int backendSlots = properties.getInt("evaluation.backend_slots", Runtime.getRuntime().availableProcessors());
+            var scheduler = EvaluationScheduler.shared();
+            var meteredExecutor = new MeteredPromptExecutor(scheduler.bulkhead(backendName,
+                    usingMock ? new MockPromptExecutor() : ollamaExecutor, backendSlots));
+            logger.info("Backend {}: at most {} concurrent calls", backendName, backendSlots);
+
+            // Load task definition; semantic similarity metrics embed through a persistent cache if one is configured
+            EmbeddingCache embeddingCache = openEmbeddingCache(properties);
+            // Embedding and judge metrics use the same server and its bulkhead, and no server at all with the
+            // mock; judge calls count against the budget like candidate calls
+            var taskLoader = new TaskLoader(usingMock ? null : ollamaClient, embeddingCache, backendName, meteredExecutor);
             TaskDefinition task;
 
             try {
-                String taskJson = Files.readString(Paths.get(taskFile));
-                task = taskLoader.loadFromJson(taskJson);
+                task = taskLoader.loadFromFile(Paths.get(taskFile));
                 logger.info("Loaded task: {} with {} test cases", task.getName(), task.getTestCases().size());
             } catch (IOException e) {
                 logger.error("Failed to load task file: {}", taskFile, e);
@@ -58,18 +93,61 @@ public class EvoPromptRunner {
                 return;
             }
 
+            var evolutionConfig = buildEvolutionConfig(properties, populationSize);
+
             // Create task runner
-            var taskRunner = usingMock ?
-                new TaskRunner(new MockPromptExecutor(), false) :
-                new TaskRunner(ollamaExecutor, false); // Sequential execution for stability
+            TestCaseResultStore resultStore = openResultStore(properties, backendName);
+            // Genomes that cannot reach this share of the best score so far skip their expensive metrics
+            double metricCutoff = properties.getDouble("evaluation.metric_cutoff", 0.0);
+            JsonlResultSink resultSink = openResultSink(properties);
+            EvaluationResultSink taskResults = resultSink != null ? resultSink : EvaluationResultSink.DISCARD;
+            SpeculativeExecution speculation = null;
+            TaskRunner taskRunner;
+            if (evolutionConfig.speculation().enabled()) {
+                // Speculative calls share the cache and the meter, but only use free backend slots
+                speculation = new SpeculativeExecution(meteredExecutor,
+                        new ResponseCache(evolutionConfig.speculation().cacheSize()),
+                        evolutionConfig.speculation().backendSlots(),
+                        evolutionConfig.speculation().idleGraceMs());
+                taskRunner = new TaskRunner(speculation.foreground(), false, resultStore, metricCutoff, taskResults);
+            } else {
+                taskRunner = new TaskRunner(meteredExecutor, false, resultStore, metricCutoff, taskResults); // Sequential execution for stability
+            }
 
             // Create evolution engine
-            var engine = EvolutionEngineFactory.create(taskRunner, task, populationSize, generations);
+            if (evolutionConfig.miniBatch().enabled()) {
+                logger.info("Mini-batch evaluation: {} of {} test cases per generation ({})",
+                           evolutionConfig.miniBatch().batchSize(), task.getTestCases().size(),
+                           evolutionConfig.miniBatch().strategy());
+            }
+            // Like the result store, mock fitness is archived apart from the model it stands in for
+            GenomeArchive archive = openArchive(properties, task, backendName, evolutionConfig);
+            var engine = EvolutionEngineFactory.createAdvanced(taskRunner, task, evolutionConfig,
+                                                               ForkJoinPool.commonPool(), speculation, archive);
+
+            // Stop on budget exhaustion, or gracefully after the current generation on SIGINT
+            var budgetLimit = new BudgetLimit(buildBudget(properties), meteredExecutor);
+            var shutdownHook = new Thread(() -> {
+                budgetLimit.requestStop("interrupted");
+                try {
+                    if (!finished.await(SHUTDOWN_GRACE_SECONDS, TimeUnit.SECONDS)) {
+                        // The current generation did not finish in time, report what we have
+                        budgetLimit.bestResult().ifPresent(best -> displayResults(best, task, meteredExecutor, budgetLimit));
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            Runtime.getRuntime().addShutdownHook(shutdownHook);
 
             logger.info("Starting evolution with {} generations...", generations);
 
             // Run evolution
-            var evolutionStream = engine.stream()
+            var evolutionStream = (archive != null ?
+                    engine.stream(archive.seedPopulation(populationSize,
+                                                         properties.getDouble("archive.seed_share", 0.5))) :
+                    engine.stream())
+                .limit(budgetLimit)
                 .limit(generations)
                 .peek(result -> {
                     if (result.generation() % 5 == 0 || result.generation() == 1) {
@@ -83,25 +161,230 @@ public class EvoPromptRunner {
             EvolutionResult<IntegerGene, Double> result = evolutionStream
                 .collect(EvolutionResult.toBestEvolutionResult());
 
+            if (speculation != null) {
+                speculation.shutdown();
+                logger.info("Speculative evaluation: {} backend calls, {} cancelled, cache hits: {}",
+                           speculation.getSpeculativeCalls(), speculation.getCancelledCalls(),
+                           speculation.getCache().getHits());
+            }
+
+            logger.info("Backend calls per priority: {}, at most {} in flight",
+                       scheduler.servedPerPriority(backendName), scheduler.peakInFlight(backendName));
+
+            if (archive != null) {
+                try {
+                    archive.save();
+                    logger.info("Genome archive written to {} ({} evaluations reused)",
+                               archive.getFile(), archive.getReusedEvaluations());
+                } catch (IOException e) {
+                    logger.warn("Failed to write genome archive {}", archive.getFile(), e);
+                }
+            }
+
+            embeddingCache.flush();
+            if (resultStore != null) {
+                resultStore.flush();
+            }
+
+            if (result == null) {
+                logger.warn("Evolution stopped before the first generation completed");
+                return;
+            }
+
             // Display results
-            displayResults(result, task);
+            displayResults(result, task, meteredExecutor, budgetLimit);
 
-            // Test the best genome
-            testBestGenome(result, task, taskRunner);
+            // Test the best genome, unless the run was interrupted
+            if (!"interrupted".equals(budgetLimit.stopReason().orElse(null))) {
+                testBestGenome(result, task, taskRunner);
+            }
+
+            // Export per-test-case difficulty statistics
+            String statsFile = properties.getString("evaluation.testcase_stats_file", null);
+            if (statsFile != null) {
+                taskRunner.getTestCaseStatistics().exportJson(task, Paths.get(statsFile));
+                logger.info("Test case statistics written to {}", statsFile);
+            }
+
+            embeddingCache.close();
+            for (var metric : task.getEvaluationMetrics()) {
+                if (metric instanceof LlmJudgeEvaluator judge) {
+                    logger.info("LLM judge: {} judging prompts for {} responses, {} cached verdicts",
+                               judge.getJudgeCalls(), judge.getJudgedResponses(), judge.getCachedVerdicts());
+                }
+            }
+            if (metricCutoff > 0) {
+                var skipStatistics = taskRunner.getMetricSkipStatistics();
+                logger.info("Metric cutoff: {} genome evaluations pruned, {} metric evaluations skipped {}",
+                           skipStatistics.prunedGenomes(), skipStatistics.totalSkipped(),
+                           skipStatistics.skippedByMetric());
+            }
+            if (resultSink != null) {
+                resultSink.close();
+                logger.info("Test case results: {} written to {}", resultSink.getWritten(), resultSink.getFile());
+            }
+            if (resultStore != null) {
+                resultStore.close();
+                logger.info("Result store: {} results reused, {} test cases executed, {} results stored",
+                           resultStore.getHits(), resultStore.getMisses(), resultStore.size());
+            }
 
             // Cleanup
             taskRunner.shutdown();
             if (!usingMock) {
                 ollamaExecutor.close();
             }
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // The JVM is already shutting down after an interrupt
+            }
 
         } catch (Exception e) {
             logger.error("Evolution failed", e);
+            finished.countDown();
             System.exit(1);
+        } finally {
+            finished.countDown();
+        }
+    }
+
+    static EvolutionEngineFactory.EvolutionConfig buildEvolutionConfig(ApplicationProperties properties,
+                                                                       int populationSize) {
+        var defaults = EvolutionEngineFactory.EvolutionConfig.defaultConfig();
+        var miniBatch = new EvolutionEngineFactory.MiniBatchConfig(
+                properties.getInt("evaluation.minibatch_size", 0),
+                TestCaseSampler.Strategy.valueOf(
+                        properties.getString("evaluation.minibatch_strategy", "random").toUpperCase()),
+                properties.getString("evaluation.minibatch_stratify_key", null),
+                properties.getInt("evaluation.full_rescore_interval", 5),
+                properties.getInt("evaluation.full_rescore_elites", 3)
+        );
+        var geneFreezingDefaults = EvolutionEngineFactory.GeneFreezingConfig.disabled();
+        var geneFreezing = new EvolutionEngineFactory.GeneFreezingConfig(
+                properties.getBoolean("evolution.gene_freezing", false),
+                properties.getInt("evolution.gene_analysis_interval", geneFreezingDefaults.analysisInterval()),
+                properties.getInt("evolution.gene_min_samples", geneFreezingDefaults.minSamples()),
+                properties.getDouble("evolution.gene_inert_threshold", geneFreezingDefaults.inertThreshold()),
+                properties.getDouble("evolution.gene_convergence_share", geneFreezingDefaults.convergenceShare())
+        );
+        var hybridDefaults = EvolutionEngineFactory.HybridTuningConfig.disabled();
+        var hybridTuning = new EvolutionEngineFactory.HybridTuningConfig(
+                properties.getBoolean("evolution.hybrid_tuning", false),
+                properties.getInt("evolution.hybrid_configs_per_generation", hybridDefaults.configsPerGeneration()),
+                properties.getInt("evolution.hybrid_trials_per_config", hybridDefaults.trialsPerConfig()),
+                properties.getInt("evolution.hybrid_startup_trials", hybridDefaults.startupTrials())
+        );
+        var narrowingDefaults = EvolutionEngineFactory.RangeNarrowingConfig.disabled();
+        var rangeNarrowing = new EvolutionEngineFactory.RangeNarrowingConfig(
+                properties.getBoolean("evolution.range_narrowing", false),
+                properties.getInt("evolution.range_narrowing_interval", narrowingDefaults.interval()),
+                properties.getInt("evolution.range_narrowing_min_samples", narrowingDefaults.minSamples()),
+                properties.getDouble("evolution.range_narrowing_good_share", narrowingDefaults.goodShare()),
+                properties.getDouble("evolution.range_narrowing_margin", narrowingDefaults.safetyMargin()),
+                properties.getDouble("evolution.range_narrowing_exploration", narrowingDefaults.explorationRate())
+        );
+        var noiseDefaults = EvolutionEngineFactory.NoiseConfig.disabled();
+        var noise = new EvolutionEngineFactory.NoiseConfig(
+                properties.getBoolean("evaluation.noise_aware", false),
+                properties.getInt("evaluation.noise_samples_per_generation", noiseDefaults.samplesPerGeneration()),
+                properties.getInt("evaluation.noise_contenders", noiseDefaults.contenders()),
+                properties.getInt("evaluation.noise_max_samples", noiseDefaults.maxSamplesPerGenome())
+        );
+        var batchEvaluation = new EvolutionEngineFactory.BatchEvaluationConfig(
+                properties.getBoolean("evaluation.batch", false),
+                properties.getInt("evaluation.batch_parallelism",
+                                  EvolutionEngineFactory.BatchEvaluationConfig.disabled().parallelism())
+        );
+        var speculationDefaults = EvolutionEngineFactory.SpeculationConfig.disabled();
+        var speculation = new EvolutionEngineFactory.SpeculationConfig(
+                properties.getBoolean("evaluation.speculative", false),
+                properties.getInt("evaluation.speculative_candidates", speculationDefaults.candidatesPerGeneration()),
+                properties.getInt("evaluation.speculative_backend_slots", speculationDefaults.backendSlots()),
+                properties.getLong("evaluation.speculative_idle_ms", speculationDefaults.idleGraceMs()),
+                properties.getInt("evaluation.speculative_cache_size", speculationDefaults.cacheSize())
+        );
+
+        return new EvolutionEngineFactory.EvolutionConfig(
+                populationSize,
+                properties.getDouble("evolution.mutation_rate", defaults.mutationRate()),
+                properties.getDouble("evolution.crossover_rate", defaults.crossoverRate()),
+                properties.getInt("evolution.tournament_size", defaults.tournamentSize()),
+                properties.getDouble("evolution.elite_ratio", defaults.eliteRatio()),
+                properties.getDouble("fitness.execution_time_weight", defaults.executionTimeWeight()),
+                properties.getDouble("fitness.success_rate_weight", defaults.successRateWeight()),
+                properties.getDouble("fitness.score_weight", defaults.scoreWeight()),
+                miniBatch,
+                properties.getBoolean("evolution.deduplicate", defaults.deduplicate()),
+                geneFreezing,
+                hybridTuning,
+                rangeNarrowing,
+                noise,
+                batchEvaluation,
+                speculation
+        );
+    }
+
+    /**
+     * @return The configured persistent embedding cache, or an in-memory one
+     */
+    static EmbeddingCache openEmbeddingCache(ApplicationProperties properties) throws IOException {
+        String embeddingCacheFile = properties.getString("evaluation.embedding_cache", null);
+        return embeddingCacheFile != null ?
+                EmbeddingCache.open(Paths.get(embeddingCacheFile)) : EmbeddingCache.inMemory();
+    }
+
+    /**
+     * @return The store of results on the backend, null when no store is configured
+     */
+    static TestCaseResultStore openResultStore(ApplicationProperties properties, String backendName)
+            throws IOException {
+        String resultStoreFile = properties.getString("evaluation.result_store", null);
+        // Results of the mock executor must not mix with those of the model it stands in for
+        return resultStoreFile != null ? TestCaseResultStore.open(Paths.get(resultStoreFile), backendName) : null;
+    }
+
+    /**
+     * @return The file per test case results are streamed to instead of being kept with each evaluation,
+     *         null when none is configured
+     */
+    static JsonlResultSink openResultSink(ApplicationProperties properties) throws IOException {
+        String resultsFile = properties.getString("evaluation.results_file", null);
+        return resultsFile != null ? JsonlResultSink.open(Paths.get(resultsFile)) : null;
+    }
+
+    /**
+     * @return The archive of previous runs of the task on the backend, null when archiving is off
+     */
+    static GenomeArchive openArchive(ApplicationProperties properties, TaskDefinition task, String backendName,
+                                     EvolutionEngineFactory.EvolutionConfig config) {
+        String directory = properties.getString("archive.directory", null);
+        if (directory == null) {
+            return null;
         }
+        // Mini-batch fitness depends on the sampled test cases, it is only good for seeding
+        String fitnessSettings = String.format(Locale.ROOT, "weights=%s/%s/%s minibatch=%d",
+                config.executionTimeWeight(), config.successRateWeight(), config.scoreWeight(),
+                config.miniBatch().batchSize());
+        return GenomeArchive.open(Paths.get(directory), task, backendName, fitnessSettings,
+                properties.getDouble("archive.similarity_threshold", 0.3),
+                properties.getBoolean("archive.reuse_fitness", true) && !config.miniBatch().enabled(),
+                properties.getInt("archive.max_entries", 500));
     }
 
-    private static void displayResults(EvolutionResult<IntegerGene, Double> result, TaskDefinition task) {
+    static BudgetLimit.EvolutionBudget buildBudget(ApplicationProperties properties) {
+        long timeBudgetMinutes = properties.getLong("budget.time_minutes", 0);
+        return new BudgetLimit.EvolutionBudget(
+                timeBudgetMinutes > 0 ? Duration.ofMinutes(timeBudgetMinutes) : null,
+                properties.getLong("budget.max_llm_calls", 0),
+                properties.getLong("budget.max_tokens", 0),
+                properties.getInt("budget.plateau_generations", 0),
+                properties.getDouble("budget.plateau_epsilon", 0.001)
+        );
+    }
+
+    private static void displayResults(EvolutionResult<IntegerGene, Double> result, TaskDefinition task,
+                                       MeteredPromptExecutor meter, BudgetLimit budgetLimit) {
         System.out.println("\n" + "=".repeat(60));
         System.out.println("EVOLUTIONARY PROMPT OPTIMIZATION RESULTS");
         System.out.println("=".repeat(60));
@@ -110,6 +393,9 @@ public class EvoPromptRunner {
         System.out.printf("Best fitness achieved: %.4f%n", result.bestFitness());
         System.out.printf("Generation: %d%n", result.generation());
         System.out.printf("Total evaluations: %d%n", result.totalGenerations() * result.population().size());
+        System.out.printf("LLM calls: %d, Total tokens: %d, Elapsed: %ds%n",
+                         meter.getCallCount(), meter.getTotalTokens(), budgetLimit.elapsed().toSeconds());
+        budgetLimit.stopReason().ifPresent(reason -> System.out.printf("Stopped early: %s%n", reason));
 
         // Decode and display the best genome
         PromptGenome bestGenome = PromptGenotypeFactory.decode(result.bestPhenotype().genotype());
@@ -135,29 +421,29 @@ public class EvoPromptRunner {
         System.out.println("=".repeat(60));
 
         PromptGenome bestGenome = PromptGenotypeFactory.decode(result.bestPhenotype().genotype());
-        var testResult = taskRunner.evaluateGenome(bestGenome, task);
-
-        System.out.printf("Overall Score: %.4f%n", testResult.overallScore());
-        System.out.printf("Success Rate: %.2f%% (%d/%d)%n",
-                         testResult.successRate() * 100,
-                         (int)(testResult.successRate() * testResult.testCaseResults().size()),
-                         testResult.testCaseResults().size());
-        System.out.printf("Total Execution Time: %d ms%n", testResult.totalExecutionTimeMs());
 
         System.out.println("\nDetailed Test Case Results:");
         System.out.println("-".repeat(40));
 
-        for (int i = 0; i < testResult.testCaseResults().size(); i++) {
-            var testCase = testResult.testCaseResults().get(i);
-            System.out.printf("Test Case %d:%n", i + 1);
-            System.out.printf("  Input: %s%n", testCase.input());
-            System.out.printf("  Output: %s%n", testCase.actualOutput());
-            System.out.printf("  Score: %.4f%n", testCase.score());
-            System.out.printf("  Success: %s%n", testCase.success() ? "✓" : "✗");
-            if (!testCase.success() && testCase.errorMessage() != null) {
-                System.out.printf("  Error: %s%n", testCase.errorMessage());
+        // Results are printed as they are scored rather than kept until the evaluation ends
+        var printed = new AtomicInteger();
+        var testResult = taskRunner.evaluateGenome(bestGenome, task, (taskName, genome, testCase, caseResult) -> {
+            System.out.printf("Test Case %d:%n", printed.incrementAndGet());
+            System.out.printf("  Input: %s%n", caseResult.input());
+            System.out.printf("  Output: %s%n", caseResult.actualOutput());
+            System.out.printf("  Score: %.4f%n", caseResult.score());
+            System.out.printf("  Success: %s%n", caseResult.success() ? "✓" : "✗");
+            if (!caseResult.success() && caseResult.errorMessage() != null) {
+                System.out.printf("  Error: %s%n", caseResult.errorMessage());
             }
             System.out.println();
-        }
+        });
+
+        System.out.printf("Overall Score: %.4f%n", testResult.overallScore());
+        System.out.printf("Success Rate: %.2f%% (%d/%d)%n",
+                         testResult.successRate() * 100,
+                         testResult.successCount(),
+                         testResult.testCaseCount());
+        System.out.printf("Total Execution Time: %d ms%n", testResult.totalExecutionTimeMs());
     }
 }
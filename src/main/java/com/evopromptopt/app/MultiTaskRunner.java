@@ -0,0 +1,169 @@
+package com.evopromptopt.app;
+
+import com.evopromptopt.core.evaluation.EmbeddingCache;
+import com.evopromptopt.core.evaluation.LlmJudgeEvaluator;
+import com.evopromptopt.core.evolution.MultiTaskOrchestrator;
+import com.evopromptopt.core.execution.MockPromptExecutor;
+import com.evopromptopt.core.execution.PromptExecutor;
+import com.evopromptopt.core.execution.ollama.OllamaClient;
+import com.evopromptopt.core.execution.ollama.OllamaPromptExecutor;
+import com.evopromptopt.core.genome.PromptGenome;
+import com.evopromptopt.core.genome.PromptGenotypeFactory;
+import com.evopromptopt.core.tasks.EvaluationResultSink;
+import com.evopromptopt.core.tasks.JsonlResultSink;
+import com.evopromptopt.core.tasks.TaskDefinition;
+import com.evopromptopt.core.tasks.TaskLoader;
+import com.evopromptopt.core.tasks.TestCaseResultStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Optimizes prompts for several tasks concurrently against one shared Ollama backend. Backend, cache,
+ * result and budget settings are read like {@link EvoPromptRunner} reads them; settings of features
+ * that only exist for a single task are rejected.
+ */
+public class MultiTaskRunner {
+    private static final Logger logger = LoggerFactory.getLogger(MultiTaskRunner.class);
+    private static final List<String> SINGLE_TASK_PROPERTIES =
+            List.of("archive.directory", "evaluation.testcase_stats_file");
+
+    public static void main(String[] args) {
+        if (args.length < 4) {
+            System.err.println("Usage: MultiTaskRunner <model_name> <generations> <population_size> <task_file>...");
+            System.exit(1);
+            return;
+        }
+
+        String modelName = args[0];
+        int generations = Integer.parseInt(args[1]);
+        int populationSize = Integer.parseInt(args[2]);
+        List<String> taskFiles = List.of(args).subList(3, args.length);
+
+        logger.info("Starting multi-task prompt optimization...");
+        logger.info("Model: {}, Tasks: {}, Generations: {}, Population: {}",
+                   modelName, taskFiles, generations, populationSize);
+
+        try {
+            var properties = ApplicationProperties.load();
+            rejectSingleTaskSettings(properties);
+            var ollamaClient = new OllamaClient(properties.getString("ollama.base_url", "http://localhost:11434"));
+            var ollamaExecutor = new OllamaPromptExecutor(ollamaClient, modelName,
+                                                          properties.getBoolean("ollama.format_guard", false));
+            PromptExecutor backend = ollamaExecutor;
+            boolean usingMock = false;
+            if (!ollamaExecutor.isAvailable()) {
+                logger.warn("Ollama is not available. Using mock executor for demonstration purposes.");
+                backend = new MockPromptExecutor();
+                usingMock = true;
+            }
+
+            String backendName = usingMock ? "mock" : modelName;
+            TestCaseResultStore resultStore = EvoPromptRunner.openResultStore(properties, backendName);
+            double metricCutoff = properties.getDouble("evaluation.metric_cutoff", 0.0);
+            JsonlResultSink resultSink = EvoPromptRunner.openResultSink(properties);
+            var orchestrator = new MultiTaskOrchestrator(
+                    backendName,
+                    backend,
+                    properties.getInt("orchestrator.max_concurrent_calls", 4),
+                    properties.getInt("orchestrator.cache_size", 10_000),
+                    resultStore,
+                    metricCutoff,
+                    resultSink != null ? resultSink : EvaluationResultSink.DISCARD
+            );
+
+            // Embedding and judge requests take slots of the orchestrator's bulkhead on the same server, and
+            // judge calls count against the budget of their task
+            EmbeddingCache embeddingCache = EvoPromptRunner.openEmbeddingCache(properties);
+            List<MultiTaskOrchestrator.TaskJob> jobs = new ArrayList<>();
+            for (String taskFile : taskFiles) {
+                var meter = orchestrator.newMeter();
+                var taskLoader = new TaskLoader(usingMock ? null : ollamaClient, embeddingCache, backendName, meter);
+                try {
+                    TaskDefinition task = taskLoader.loadFromFile(Paths.get(taskFile));
+                    logger.info("Loaded task: {} with {} test cases", task.getName(), task.getTestCases().size());
+                    jobs.add(new MultiTaskOrchestrator.TaskJob(task, meter));
+                } catch (IOException e) {
+                    logger.error("Failed to load task file: {}", taskFile, e);
+                    System.exit(1);
+                    return;
+                }
+            }
+
+            var outcomes = orchestrator.runJobs(
+                    jobs,
+                    EvoPromptRunner.buildEvolutionConfig(properties, populationSize),
+                    generations,
+                    EvoPromptRunner.buildBudget(properties)
+            );
+
+            embeddingCache.close();
+            if (resultSink != null) {
+                resultSink.close();
+                logger.info("Test case results: {} written to {}", resultSink.getWritten(), resultSink.getFile());
+            }
+            if (resultStore != null) {
+                resultStore.close();
+                logger.info("Result store: {} results reused, {} test cases executed, {} results stored",
+                           resultStore.getHits(), resultStore.getMisses(), resultStore.size());
+            }
+            for (var job : jobs) {
+                for (var metric : job.task().getEvaluationMetrics()) {
+                    if (metric instanceof LlmJudgeEvaluator judge) {
+                        logger.info("Task '{}' LLM judge: {} judging prompts for {} responses, {} cached verdicts",
+                                   job.task().getName(), judge.getJudgeCalls(), judge.getJudgedResponses(),
+                                   judge.getCachedVerdicts());
+                    }
+                }
+            }
+
+            System.out.println("\n" + "=".repeat(60));
+            System.out.println("MULTI-TASK OPTIMIZATION RESULTS");
+            System.out.println("=".repeat(60));
+
+            for (var outcome : outcomes.values()) {
+                if (outcome.result() == null) {
+                    System.out.printf("%nTask: %s - no generation completed%n", outcome.task().getName());
+                    continue;
+                }
+                PromptGenome best = PromptGenotypeFactory.decode(outcome.result().bestPhenotype().genotype());
+                System.out.printf("%nTask: %s%n", outcome.task().getName());
+                System.out.println("-".repeat(40));
+                System.out.printf("Best fitness: %.4f (generation %d)%n",
+                                 outcome.result().bestFitness(), outcome.result().generation());
+                System.out.printf("LLM calls: %d, Total tokens: %d, Elapsed: %ds%n",
+                                 outcome.llmCalls(), outcome.totalTokens(), outcome.elapsed().toSeconds());
+                System.out.printf("System Prompt: %s%n", best.systemPrompt());
+                System.out.printf("Instruction Style: %s%n", best.instructionStyle());
+                System.out.printf("Temperature: %.3f, Top P: %.3f, Top K: %d%n",
+                                 best.temperature(), best.topP(), best.topK());
+            }
+
+            if (!usingMock) {
+                ollamaExecutor.close();
+            }
+
+        } catch (Exception e) {
+            logger.error("Multi-task optimization failed", e);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Fails on settings of features that are not available when several tasks run at once
+     */
+    private static void rejectSingleTaskSettings(ApplicationProperties properties) {
+        for (String key : SINGLE_TASK_PROPERTIES) {
+            if (properties.getString(key, null) != null) {
+                throw new IllegalArgumentException(key + " is not supported for multi-task runs");
+            }
+        }
+        if (properties.getBoolean("evaluation.speculative", false)) {
+            throw new IllegalArgumentException("evaluation.speculative is not supported for multi-task runs");
+        }
+    }
+}
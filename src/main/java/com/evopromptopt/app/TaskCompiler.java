@@ -0,0 +1,40 @@
+package com.evopromptopt.app;
+
+import com.evopromptopt.core.tasks.CompiledTask;
+import com.evopromptopt.core.tasks.TaskLoader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Compiles a JSON task file into the binary form that loads by memory-mapping. The compiled file is
+ * written next to the task file by default, where the runners pick it up instead of the JSON.
+ */
+public class TaskCompiler {
+    private static final Logger logger = LoggerFactory.getLogger(TaskCompiler.class);
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Usage: TaskCompiler <task_file> [output_file]");
+            System.exit(1);
+            return;
+        }
+
+        Path taskFile = Paths.get(args[0]);
+        Path target = args.length > 1 ? Paths.get(args[1]) : CompiledTask.compiledPathFor(taskFile);
+
+        try {
+            long start = System.nanoTime();
+            new TaskLoader().compile(taskFile, target);
+            logger.info("Compiled {} to {} ({} bytes) in {} ms", taskFile, target, Files.size(target),
+                       (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException e) {
+            logger.error("Failed to compile task file: {}", taskFile, e);
+            System.exit(1);
+        }
+    }
+}
@@ -12,8 +12,8 @@ import io.jenetics.engine.EvolutionResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Test runner that demonstrates the evolutionary prompt optimization system
@@ -39,8 +39,7 @@ public class TestRunner {
             TaskDefinition task;
 
             try {
-                String taskJson = Files.readString(Paths.get(taskFile));
-                task = taskLoader.loadFromJson(taskJson);
+                task = taskLoader.loadFromFile(Paths.get(taskFile));
                 logger.info("Loaded task: {} with {} test cases", task.getName(), task.getTestCases().size());
             } catch (Exception e) {
                 logger.error("Failed to load task file: {}", taskFile, e);
@@ -127,30 +126,30 @@ public class TestRunner {
         System.out.println("=".repeat(60));
 
         PromptGenome bestGenome = PromptGenotypeFactory.decode(result.bestPhenotype().genotype());
-        var testResult = taskRunner.evaluateGenome(bestGenome, task);
-
-        System.out.printf("Overall Score: %.4f%n", testResult.overallScore());
-        System.out.printf("Success Rate: %.2f%% (%d/%d)%n",
-                         testResult.successRate() * 100,
-                         (int)(testResult.successRate() * testResult.testCaseResults().size()),
-                         testResult.testCaseResults().size());
-        System.out.printf("Total Execution Time: %d ms%n", testResult.totalExecutionTimeMs());
 
         System.out.println("\nDetailed Test Case Results:");
         System.out.println("-".repeat(40));
 
-        for (int i = 0; i < testResult.testCaseResults().size(); i++) {
-            var testCase = testResult.testCaseResults().get(i);
-            System.out.printf("Test Case %d:%n", i + 1);
-            System.out.printf("  Input: %s%n", testCase.input().length() > 50 ?
-                             testCase.input().substring(0, 50) + "..." : testCase.input());
-            System.out.printf("  Output: %s%n", testCase.actualOutput());
-            System.out.printf("  Score: %.4f%n", testCase.score());
-            System.out.printf("  Success: %s%n", testCase.success() ? "✓" : "✗");
-            if (!testCase.success() && testCase.errorMessage() != null) {
-                System.out.printf("  Error: %s%n", testCase.errorMessage());
+        // Results are printed as they are scored rather than kept until the evaluation ends
+        var printed = new AtomicInteger();
+        var testResult = taskRunner.evaluateGenome(bestGenome, task, (taskName, genome, testCase, caseResult) -> {
+            System.out.printf("Test Case %d:%n", printed.incrementAndGet());
+            System.out.printf("  Input: %s%n", caseResult.input().length() > 50 ?
+                             caseResult.input().substring(0, 50) + "..." : caseResult.input());
+            System.out.printf("  Output: %s%n", caseResult.actualOutput());
+            System.out.printf("  Score: %.4f%n", caseResult.score());
+            System.out.printf("  Success: %s%n", caseResult.success() ? "✓" : "✗");
+            if (!caseResult.success() && caseResult.errorMessage() != null) {
+                System.out.printf("  Error: %s%n", caseResult.errorMessage());
             }
             System.out.println();
-        }
+        });
+
+        System.out.printf("Overall Score: %.4f%n", testResult.overallScore());
+        System.out.printf("Success Rate: %.2f%% (%d/%d)%n",
+                         testResult.successRate() * 100,
+                         testResult.successCount(),
+                         testResult.testCaseCount());
+        System.out.printf("Total Execution Time: %d ms%n", testResult.totalExecutionTimeMs());
     }
 }
@@ -21,24 +21,28 @@ public class AccuracyEvaluator implements EvaluationMetric {
 
     @Override
     public double evaluate(String task, String expectedOutput, String actualOutput, ExecutionResult executionResult) {
-        if (!executionResult.success() || actualOutput == null || expectedOutput == null) {
+        return evaluate(task, expectedOutput, ResponseAnalysis.of(actualOutput), executionResult);
+    }
+
+    @Override
+    public double evaluate(String task, String expectedOutput, ResponseAnalysis response,
+                           ExecutionResult executionResult) {
+        if (!executionResult.success() || response.text() == null || expectedOutput == null) {
             return 0.0;
         }
 
         String expected = expectedOutput;
-        String actual = actualOutput;
+        ResponseAnalysis actual = response;
 
         if (trimWhitespace) {
             expected = expected.trim();
-            actual = actual.trim();
+            actual = actual.trimmed();
         }
 
         if (!caseSensitive) {
-            expected = expected.toLowerCase();
-            actual = actual.toLowerCase();
+            return expected.toLowerCase().equals(actual.lowerCase()) ? 1.0 : 0.0;
         }
-
-        return expected.equals(actual) ? 1.0 : 0.0;
+        return expected.equals(actual.text()) ? 1.0 : 0.0;
     }
 
     @Override
@@ -50,4 +54,9 @@ public class AccuracyEvaluator implements EvaluationMetric {
     public String getDescription() {
         return "Measures exact match between expected and actual output";
     }
+
+    @Override
+    public String getSignature() {
+        return EvaluationMetric.super.getSignature() + ":caseSensitive=" + caseSensitive + ",trim=" + trimWhitespace;
+    }
 }
@@ -0,0 +1,38 @@
+package com.evopromptopt.core.evaluation;
+
+import com.evopromptopt.core.execution.ExecutionResult;
+
+import java.util.List;
+
+/**
+ * Metric that scores many responses at once more cheaply than one by one, e.g. because every
+ * scoring round trip is a model call. The task runner hands it all responses of a genome or of a
+ * population batch together instead of calling it per response.
+ */
+public interface BatchEvaluationMetric extends EvaluationMetric {
+    /**
+     * @return One score between 0.0 (worst) and 1.0 (best) per item, in order, or NaN for an item that
+     *         could not be scored, so a failure only affects the items it concerns
+     */
+    double[] evaluateBatch(List<Item> items);
+
+    @Override
+    default double evaluate(String task, String expectedOutput, String actualOutput, ExecutionResult executionResult) {
+        return evaluate(task, expectedOutput, ResponseAnalysis.of(actualOutput), executionResult);
+    }
+
+    @Override
+    default double evaluate(String task, String expectedOutput, ResponseAnalysis response,
+                            ExecutionResult executionResult) {
+        double score = evaluateBatch(List.of(new Item(task, expectedOutput, response, executionResult)))[0];
+        if (Double.isNaN(score)) {
+            throw new IllegalStateException(getName() + " could not score the response");
+        }
+        return score;
+    }
+
+    /**
+     * One response to score, with the arguments of {@link EvaluationMetric#evaluate}
+     */
+    record Item(String task, String expectedOutput, ResponseAnalysis response, ExecutionResult executionResult) {}
+}
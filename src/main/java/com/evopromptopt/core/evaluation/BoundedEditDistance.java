@@ -0,0 +1,68 @@
+package com.evopromptopt.core.evaluation;
+
+/**
+ * Damerau-Levenshtein distance (optimal string alignment: insertions, deletions, substitutions and
+ * adjacent transpositions) that only fills the diagonal band a bounded distance can reach and gives
+ * up as soon as a whole row exceeds the bound. Works on char ranges with caller-owned rows, so a
+ * comparison allocates nothing.
+ */
+final class BoundedEditDistance {
+
+    private BoundedEditDistance() {
+    }
+
+    /**
+     * @param rows Scratch space of at least {@code 3 * (bLength + 1)} ints
+     * @return The distance if it is at most bound, otherwise bound + 1
+     */
+    static int distance(char[] a, int aFrom, int aLength, char[] b, int bFrom, int bLength, int bound, int[] rows) {
+        int over = bound + 1;
+        if (Math.abs(aLength - bLength) > bound) {
+            return over;
+        }
+
+        int width = bLength + 1;
+        // Three rows in one array: two rows back, previous and current, rotated by offset
+        int beforePrevious = 0;
+        int previous = width;
+        int current = 2 * width;
+        for (int j = 0; j <= bLength; j++) {
+            rows[previous + j] = Math.min(j, over);
+        }
+
+        for (int i = 1; i <= aLength; i++) {
+            char ca = a[aFrom + i - 1];
+            int jFrom = Math.max(1, i - bound);
+            int jTo = Math.min(bLength, i + bound);
+            rows[current] = Math.min(i, over);
+            if (jFrom > 1) {
+                rows[current + jFrom - 1] = over;
+            }
+            int rowMin = rows[current];
+            for (int j = jFrom; j <= jTo; j++) {
+                char cb = b[bFrom + j - 1];
+                int value = rows[previous + j - 1] + (ca == cb ? 0 : 1);
+                value = Math.min(value, rows[previous + j] + 1);
+                value = Math.min(value, rows[current + j - 1] + 1);
+                if (i > 1 && j > 1 && ca == b[bFrom + j - 2] && a[aFrom + i - 2] == cb) {
+                    value = Math.min(value, rows[beforePrevious + j - 2] + 1);
+                }
+                value = Math.min(value, over);
+                rows[current + j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (jTo < bLength) {
+                rows[current + jTo + 1] = over;
+            }
+            if (rowMin > bound) {
+                return over;
+            }
+
+            int recycled = beforePrevious;
+            beforePrevious = previous;
+            previous = current;
+            current = recycled;
+        }
+        return rows[previous + bLength];
+    }
+}
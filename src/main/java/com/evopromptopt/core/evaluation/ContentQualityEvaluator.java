@@ -1,21 +1,40 @@
 package com.evopromptopt.core.evaluation;
 
 import com.evopromptopt.core.execution.ExecutionResult;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * Evaluates content quality using keyword matching and response structure.
  * Useful when you have key concepts or keywords that should appear in good responses.
+ * The keywords are compiled into an Aho-Corasick automaton once and found in a single pass over
+ * the response; structure and coherence come from the shared {@link ResponseAnalysis}.
  */
 public class ContentQualityEvaluator implements EvaluationMetric {
+    private static final String[] CONNECTORS = {
+        "and", "but", "however", "therefore", "because",
+        "since", "although", "while", "whereas", "moreover"
+    };
+    // Keyword marks of the current scan per thread, reset by bumping a stamp instead of clearing
+    private static final ThreadLocal<int[]> KEYWORD_STAMPS = ThreadLocal.withInitial(() -> new int[1]);
+
     private final Set<String> requiredKeywords;
     private final Set<String> bonusKeywords;
     private final double keywordWeight;
     private final double structureWeight;
     private final double coherenceWeight;
 
+    private final KeywordAutomaton automaton;
+    private final boolean[] isRequired;
+    private final boolean[] isBonus;
+    // The empty keyword is contained in every response
+    private final int emptyRequired;
+    private final int emptyBonus;
+
     public ContentQualityEvaluator(Set<String> requiredKeywords, Set<String> bonusKeywords,
                                    double keywordWeight, double structureWeight, double coherenceWeight) {
         this.requiredKeywords = new HashSet<>();
@@ -28,6 +47,20 @@ public class ContentQualityEvaluator implements EvaluationMetric {
         this.keywordWeight = keywordWeight;
         this.structureWeight = structureWeight;
         this.coherenceWeight = coherenceWeight;
+
+        Set<String> keywords = new LinkedHashSet<>(this.requiredKeywords);
+        keywords.addAll(this.bonusKeywords);
+        keywords.remove("");
+        List<String> ids = new ArrayList<>(keywords);
+        this.automaton = new KeywordAutomaton(ids);
+        this.isRequired = new boolean[ids.size()];
+        this.isBonus = new boolean[ids.size()];
+        for (int id = 0; id < ids.size(); id++) {
+            isRequired[id] = this.requiredKeywords.contains(ids.get(id));
+            isBonus[id] = this.bonusKeywords.contains(ids.get(id));
+        }
+        this.emptyRequired = this.requiredKeywords.contains("") ? 1 : 0;
+        this.emptyBonus = this.bonusKeywords.contains("") ? 1 : 0;
     }
 
     public ContentQualityEvaluator(Set<String> requiredKeywords) {
@@ -36,20 +69,24 @@ public class ContentQualityEvaluator implements EvaluationMetric {
 
     @Override
     public double evaluate(String task, String expectedOutput, String actualOutput, ExecutionResult executionResult) {
-        if (!executionResult.success() || actualOutput == null || actualOutput.trim().isEmpty()) {
+        return evaluate(task, expectedOutput, ResponseAnalysis.of(actualOutput), executionResult);
+    }
+
+    @Override
+    public double evaluate(String task, String expectedOutput, ResponseAnalysis response,
+                           ExecutionResult executionResult) {
+        if (!executionResult.success() || response.isBlank()) {
             return 0.0;
         }
 
-        String output = actualOutput.toLowerCase();
-
         // Calculate keyword score
-        double keywordScore = calculateKeywordScore(output);
+        double keywordScore = calculateKeywordScore(response.lowerCase());
 
         // Calculate structure score
-        double structureScore = calculateStructureScore(actualOutput);
+        double structureScore = calculateStructureScore(response);
 
         // Calculate coherence score
-        double coherenceScore = calculateCoherenceScore(actualOutput);
+        double coherenceScore = calculateCoherenceScore(response);
 
         return keywordWeight * keywordScore +
                structureWeight * structureScore +
@@ -61,13 +98,38 @@ public class ContentQualityEvaluator implements EvaluationMetric {
             return 1.0; // No keywords to check
         }
 
+        // One pass of the automaton finds every keyword
+        int[] stamps = KEYWORD_STAMPS.get();
+        if (stamps.length < isRequired.length + 1) {
+            stamps = new int[isRequired.length + 1];
+            KEYWORD_STAMPS.set(stamps);
+        }
+        // The last slot holds the stamp of the current scan
+        int stamp = ++stamps[stamps.length - 1];
+        int foundRequired = emptyRequired;
+        int foundBonus = emptyBonus;
+        int state = KeywordAutomaton.ROOT;
+        for (int i = 0; i < output.length(); i++) {
+            state = automaton.next(state, output.charAt(i));
+            for (int match = automaton.firstMatch(state); match >= 0; match = automaton.nextMatch(match)) {
+                int id = automaton.keyword(match);
+                if (stamps[id] == stamp) {
+                    break; // Everything further down the chain was counted with it
+                }
+                stamps[id] = stamp;
+                if (isRequired[id]) {
+                    foundRequired++;
+                }
+                if (isBonus[id]) {
+                    foundBonus++;
+                }
+            }
+        }
+
         double score = 0.0;
 
         // Check required keywords
         if (!requiredKeywords.isEmpty()) {
-            long foundRequired = requiredKeywords.stream()
-                    .mapToLong(keyword -> output.contains(keyword) ? 1 : 0)
-                    .sum();
             score += 0.7 * (foundRequired / (double) requiredKeywords.size());
         } else {
             score += 0.7; // No required keywords, give full credit
@@ -75,9 +137,6 @@ public class ContentQualityEvaluator implements EvaluationMetric {
 
         // Check bonus keywords
         if (!bonusKeywords.isEmpty()) {
-            long foundBonus = bonusKeywords.stream()
-                    .mapToLong(keyword -> output.contains(keyword) ? 1 : 0)
-                    .sum();
             score += 0.3 * Math.min(1.0, foundBonus / (double) bonusKeywords.size());
         } else {
             score += 0.3; // No bonus keywords, give full credit
@@ -86,50 +145,45 @@ public class ContentQualityEvaluator implements EvaluationMetric {
         return Math.min(1.0, score);
     }
 
-    private double calculateStructureScore(String output) {
+    private double calculateStructureScore(ResponseAnalysis output) {
         double score = 0.0;
 
         // Check for proper sentence structure
-        String[] sentences = output.split("[.!?]+");
-        if (sentences.length > 0) {
+        int sentences = output.sentenceCount();
+        if (sentences > 0) {
             score += 0.3;
 
             // Reward multiple sentences (better structure)
-            if (sentences.length > 1) {
+            if (sentences > 1) {
                 score += 0.2;
             }
 
             // Check average sentence length
-            double avgLength = Arrays.stream(sentences)
-                    .mapToInt(s -> s.trim().length())
-                    .average()
-                    .orElse(0.0);
-
+            double avgLength = output.averageSentenceLength();
             if (avgLength > 10 && avgLength < 150) {
                 score += 0.3;
             }
         }
 
         // Check for proper capitalization
-        if (!output.trim().isEmpty() && Character.isUpperCase(output.trim().charAt(0))) {
+        if (output.startsWithUpperCase()) {
             score += 0.2;
         }
 
         return Math.min(1.0, score);
     }
 
-    private double calculateCoherenceScore(String output) {
+    private double calculateCoherenceScore(ResponseAnalysis output) {
         // Basic coherence metrics
         double score = 0.5; // Base score
 
-        String[] words = output.toLowerCase().split("\\s+");
-        if (words.length == 0) {
+        int words = output.wordCount();
+        if (words == 0) {
             return 0.0;
         }
 
         // Measure word diversity (avoid repetition)
-        Set<String> uniqueWords = new HashSet<>(Arrays.asList(words));
-        double diversity = (double) uniqueWords.size() / words.length;
+        double diversity = (double) output.distinctWordCount() / words;
 
         if (diversity > 0.6) {
             score += 0.3;
@@ -138,11 +192,10 @@ public class ContentQualityEvaluator implements EvaluationMetric {
         }
 
         // Check for connecting words (indicates better flow)
-        Set<String> connectors = Set.of("and", "but", "however", "therefore", "because",
-                                       "since", "although", "while", "whereas", "moreover");
-        long connectorCount = Arrays.stream(words)
-                .mapToLong(word -> connectors.contains(word) ? 1 : 0)
-                .sum();
+        long connectorCount = 0;
+        for (String connector : CONNECTORS) {
+            connectorCount += output.occurrences(connector);
+        }
 
         if (connectorCount > 0) {
             score += Math.min(0.2, connectorCount * 0.05);
@@ -160,4 +213,16 @@ public class ContentQualityEvaluator implements EvaluationMetric {
     public String getDescription() {
         return "Evaluates content based on keyword matching, structure, and coherence";
     }
+
+    @Override
+    public double getEstimatedCost() {
+        return 4.0;
+    }
+
+    @Override
+    public String getSignature() {
+        return EvaluationMetric.super.getSignature() + ":required=" + new TreeSet<>(requiredKeywords)
+               + ",bonus=" + new TreeSet<>(bonusKeywords)
+               + ",weights=" + keywordWeight + "/" + structureWeight + "/" + coherenceWeight;
+    }
 }
@@ -0,0 +1,199 @@
+package com.evopromptopt.core.evaluation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Unit-length embedding vectors keyed by a content hash of the embedding model and the text. Vectors
+ * are kept as primitive float arrays; a persistent cache also appends every new vector to a binary
+ * file (key, dimension, floats) that is read back when the cache is opened again.
+ */
+public class EmbeddingCache implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddingCache.class);
+    private static final int MAGIC = 0x454D4231; // "EMB1"
+
+    private final Map<Key, float[]> vectors = new ConcurrentHashMap<>();
+    private final Path file;
+    private DataOutputStream output;
+
+    private EmbeddingCache(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * @return A cache that lives as long as the process
+     */
+    public static EmbeddingCache inMemory() {
+        return new EmbeddingCache(null);
+    }
+
+    /**
+     * Opens a persistent cache, loading the vectors already in the file
+     */
+    public static EmbeddingCache open(Path file) throws IOException {
+        EmbeddingCache cache = new EmbeddingCache(file);
+        // Length of the file up to the end of the last complete record; anything after it is cut off
+        long validLength = 0;
+        if (Files.isRegularFile(file) && Files.size(file) > 0) {
+            long fileLength = Files.size(file);
+            try (var input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                if (input.readInt() != MAGIC) {
+                    throw new IOException("Not an embedding cache file: " + file);
+                }
+                validLength = Integer.BYTES;
+                while (validLength < fileLength) {
+                    long high = input.readLong();
+                    long low = input.readLong();
+                    int dimension = input.readInt();
+                    long recordLength = 2L * Long.BYTES + Integer.BYTES + (long) dimension * Float.BYTES;
+                    if (dimension < 0 || validLength + recordLength > fileLength) {
+                        break;
+                    }
+                    float[] vector = new float[dimension];
+                    for (int i = 0; i < vector.length; i++) {
+                        vector[i] = input.readFloat();
+                    }
+                    cache.vectors.put(new Key(high, low), vector);
+                    validLength += recordLength;
+                }
+            } catch (EOFException e) {
+                // Ends inside a record header, handled below
+            }
+            if (validLength < fileLength) {
+                // A run that was killed mid-write leaves a truncated last record; appending after it
+                // would misalign every record written later
+                logger.warn("Embedding cache {} ends with a truncated record, dropping {} bytes",
+                            file, fileLength - validLength);
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    channel.truncate(validLength);
+                }
+            }
+        } else if (file.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+        }
+
+        cache.output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(
+                file, StandardOpenOption.CREATE, StandardOpenOption.APPEND)));
+        if (validLength == 0) {
+            cache.output.writeInt(MAGIC);
+        }
+        logger.info("Embedding cache {}: {} vectors", file, cache.vectors.size());
+        return cache;
+    }
+
+    /**
+     * @return The cached unit vector of the text, null if it has not been embedded with the model yet
+     */
+    public float[] get(String model, String text) {
+        return vectors.get(Key.of(model, text));
+    }
+
+    /**
+     * Normalizes the vector to unit length in place and caches it
+     *
+     * @return The normalized vector
+     */
+    public float[] put(String model, String text, float[] vector) {
+        normalize(vector);
+        Key key = Key.of(model, text);
+        if (vectors.putIfAbsent(key, vector) == null && output != null) {
+            append(key, vector);
+        }
+        return vector;
+    }
+
+    public int size() {
+        return vectors.size();
+    }
+
+    /**
+     * @return Cosine similarity of two unit vectors, 0 if their dimensions differ
+     */
+    public static double cosine(float[] a, float[] b) {
+        if (a.length != b.length) {
+            return 0.0;
+        }
+        double dot = 0.0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+        }
+        return dot;
+    }
+
+    public synchronized void flush() throws IOException {
+        if (output != null) {
+            output.flush();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (output != null) {
+            output.close();
+            output = null;
+        }
+    }
+
+    private synchronized void append(Key key, float[] vector) {
+        if (output == null) {
+            return;
+        }
+        try {
+            output.writeLong(key.high());
+            output.writeLong(key.low());
+            output.writeInt(vector.length);
+            for (float value : vector) {
+                output.writeFloat(value);
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to append to embedding cache {}", file, e);
+        }
+    }
+
+    private static void normalize(float[] vector) {
+        double norm = 0.0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (norm > 0) {
+            float scale = (float) (1.0 / Math.sqrt(norm));
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] *= scale;
+            }
+        }
+    }
+
+    /**
+     * First 128 bits of the SHA-256 of model and text
+     */
+    private record Key(long high, long low) {
+        static Key of(String model, String text) {
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                digest.update(model.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                ByteBuffer hash = ByteBuffer.wrap(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+                return new Key(hash.getLong(), hash.getLong());
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 not available", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.evopromptopt.core.evaluation;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Source of text embeddings, e.g. a local embedding endpoint
+ */
+@FunctionalInterface
+public interface EmbeddingService {
+    /**
+     * @param model Embedding model to use
+     * @param texts Texts to embed in one request
+     * @return One vector per text, in the order of the texts
+     */
+    float[][] embed(String model, List<String> texts) throws IOException;
+}
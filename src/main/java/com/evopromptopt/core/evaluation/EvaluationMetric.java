@@ -18,6 +18,19 @@ public interface EvaluationMetric {
      */
     double evaluate(String task, String expectedOutput, String actualOutput, ExecutionResult executionResult);
 
+    /**
+     * Evaluates a model response through its analysis, which is shared by all metrics scoring the
+     * same response. Metrics that trim, lower-case or split the response should override this and
+     * use the analysis; the default passes the raw text to the method above.
+     *
+     * @param response The shared analysis of the model's actual response
+     * @return A score between 0.0 (worst) and 1.0 (best)
+     */
+    default double evaluate(String task, String expectedOutput, ResponseAnalysis response,
+                            ExecutionResult executionResult) {
+        return evaluate(task, expectedOutput, response.text(), executionResult);
+    }
+
     /**
      * @return A human-readable name for this evaluation metric
      */
@@ -27,4 +40,33 @@ public interface EvaluationMetric {
      * @return A description of what this metric measures
      */
     String getDescription();
+
+    /**
+     * @return Rough cost of scoring one response, relative to an exact string comparison (1). Metrics
+     * that call a model are orders of magnitude more expensive; cheap metrics are scored first.
+     */
+    default double getEstimatedCost() {
+        return 1.0;
+    }
+
+    /**
+     * @return Lowest score this metric gives
+     */
+    default double getMinScore() {
+        return 0.0;
+    }
+
+    /**
+     * @return Highest score this metric gives
+     */
+    default double getMaxScore() {
+        return 1.0;
+    }
+
+    /**
+     * @return Identifies the metric and its settings; scores of metrics with equal signatures are interchangeable
+     */
+    default String getSignature() {
+        return getClass().getName() + ":" + getName();
+    }
 }
@@ -0,0 +1,63 @@
+package com.evopromptopt.core.evaluation;
+
+import com.evopromptopt.core.execution.ExecutionResult;
+
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Evaluates whether the output is well-formed in the format the task asks for: JSON (optionally of
+ * a given shape) or Markdown. Well-formed output scores 1.0, JSON that violates the schema 0.5 and
+ * malformed output 0.0.
+ */
+public class FormatComplianceEvaluator implements EvaluationMetric {
+    private final String format;
+    private final FormatValidator.JsonSchema schema;
+
+    /**
+     * @param format "json" or "markdown"
+     * @param schema Shape the JSON must have, may be null
+     */
+    public FormatComplianceEvaluator(String format, FormatValidator.JsonSchema schema) {
+        this.format = format.toLowerCase();
+        this.schema = schema;
+    }
+
+    @Override
+    public double evaluate(String task, String expectedOutput, String actualOutput, ExecutionResult executionResult) {
+        if (!executionResult.success() || actualOutput == null) {
+            return 0.0;
+        }
+        return switch (FormatValidator.validate(format, schema, actualOutput)) {
+            case VALID -> 1.0;
+            case SCHEMA_VIOLATION -> 0.5;
+            case MALFORMED -> 0.0;
+        };
+    }
+
+    @Override
+    public String getName() {
+        return "Format Compliance";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Measures whether the output is well-formed " + format;
+    }
+
+    @Override
+    public double getEstimatedCost() {
+        return 10.0;
+    }
+
+    @Override
+    public String getSignature() {
+        String signature = EvaluationMetric.super.getSignature() + ":format=" + format;
+        if (schema != null) {
+            // Sorted, so the signature does not depend on set and map iteration order
+            signature += ",type=" + schema.type() + ",required=" + new TreeSet<>(schema.required())
+                         + ",properties=" + new TreeMap<>(schema.propertyTypes());
+        }
+        return signature;
+    }
+}
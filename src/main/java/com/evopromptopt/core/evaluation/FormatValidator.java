@@ -0,0 +1,67 @@
+package com.evopromptopt.core.evaluation;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Incremental check that a response is well-formed in its response format. Chunks are fed as they
+ * are generated, so a streaming caller can stop a generation as soon as the output can no longer
+ * become valid; {@link #finish} gives the verdict on the complete output. Not thread-safe, one
+ * validator checks one response.
+ */
+public interface FormatValidator {
+    /**
+     * @return false once the output is malformed whatever follows
+     */
+    boolean accept(CharSequence chunk);
+
+    /**
+     * Ends the output
+     */
+    Verdict finish();
+
+    /**
+     * @return What is wrong with the output, null while nothing is
+     */
+    String problem();
+
+    /**
+     * @param format The response format: "json", "markdown", or anything else for plain text
+     * @param schema Shape the JSON must have, may be null
+     */
+    static FormatValidator forFormat(String format, JsonSchema schema) {
+        return switch (format != null ? format.toLowerCase() : "text") {
+            case "json" -> new JsonFormatValidator(schema);
+            case "markdown" -> new MarkdownFormatValidator();
+            default -> new PlainTextValidator();
+        };
+    }
+
+    /**
+     * Validates a complete output
+     */
+    static Verdict validate(String format, JsonSchema schema, String output) {
+        FormatValidator validator = forFormat(format, schema);
+        validator.accept(output != null ? output : "");
+        return validator.finish();
+    }
+
+    enum Verdict {
+        VALID,
+        // Well-formed, but not in the shape the schema asks for
+        SCHEMA_VIOLATION,
+        MALFORMED
+    }
+
+    /**
+     * Small subset of JSON Schema: the type of the root value, and for an object root the keys it
+     * requires and the types of its top-level properties. Types are those of JSON Schema: object,
+     * array, string, number, integer, boolean and null.
+     */
+    record JsonSchema(String type, Set<String> required, Map<String, String> propertyTypes) {
+        public JsonSchema {
+            required = required != null ? Set.copyOf(required) : Set.of();
+            propertyTypes = propertyTypes != null ? Map.copyOf(propertyTypes) : Map.of();
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.evopromptopt.core.evaluation;
+
+import com.evopromptopt.core.execution.ExecutionResult;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Evaluates classification answers by the label they contain rather than by exact match, so
+ * "Positive.", "Sentiment: positive" and "positve" all count as the label "positive". Labels and
+ * responses are normalized to lower-case letters and digits separated by single spaces; the label
+ * found earliest in the response, within a small edit distance, is the answer. Labels are compiled
+ * once per task and scoring works on per-thread buffers, so it allocates nothing per response.
+ */
+public class FuzzyLabelEvaluator implements EvaluationMetric {
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private final List<String> labelNames;
+    private final char[][] labels;
+    private final int[] labelWords;
+    private final int[] labelBounds;
+    private final Map<String, Integer> labelByExpected = new HashMap<>();
+    private final int maxEdits;
+    private final double editPenalty;
+
+    /**
+     * @param labels The label set; every expected output of the task should be one of them
+     * @param maxEdits Edits tolerated for long labels; labels of fewer than 4 characters must match exactly
+     * @param editPenalty Score deducted per edit of a fuzzy match
+     */
+    public FuzzyLabelEvaluator(Collection<String> labels, int maxEdits, double editPenalty) {
+        this.maxEdits = maxEdits;
+        this.editPenalty = editPenalty;
+
+        Set<String> distinct = new LinkedHashSet<>();
+        for (String label : labels) {
+            String normalized = normalize(label);
+            if (!normalized.isEmpty()) {
+                distinct.add(normalized);
+            }
+        }
+        this.labelNames = List.copyOf(distinct);
+        this.labels = new char[labelNames.size()][];
+        this.labelWords = new int[labelNames.size()];
+        this.labelBounds = new int[labelNames.size()];
+        for (int i = 0; i < labelNames.size(); i++) {
+            char[] label = labelNames.get(i).toCharArray();
+            this.labels[i] = label;
+            this.labelWords[i] = 1;
+            for (char c : label) {
+                if (c == ' ') {
+                    this.labelWords[i]++;
+                }
+            }
+            this.labelBounds[i] = Math.min(maxEdits, label.length / 4);
+        }
+        for (String label : labels) {
+            labelByExpected.put(label, labelNames.indexOf(normalize(label)));
+        }
+    }
+
+    public FuzzyLabelEvaluator(Collection<String> labels) {
+        this(labels, 2, 0.1);
+    }
+
+    @Override
+    public double evaluate(String task, String expectedOutput, String actualOutput, ExecutionResult executionResult) {
+        return evaluate(task, expectedOutput, ResponseAnalysis.of(actualOutput), executionResult);
+    }
+
+    @Override
+    public double evaluate(String task, String expectedOutput, ResponseAnalysis response,
+                           ExecutionResult executionResult) {
+        if (!executionResult.success() || response.text() == null || expectedOutput == null) {
+            return 0.0;
+        }
+
+        Integer expected = labelByExpected.get(expectedOutput);
+        if (expected == null) {
+            // Not one of the compiled labels, e.g. a test case added after the metric was built
+            expected = labelNames.indexOf(normalize(expectedOutput));
+        }
+        if (expected < 0) {
+            return 0.0;
+        }
+
+        Scratch scratch = SCRATCH.get();
+        scratch.normalize(response.text());
+        long match = findLabel(scratch);
+        if (match < 0 || (int) (match >>> 32) != expected) {
+            return 0.0;
+        }
+        return Math.max(0.0, 1.0 - editPenalty * (int) match);
+    }
+
+    /**
+     * @return Label index in the high and edit distance in the low half of the earliest match, -1 if none
+     */
+    private long findLabel(Scratch scratch) {
+        for (int first = 0; first < scratch.wordCount; first++) {
+            int bestLabel = -1;
+            int bestDistance = Integer.MAX_VALUE;
+            for (int label = 0; label < labels.length; label++) {
+                int last = first + labelWords[label] - 1;
+                if (last >= scratch.wordCount) {
+                    continue;
+                }
+                int start = scratch.wordStarts[first];
+                int length = scratch.wordEnds[last] - start;
+                int bound = labelBounds[label];
+                int distance = BoundedEditDistance.distance(scratch.text, start, length,
+                                                            labels[label], 0, labels[label].length,
+                                                            bound, scratch.rows(labels[label].length));
+                // Closer matches win, then longer labels ("very positive" over "positive")
+                if (distance <= bound && (distance < bestDistance
+                        || distance == bestDistance && labels[label].length > labels[bestLabel].length)) {
+                    bestLabel = label;
+                    bestDistance = distance;
+                }
+            }
+            if (bestLabel >= 0) {
+                return ((long) bestLabel << 32) | bestDistance;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Lower-case letters and digits, every other run of characters as one space
+     */
+    static String normalize(String text) {
+        Scratch scratch = new Scratch();
+        scratch.normalize(text);
+        return new String(scratch.text, 0, scratch.length);
+    }
+
+    @Override
+    public String getName() {
+        return "Fuzzy Label";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Measures whether the output contains the expected label, tolerating formatting and typos";
+    }
+
+    @Override
+    public double getEstimatedCost() {
+        return 5.0;
+    }
+
+    @Override
+    public String getSignature() {
+        return EvaluationMetric.super.getSignature() + ":labels=" + labelNames
+               + ",maxEdits=" + maxEdits + ",editPenalty=" + editPenalty;
+    }
+
+    /**
+     * Per-thread buffers for the normalized response, its word boundaries and the distance rows
+     */
+    private static final class Scratch {
+        char[] text = new char[256];
+        int length;
+        int[] wordStarts = new int[32];
+        int[] wordEnds = new int[32];
+        int wordCount;
+        private int[] rows = new int[96];
+
+        void normalize(String input) {
+            if (text.length < input.length()) {
+                text = new char[input.length()];
+            }
+            length = 0;
+            wordCount = 0;
+            boolean inWord = false;
+            for (int i = 0; i < input.length(); i++) {
+                char c = input.charAt(i);
+                if (Character.isLetterOrDigit(c)) {
+                    if (!inWord) {
+                        if (wordCount > 0) {
+                            text[length++] = ' ';
+                        }
+                        addWord(length);
+                        inWord = true;
+                    }
+                    text[length++] = Character.toLowerCase(c);
+                    wordEnds[wordCount - 1] = length;
+                } else {
+                    inWord = false;
+                }
+            }
+        }
+
+        private void addWord(int start) {
+            if (wordCount == wordStarts.length) {
+                wordStarts = Arrays.copyOf(wordStarts, wordCount * 2);
+                wordEnds = Arrays.copyOf(wordEnds, wordCount * 2);
+            }
+            wordStarts[wordCount++] = start;
+        }
+
+        int[] rows(int labelLength) {
+            if (rows.length < 3 * (labelLength + 1)) {
+                rows = new int[3 * (labelLength + 1)];
+            }
+            return rows;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.evopromptopt.core.evaluation;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Validates a JSON object or array, optionally inside a Markdown code fence, with Jackson's
+ * non-blocking parser: chunks are parsed into tokens as they arrive and no tree is built. The end of
+ * the root value is found by tracking brackets outside strings, so text after it is caught too.
+ */
+final class JsonFormatValidator implements FormatValidator {
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    private enum Stage { LEADING, FENCE_INFO, BODY, TRAILING }
+
+    private final JsonSchema schema;
+    private final JsonParser parser;
+    private final ByteArrayFeeder feeder;
+    private final StringBuilder pending = new StringBuilder();
+    private Stage stage = Stage.LEADING;
+    private boolean fenced;
+    private boolean malformed;
+    private String problem;
+
+    // Root value boundary, tracked on the raw characters
+    private int bracketDepth;
+    private boolean inString;
+    private boolean escaped;
+    private char lastStructural;
+
+    // Schema checks, tracked on the parsed tokens
+    private int tokenDepth;
+    private boolean rootSeen;
+    private String field;
+    private final Set<String> keys = new HashSet<>();
+
+    JsonFormatValidator(JsonSchema schema) {
+        this.schema = schema;
+        try {
+            this.parser = FACTORY.createNonBlockingByteArrayParser();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+    }
+
+    @Override
+    public boolean accept(CharSequence chunk) {
+        for (int i = 0; i < chunk.length() && !malformed; i++) {
+            char c = chunk.charAt(i);
+            switch (stage) {
+                case LEADING -> {
+                    if (c == '`' && !fenced) {
+                        fenced = true;
+                        stage = Stage.FENCE_INFO;
+                    } else if (c == '{' || c == '[') {
+                        stage = Stage.BODY;
+                        body(c);
+                    } else if (!Character.isWhitespace(c)) {
+                        malformed("output does not start with a JSON object or array");
+                    }
+                }
+                case FENCE_INFO -> {
+                    // Backticks and language tag up to the end of the line
+                    if (c == '\n') {
+                        stage = Stage.LEADING;
+                    }
+                }
+                case BODY -> body(c);
+                case TRAILING -> {
+                    if (!Character.isWhitespace(c) && !(fenced && c == '`')) {
+                        malformed("text after the JSON value");
+                    }
+                }
+            }
+        }
+        if (stage == Stage.BODY && !malformed) {
+            feed();
+        }
+        return !malformed;
+    }
+
+    private void body(char c) {
+        pending.append(c);
+        // The async parser misses a value that is missing across chunk boundaries, e.g. "{\"a\":" then "}"
+        if (!inString && (lastStructural == ',' || lastStructural == ':')
+                && (c == '}' || c == ']' || c == ',' || c == ':')) {
+            malformed("missing value after '" + lastStructural + "'");
+            return;
+        }
+        if (inString) {
+            if (escaped) {
+                escaped = false;
+            } else if (c == '\\') {
+                escaped = true;
+            } else if (c == '"') {
+                inString = false;
+            }
+        } else if (c == '"') {
+            inString = true;
+        } else if (c == '{' || c == '[') {
+            bracketDepth++;
+        } else if ((c == '}' || c == ']') && --bracketDepth == 0) {
+            feed();
+            feeder.endOfInput();
+            drain();
+            stage = Stage.TRAILING;
+        }
+        if (!inString && !Character.isWhitespace(c)) {
+            lastStructural = c;
+        }
+    }
+
+    private void feed() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        byte[] bytes = pending.toString().getBytes(StandardCharsets.UTF_8);
+        pending.setLength(0);
+        try {
+            feeder.feedInput(bytes, 0, bytes.length);
+        } catch (IOException e) {
+            malformed(e.getMessage());
+            return;
+        }
+        drain();
+    }
+
+    private void drain() {
+        try {
+            JsonToken token;
+            while (!malformed && (token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+                onToken(token);
+            }
+        } catch (IOException e) {
+            malformed(e instanceof JsonProcessingException processing ?
+                      processing.getOriginalMessage() : e.getMessage());
+        }
+    }
+
+    private void onToken(JsonToken token) throws IOException {
+        switch (token) {
+            case FIELD_NAME -> {
+                if (tokenDepth == 1) {
+                    field = parser.currentName();
+                }
+            }
+            case END_OBJECT, END_ARRAY -> tokenDepth--;
+            case START_OBJECT, START_ARRAY -> {
+                checkValue(token);
+                tokenDepth++;
+            }
+            default -> checkValue(token);
+        }
+    }
+
+    private void checkValue(JsonToken token) {
+        if (schema == null) {
+            return;
+        }
+        if (!rootSeen) {
+            rootSeen = true;
+            if (schema.type() != null && !matches(schema.type(), token)) {
+                violation("root is not of type " + schema.type());
+            }
+        } else if (tokenDepth == 1 && field != null) {
+            keys.add(field);
+            String expected = schema.propertyTypes().get(field);
+            if (expected != null && !matches(expected, token)) {
+                violation("property " + field + " is not of type " + expected);
+            }
+            field = null;
+        }
+    }
+
+    private static boolean matches(String type, JsonToken token) {
+        return switch (type) {
+            case "object" -> token == JsonToken.START_OBJECT;
+            case "array" -> token == JsonToken.START_ARRAY;
+            case "string" -> token == JsonToken.VALUE_STRING;
+            case "number" -> token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT;
+            case "integer" -> token == JsonToken.VALUE_NUMBER_INT;
+            case "boolean" -> token == JsonToken.VALUE_TRUE || token == JsonToken.VALUE_FALSE;
+            case "null" -> token == JsonToken.VALUE_NULL;
+            default -> true;
+        };
+    }
+
+    @Override
+    public Verdict finish() {
+        if (!malformed) {
+            switch (stage) {
+                case LEADING, FENCE_INFO -> malformed("no JSON value");
+                case BODY -> malformed("JSON value is not closed");
+                case TRAILING -> {
+                    if (schema != null && problem == null) {
+                        for (String key : schema.required()) {
+                            if (!keys.contains(key)) {
+                                violation("required property " + key + " is missing");
+                                break;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        if (malformed) {
+            return Verdict.MALFORMED;
+        }
+        return problem != null ? Verdict.SCHEMA_VIOLATION : Verdict.VALID;
+    }
+
+    @Override
+    public String problem() {
+        return problem;
+    }
+
+    private void malformed(String message) {
+        malformed = true;
+        problem = message;
+    }
+
+    private void violation(String message) {
+        if (problem == null) {
+            problem = message;
+        }
+    }
+}
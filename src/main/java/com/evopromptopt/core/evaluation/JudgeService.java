@@ -0,0 +1,14 @@
+package com.evopromptopt.core.evaluation;
+
+import java.io.IOException;
+
+/**
+ * Model that grades responses for {@link LlmJudgeEvaluator}
+ */
+@FunctionalInterface
+public interface JudgeService {
+    /**
+     * @return The judge model's raw completion of the prompt
+     */
+    String complete(String model, String prompt) throws IOException;
+}
@@ -0,0 +1,147 @@
+package com.evopromptopt.core.evaluation;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Aho-Corasick automaton over a fixed set of keywords, so every occurrence of every keyword is
+ * found in one pass over a text. Transitions live in a primitive open-addressing table and the
+ * automaton is immutable, so one instance can be shared by concurrent scans.
+ */
+final class KeywordAutomaton {
+    static final int ROOT = 0;
+    private static final long EMPTY = -1L;
+
+    private final long[] edgeKeys;
+    private final int[] edgeTargets;
+    private final int edgeMask;
+    private final int[] fail;
+    // Keyword ending at a state, -1 if none
+    private final int[] keyword;
+    // Nearest state on the failure chain where a keyword ends, -1 if none
+    private final int[] dictionaryLink;
+
+    /**
+     * @param keywords Distinct, non-empty keywords; a keyword's id is its index
+     */
+    KeywordAutomaton(List<String> keywords) {
+        // Trie
+        List<Map<Character, Integer>> children = new ArrayList<>();
+        List<Integer> keywordAt = new ArrayList<>();
+        children.add(new HashMap<>());
+        keywordAt.add(-1);
+        int edges = 0;
+        for (int id = 0; id < keywords.size(); id++) {
+            int state = ROOT;
+            for (char c : keywords.get(id).toCharArray()) {
+                Integer next = children.get(state).get(c);
+                if (next == null) {
+                    next = children.size();
+                    children.get(state).put(c, next);
+                    children.add(new HashMap<>());
+                    keywordAt.add(-1);
+                    edges++;
+                }
+                state = next;
+            }
+            keywordAt.set(state, id);
+        }
+
+        int states = children.size();
+        int capacity = Integer.highestOneBit(Math.max(4, edges * 2 - 1)) << 1;
+        edgeKeys = new long[capacity];
+        edgeTargets = new int[capacity];
+        edgeMask = capacity - 1;
+        Arrays.fill(edgeKeys, EMPTY);
+        for (int state = 0; state < states; state++) {
+            for (Map.Entry<Character, Integer> edge : children.get(state).entrySet()) {
+                putEdge(state, edge.getKey(), edge.getValue());
+            }
+        }
+
+        keyword = keywordAt.stream().mapToInt(Integer::intValue).toArray();
+        fail = new int[states];
+        dictionaryLink = new int[states];
+        Arrays.fill(dictionaryLink, -1);
+
+        // Failure links, breadth first so shorter suffixes are done before longer ones
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int child : children.get(ROOT).values()) {
+            fail[child] = ROOT;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (Map.Entry<Character, Integer> edge : children.get(state).entrySet()) {
+                int child = edge.getValue();
+                fail[child] = next(fail[state], edge.getKey());
+                dictionaryLink[child] = keyword[fail[child]] >= 0 ? fail[child] : dictionaryLink[fail[child]];
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * @return The state after reading c in state
+     */
+    int next(int state, char c) {
+        while (true) {
+            int target = edge(state, c);
+            if (target >= 0) {
+                return target;
+            }
+            if (state == ROOT) {
+                return ROOT;
+            }
+            state = fail[state];
+        }
+    }
+
+    /**
+     * @return The first state whose keyword ends at the current position, -1 if none;
+     * follow with {@link #nextMatch} for the shorter keywords ending there too
+     */
+    int firstMatch(int state) {
+        return keyword[state] >= 0 ? state : dictionaryLink[state];
+    }
+
+    int nextMatch(int matchState) {
+        return dictionaryLink[matchState];
+    }
+
+    int keyword(int matchState) {
+        return keyword[matchState];
+    }
+
+    private int edge(int state, char c) {
+        long key = ((long) state << 16) | c;
+        for (int slot = slot(key); ; slot = (slot + 1) & edgeMask) {
+            if (edgeKeys[slot] == key) {
+                return edgeTargets[slot];
+            }
+            if (edgeKeys[slot] == EMPTY) {
+                return -1;
+            }
+        }
+    }
+
+    private void putEdge(int state, char c, int target) {
+        long key = ((long) state << 16) | c;
+        int slot = slot(key);
+        while (edgeKeys[slot] != EMPTY) {
+            slot = (slot + 1) & edgeMask;
+        }
+        edgeKeys[slot] = key;
+        edgeTargets[slot] = target;
+    }
+
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & edgeMask;
+    }
+}
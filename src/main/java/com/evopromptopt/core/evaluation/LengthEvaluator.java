@@ -25,11 +25,17 @@ public class LengthEvaluator implements EvaluationMetric {
 
     @Override
     public double evaluate(String task, String expectedOutput, String actualOutput, ExecutionResult executionResult) {
-        if (!executionResult.success() || actualOutput == null || actualOutput.trim().isEmpty()) {
+        return evaluate(task, expectedOutput, ResponseAnalysis.of(actualOutput), executionResult);
+    }
+
+    @Override
+    public double evaluate(String task, String expectedOutput, ResponseAnalysis response,
+                           ExecutionResult executionResult) {
+        if (!executionResult.success() || response.isBlank()) {
             return 0.0;
         }
 
-        String output = actualOutput.trim();
+        ResponseAnalysis output = response.trimmed();
         int length = output.length();
 
         // Calculate length score
@@ -48,31 +54,29 @@ public class LengthEvaluator implements EvaluationMetric {
         return lengthWeight * lengthScore + contentWeight * contentScore;
     }
 
-    private double evaluateContentQuality(String output) {
+    private double evaluateContentQuality(ResponseAnalysis output) {
         // Basic content quality heuristics
         double score = 0.5; // Base score
 
         // Penalize very short sentences
-        String[] sentences = output.split("[.!?]+");
-        if (sentences.length == 0) {
+        int sentences = output.sentenceCount();
+        if (sentences == 0) {
             return 0.0;
         }
 
         // Reward proper sentence structure
-        double avgSentenceLength = (double) output.length() / sentences.length;
+        double avgSentenceLength = (double) output.length() / sentences;
         if (avgSentenceLength > 10 && avgSentenceLength < 100) {
             score += 0.2;
         }
 
         // Reward capitalization (indicates proper formatting)
-        if (Character.isUpperCase(output.charAt(0))) {
+        if (output.startsWithUpperCase()) {
             score += 0.1;
         }
 
         // Penalize repetitive content
-        String[] words = output.toLowerCase().split("\\s+");
-        long uniqueWords = java.util.Arrays.stream(words).distinct().count();
-        double uniquenessRatio = (double) uniqueWords / words.length;
+        double uniquenessRatio = (double) output.distinctWordCount() / output.wordCount();
         if (uniquenessRatio > 0.7) {
             score += 0.2;
         } else if (uniquenessRatio < 0.3) {
@@ -91,4 +95,15 @@ public class LengthEvaluator implements EvaluationMetric {
     public String getDescription() {
         return "Evaluates response based on length constraints and basic content quality";
     }
+
+    @Override
+    public double getEstimatedCost() {
+        return 2.0;
+    }
+
+    @Override
+    public String getSignature() {
+        return EvaluationMetric.super.getSignature() + ":" + targetMinLength + "-" + targetMaxLength
+               + ",weights=" + lengthWeight + "/" + contentWeight;
+    }
 }
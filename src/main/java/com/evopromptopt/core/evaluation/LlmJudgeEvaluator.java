@@ -0,0 +1,251 @@
+package com.evopromptopt.core.evaluation;
+
+import com.evopromptopt.core.execution.EvaluationScheduler;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Evaluates open-ended responses by asking a judge model to grade them against the expected
+ * output. Several responses are graded in one judging prompt that asks for a JSON array of scores,
+ * verdicts are cached by a content hash of everything the judge sees. The rounds of a batch run on
+ * the shared {@link EvaluationScheduler} workers; the judge service is expected to send its requests
+ * through the model server's bulkhead, so judging and candidate generation share its slots.
+ */
+public class LlmJudgeEvaluator implements BatchEvaluationMetric {
+    private static final Logger logger = LoggerFactory.getLogger(LlmJudgeEvaluator.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int MAX_VERDICTS = 10_000;
+
+    private final JudgeService judgeService;
+    private final String model;
+    private final String criteria;
+    private final int batchSize;
+    private final int maxResponseChars;
+    private final Executor roundExecutor;
+    private final Map<String, Double> verdicts = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Double> eldest) {
+            return size() > MAX_VERDICTS;
+        }
+    };
+    private final AtomicLong judgeCalls = new AtomicLong();
+    private final AtomicLong judgedResponses = new AtomicLong();
+    private final AtomicLong cachedVerdicts = new AtomicLong();
+
+    /**
+     * @param criteria What the judge grades, e.g. "factual correctness and completeness"
+     * @param batchSize Responses graded per judging prompt
+     * @param maxResponseChars Responses are cut to this length before judging
+     */
+    public LlmJudgeEvaluator(JudgeService judgeService, String model, String criteria,
+                             int batchSize, int maxResponseChars) {
+        this.judgeService = judgeService;
+        this.model = model;
+        this.criteria = criteria;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxResponseChars = maxResponseChars;
+        this.roundExecutor = EvaluationScheduler.shared().executor();
+    }
+
+    @Override
+    public double[] evaluateBatch(List<Item> items) {
+        double[] scores = new double[items.size()];
+
+        // Responses the judge has not seen yet, each distinct one once
+        Map<String, List<Integer>> pending = new LinkedHashMap<>();
+        Map<String, Item> pendingItems = new LinkedHashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            Item item = items.get(i);
+            if (!item.executionResult().success() || item.response().isBlank()) {
+                continue;
+            }
+            String key = verdictKey(item);
+            Double verdict;
+            synchronized (verdicts) {
+                verdict = verdicts.get(key);
+            }
+            if (verdict != null) {
+                cachedVerdicts.incrementAndGet();
+                scores[i] = verdict;
+            } else {
+                pending.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+                pendingItems.putIfAbsent(key, item);
+            }
+        }
+        if (pending.isEmpty()) {
+            return scores;
+        }
+
+        List<String> keys = new ArrayList<>(pending.keySet());
+        List<FutureTask<double[]>> rounds = new ArrayList<>();
+        for (int from = 0; from < keys.size(); from += batchSize) {
+            List<Item> round = keys.subList(from, Math.min(keys.size(), from + batchSize)).stream()
+                    .map(pendingItems::get)
+                    .toList();
+            FutureTask<double[]> task = new FutureTask<>(() -> judge(round));
+            rounds.add(task);
+            roundExecutor.execute(task);
+        }
+
+        for (int r = 0; r < rounds.size(); r++) {
+            double[] verdictsOfRound;
+            try {
+                // Runs the round here if no worker has started it, so a busy pool cannot stall scoring
+                rounds.get(r).run();
+                verdictsOfRound = rounds.get(r).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while judging", e);
+            } catch (ExecutionException e) {
+                // Only the responses of this round go unscored; verdicts of the other rounds still count
+                logger.warn("Judge failed to grade a round of responses: {}", e.getCause().getMessage());
+                int size = Math.min(batchSize, keys.size() - r * batchSize);
+                verdictsOfRound = new double[size];
+                Arrays.fill(verdictsOfRound, Double.NaN);
+            }
+            for (int j = 0; j < verdictsOfRound.length; j++) {
+                String key = keys.get(r * batchSize + j);
+                if (!Double.isNaN(verdictsOfRound[j])) {
+                    synchronized (verdicts) {
+                        verdicts.put(key, verdictsOfRound[j]);
+                    }
+                }
+                for (int i : pending.get(key)) {
+                    scores[i] = verdictsOfRound[j];
+                }
+            }
+        }
+        return scores;
+    }
+
+    /**
+     * Grades one round of responses with a single judging prompt, retrying once if the verdict
+     * cannot be parsed
+     */
+    private double[] judge(List<Item> round) {
+        String prompt = judgingPrompt(round);
+        IOException failure = null;
+        for (int attempt = 0; attempt < 2; attempt++) {
+            try {
+                judgeCalls.incrementAndGet();
+                double[] grades = parseGrades(judgeService.complete(model, prompt), round.size());
+                judgedResponses.addAndGet(round.size());
+                return grades;
+            } catch (IOException e) {
+                logger.debug("Judge verdict rejected: {}", e.getMessage());
+                failure = e;
+            }
+        }
+        throw new UncheckedIOException("Judge failed to grade " + round.size() + " responses", failure);
+    }
+
+    private String judgingPrompt(List<Item> round) {
+        StringBuilder prompt = new StringBuilder()
+                .append("You are grading responses to tasks against a reference answer.\n")
+                .append("Grading criteria: ").append(criteria).append('\n')
+                .append("Grade each response from 0 (wrong or useless) to 10 (fully meets the criteria).\n")
+                .append("Reply with only a JSON array of ").append(round.size())
+                .append(" numbers, one grade per response, in order.\n");
+        for (int i = 0; i < round.size(); i++) {
+            Item item = round.get(i);
+            prompt.append("\n### Response ").append(i + 1).append('\n')
+                  .append("Task: ").append(item.task()).append('\n')
+                  .append("Reference answer: ").append(item.expectedOutput() != null ? item.expectedOutput() : "")
+                  .append('\n')
+                  .append("Response: ").append(truncate(item.response().trimmed().text())).append('\n');
+        }
+        return prompt.toString();
+    }
+
+    /**
+     * @return Grades scaled to [0, 1]
+     */
+    private static double[] parseGrades(String completion, int expected) throws IOException {
+        int start = completion != null ? completion.indexOf('[') : -1;
+        int end = completion != null ? completion.lastIndexOf(']') : -1;
+        if (start < 0 || end < start) {
+            throw new IOException("No grade array in judge verdict");
+        }
+        double[] grades = MAPPER.readValue(completion.substring(start, end + 1), double[].class);
+        if (grades.length != expected) {
+            throw new IOException("Judge returned " + grades.length + " grades for " + expected + " responses");
+        }
+        for (int i = 0; i < grades.length; i++) {
+            grades[i] = Math.max(0.0, Math.min(1.0, grades[i] / 10.0));
+        }
+        return grades;
+    }
+
+    private String truncate(String response) {
+        return response.length() > maxResponseChars ? response.substring(0, maxResponseChars) + " [...]" : response;
+    }
+
+    private String verdictKey(Item item) {
+        StringBuilder content = new StringBuilder();
+        for (String part : new String[]{model, criteria, item.task(), item.expectedOutput(),
+                                        truncate(item.response().trimmed().text())}) {
+            String text = part != null ? part : "";
+            content.append(text.length()).append(':').append(text);
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * @return Judging prompts sent, including retries
+     */
+    public long getJudgeCalls() {
+        return judgeCalls.get();
+    }
+
+    public long getJudgedResponses() {
+        return judgedResponses.get();
+    }
+
+    public long getCachedVerdicts() {
+        return cachedVerdicts.get();
+    }
+
+    @Override
+    public String getName() {
+        return "LLM Judge";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Grades responses against the expected output with a judge model";
+    }
+
+    @Override
+    public double getEstimatedCost() {
+        // A share of a judge model generation per response
+        return 10000.0;
+    }
+
+    @Override
+    public String getSignature() {
+        return BatchEvaluationMetric.super.getSignature() + ":model=" + model + ",criteria=" + criteria
+               + ",maxResponseChars=" + maxResponseChars;
+    }
+}
@@ -0,0 +1,82 @@
+package com.evopromptopt.core.evaluation;
+
+import java.util.Arrays;
+
+/**
+ * Counts per long key (n-gram hashes) in an open-addressing table of primitive arrays, without
+ * boxing. A slot is occupied while its count is positive.
+ */
+final class LongCountMap {
+    private long[] keys;
+    private int[] counts;
+    private int size;
+
+    LongCountMap(int expectedKeys) {
+        int capacity = Integer.highestOneBit(Math.max(8, expectedKeys * 2 - 1)) << 1;
+        keys = new long[capacity];
+        counts = new int[capacity];
+    }
+
+    /**
+     * @return The count of the key after adding one
+     */
+    int increment(long key) {
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+        while (counts[slot] > 0) {
+            if (keys[slot] == key) {
+                return ++counts[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        counts[slot] = 1;
+        if (++size * 2 > keys.length) {
+            grow();
+        }
+        return 1;
+    }
+
+    int get(long key) {
+        int mask = keys.length - 1;
+        for (int slot = slot(key, mask); counts[slot] > 0; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return counts[slot];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Empties the map for reuse, keeping its capacity
+     */
+    void clear() {
+        if (size > 0) {
+            Arrays.fill(counts, 0);
+            size = 0;
+        }
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new long[oldKeys.length * 2];
+        counts = new int[oldKeys.length * 2];
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldCounts[i] > 0) {
+                int slot = slot(oldKeys[i], mask);
+                while (counts[slot] > 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    private static int slot(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
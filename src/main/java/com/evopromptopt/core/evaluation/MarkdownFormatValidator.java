@@ -0,0 +1,93 @@
+package com.evopromptopt.core.evaluation;
+
+/**
+ * Checks Markdown structure line by line: code fences must be closed, and the output must use some
+ * Markdown structure (a heading, list item, table row, block quote or code block) rather than being
+ * plain prose. Neither can be decided before the output ends, so chunks never fail early.
+ */
+final class MarkdownFormatValidator implements FormatValidator {
+    private final StringBuilder line = new StringBuilder();
+    private boolean inFence;
+    private int structures;
+    private boolean content;
+    private String problem;
+
+    @Override
+    public boolean accept(CharSequence chunk) {
+        for (int i = 0; i < chunk.length(); i++) {
+            char c = chunk.charAt(i);
+            if (c == '\n') {
+                endLine();
+            } else {
+                line.append(c);
+            }
+        }
+        return true;
+    }
+
+    private void endLine() {
+        int start = 0;
+        while (start < line.length() && (line.charAt(start) == ' ' || line.charAt(start) == '\t')) {
+            start++;
+        }
+        int length = line.length() - start;
+        if (length > 0) {
+            content = true;
+            if (startsWith(start, "```") || startsWith(start, "~~~")) {
+                inFence = !inFence;
+                structures++;
+            } else if (!inFence && isStructure(start)) {
+                structures++;
+            }
+        }
+        line.setLength(0);
+    }
+
+    private boolean isStructure(int start) {
+        char first = line.charAt(start);
+        if (first == '#') {
+            int level = start;
+            while (level < line.length() && line.charAt(level) == '#') {
+                level++;
+            }
+            return level - start <= 6 && level < line.length() && line.charAt(level) == ' ';
+        }
+        if (first == '-' || first == '*' || first == '+') {
+            return start + 1 < line.length() && line.charAt(start + 1) == ' ';
+        }
+        if (first == '>') {
+            return true;
+        }
+        if (first == '|') {
+            return line.indexOf("|", start + 1) > 0;
+        }
+        int digits = start;
+        while (digits < line.length() && Character.isDigit(line.charAt(digits))) {
+            digits++;
+        }
+        return digits > start && digits + 1 < line.length()
+               && (line.charAt(digits) == '.' || line.charAt(digits) == ')') && line.charAt(digits + 1) == ' ';
+    }
+
+    private boolean startsWith(int start, String prefix) {
+        return line.length() - start >= prefix.length() && line.indexOf(prefix, start) == start;
+    }
+
+    @Override
+    public Verdict finish() {
+        endLine();
+        if (inFence) {
+            problem = "code block is not closed";
+        } else if (!content) {
+            problem = "empty output";
+        } else if (structures == 0) {
+            problem = "no Markdown structure";
+        }
+        return problem != null ? Verdict.MALFORMED : Verdict.VALID;
+    }
+
+    @Override
+    public String problem() {
+        return problem;
+    }
+}
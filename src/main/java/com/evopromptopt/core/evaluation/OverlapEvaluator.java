@@ -0,0 +1,295 @@
+package com.evopromptopt.core.evaluation;
+
+import com.evopromptopt.core.execution.ExecutionResult;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Evaluates word overlap with the expected output: ROUGE-1, ROUGE-2 and ROUGE-L as F1 scores, or
+ * sentence-level BLEU (clipped 1- to 4-gram precision with add-one smoothing and a brevity penalty).
+ * Words are lower-cased runs of letters and digits, identified by a 64-bit hash computed while
+ * scanning, and n-grams by hashes of those hashes, so no substring is ever created. Each reference
+ * is tokenized and counted once into primitive long-keyed maps, of which the most recently used are
+ * kept; responses are counted into per-thread buffers.
+ */
+public class OverlapEvaluator implements EvaluationMetric {
+    private static final int BLEU_ORDER = 4;
+    private static final int MAX_REFERENCES = 10_000;
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private final Measure measure;
+    private final Function<String, long[]> referenceWords;
+    private final Map<String, Reference> references = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Reference> eldest) {
+            return size() > MAX_REFERENCES;
+        }
+    };
+
+    /**
+     * @param expectedOutputs References to prepare up front; others are prepared on first use
+     * @param referenceWords  Precomputed {@link #wordHashes} of references, null where not known
+     */
+    public OverlapEvaluator(Measure measure, Collection<String> expectedOutputs,
+                            Function<String, long[]> referenceWords) {
+        this.measure = measure;
+        this.referenceWords = referenceWords;
+        for (String expectedOutput : expectedOutputs) {
+            if (expectedOutput != null) {
+                reference(expectedOutput);
+            }
+        }
+    }
+
+    public OverlapEvaluator(Measure measure, Collection<String> expectedOutputs) {
+        this(measure, expectedOutputs, reference -> null);
+    }
+
+    public OverlapEvaluator(Measure measure) {
+        this(measure, List.of());
+    }
+
+    /**
+     * @return Hashes of the words of the text, in order, as this metric compares them
+     */
+    public static long[] wordHashes(String text) {
+        Scratch scratch = SCRATCH.get();
+        return Arrays.copyOf(scratch.tokens, scratch.tokenize(text));
+    }
+
+    @Override
+    public double evaluate(String task, String expectedOutput, String actualOutput, ExecutionResult executionResult) {
+        return evaluate(task, expectedOutput, ResponseAnalysis.of(actualOutput), executionResult);
+    }
+
+    @Override
+    public double evaluate(String task, String expectedOutput, ResponseAnalysis response,
+                           ExecutionResult executionResult) {
+        if (!executionResult.success() || response.text() == null || expectedOutput == null) {
+            return 0.0;
+        }
+        Reference reference = reference(expectedOutput);
+
+        Scratch scratch = SCRATCH.get();
+        int length = scratch.tokenize(response.text());
+        if (reference.tokens.length == 0 || length == 0) {
+            return 0.0;
+        }
+
+        return switch (measure) {
+            case ROUGE_1 -> f1(matches(reference, scratch, length, 1), reference.tokens.length, length);
+            case ROUGE_2 -> f1(matches(reference, scratch, length, 2), reference.tokens.length - 1, length - 1);
+            case ROUGE_L -> f1(longestCommonSubsequence(reference.tokens, scratch, length),
+                               reference.tokens.length, length);
+            case BLEU -> bleu(reference, scratch, length);
+        };
+    }
+
+    /**
+     * Looks up the prepared reference, preparing it outside the lock so other threads are not held up
+     */
+    private Reference reference(String expectedOutput) {
+        synchronized (references) {
+            Reference reference = references.get(expectedOutput);
+            if (reference != null) {
+                return reference;
+            }
+        }
+        Reference prepared = prepare(expectedOutput);
+        synchronized (references) {
+            Reference raced = references.putIfAbsent(expectedOutput, prepared);
+            return raced != null ? raced : prepared;
+        }
+    }
+
+    private double bleu(Reference reference, Scratch scratch, int length) {
+        double logPrecision = 0.0;
+        for (int order = 1; order <= BLEU_ORDER; order++) {
+            int matches = matches(reference, scratch, length, order);
+            int total = Math.max(0, length - order + 1);
+            if (order == 1) {
+                if (matches == 0) {
+                    return 0.0;
+                }
+                logPrecision += Math.log((double) matches / total);
+            } else {
+                // Add-one smoothing keeps short responses without 4-gram matches from scoring 0
+                logPrecision += Math.log((matches + 1.0) / (total + 1.0));
+            }
+        }
+        int referenceLength = reference.tokens.length;
+        double brevityPenalty = length >= referenceLength ? 1.0 : Math.exp(1.0 - (double) referenceLength / length);
+        return brevityPenalty * Math.exp(logPrecision / BLEU_ORDER);
+    }
+
+    /**
+     * @return Response n-grams of the order that also occur in the reference, clipped to the reference counts
+     */
+    private static int matches(Reference reference, Scratch scratch, int length, int order) {
+        LongCountMap referenceCounts = reference.ngrams[order - 1];
+        LongCountMap counts = scratch.counts;
+        counts.clear();
+        int matches = 0;
+        for (int i = 0; i + order <= length; i++) {
+            long ngram = ngram(scratch.tokens, i, order);
+            if (counts.increment(ngram) <= referenceCounts.get(ngram)) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    private static int longestCommonSubsequence(long[] reference, Scratch scratch, int length) {
+        int[] previous = scratch.rows(reference.length + 1);
+        int[] current = scratch.secondRow;
+        Arrays.fill(previous, 0, reference.length + 1, 0);
+        current[0] = 0;
+        for (int i = 0; i < length; i++) {
+            long token = scratch.tokens[i];
+            for (int j = 1; j <= reference.length; j++) {
+                current[j] = token == reference[j - 1] ? previous[j - 1] + 1 : Math.max(previous[j], current[j - 1]);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[reference.length];
+    }
+
+    private static double f1(int matches, int referenceTotal, int candidateTotal) {
+        if (matches == 0 || referenceTotal <= 0 || candidateTotal <= 0) {
+            return 0.0;
+        }
+        double precision = (double) matches / candidateTotal;
+        double recall = (double) matches / referenceTotal;
+        return 2 * precision * recall / (precision + recall);
+    }
+
+    private Reference prepare(String expectedOutput) {
+        long[] tokens = referenceWords.apply(expectedOutput);
+        if (tokens == null) {
+            tokens = wordHashes(expectedOutput);
+        }
+        int length = tokens.length;
+        LongCountMap[] ngrams = new LongCountMap[measure.maxOrder];
+        for (int order = 1; order <= measure.maxOrder; order++) {
+            ngrams[order - 1] = new LongCountMap(length);
+            for (int i = 0; i + order <= length; i++) {
+                ngrams[order - 1].increment(ngram(tokens, i, order));
+            }
+        }
+        return new Reference(tokens, ngrams);
+    }
+
+    private static long ngram(long[] tokens, int from, int order) {
+        long hash = tokens[from];
+        for (int k = 1; k < order; k++) {
+            hash = mix(hash * 0x100000001B3L + tokens[from + k]);
+        }
+        return hash;
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    @Override
+    public String getName() {
+        return measure.label;
+    }
+
+    @Override
+    public String getDescription() {
+        return measure == Measure.BLEU ?
+                "Measures n-gram precision against the expected output (BLEU)" :
+                "Measures word overlap with the expected output (" + measure.label + " F1)";
+    }
+
+    @Override
+    public double getEstimatedCost() {
+        // Quadratic LCS and four n-gram orders cost more than single-order counting
+        return measure == Measure.ROUGE_1 || measure == Measure.ROUGE_2 ? 10.0 : 20.0;
+    }
+
+    public enum Measure {
+        ROUGE_1("ROUGE-1", 1),
+        ROUGE_2("ROUGE-2", 2),
+        ROUGE_L("ROUGE-L", 0),
+        BLEU("BLEU", BLEU_ORDER);
+
+        private final String label;
+        // Highest n-gram order counted for references
+        private final int maxOrder;
+
+        Measure(String label, int maxOrder) {
+            this.label = label;
+            this.maxOrder = maxOrder;
+        }
+    }
+
+    /**
+     * Word hashes of a reference and its n-gram counts by order
+     */
+    private record Reference(long[] tokens, LongCountMap[] ngrams) {}
+
+    /**
+     * Per-thread word hashes of the response being scored, n-gram counts and LCS rows
+     */
+    private static final class Scratch {
+        long[] tokens = new long[256];
+        final LongCountMap counts = new LongCountMap(256);
+        int[] firstRow = new int[256];
+        int[] secondRow = new int[256];
+
+        /**
+         * @return Number of words, whose hashes are now at the start of tokens
+         */
+        int tokenize(String text) {
+            int count = 0;
+            long hash = 0;
+            boolean inWord = false;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (Character.isLetterOrDigit(c)) {
+                    if (!inWord) {
+                        hash = 0xCBF29CE484222325L;
+                        inWord = true;
+                    }
+                    hash = (hash ^ Character.toLowerCase(c)) * 0x100000001B3L;
+                } else if (inWord) {
+                    count = add(count, hash);
+                    inWord = false;
+                }
+            }
+            if (inWord) {
+                count = add(count, hash);
+            }
+            return count;
+        }
+
+        private int add(int count, long hash) {
+            if (count == tokens.length) {
+                tokens = Arrays.copyOf(tokens, count * 2);
+            }
+            tokens[count] = mix(hash);
+            return count + 1;
+        }
+
+        int[] rows(int width) {
+            if (firstRow.length < width) {
+                firstRow = new int[width];
+                secondRow = new int[width];
+            }
+            return firstRow;
+        }
+    }
+}
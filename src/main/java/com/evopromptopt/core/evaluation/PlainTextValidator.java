@@ -0,0 +1,28 @@
+package com.evopromptopt.core.evaluation;
+
+/**
+ * Plain text is well-formed as long as there is some
+ */
+final class PlainTextValidator implements FormatValidator {
+    private boolean content;
+    private boolean finished;
+
+    @Override
+    public boolean accept(CharSequence chunk) {
+        for (int i = 0; i < chunk.length() && !content; i++) {
+            content = !Character.isWhitespace(chunk.charAt(i));
+        }
+        return true;
+    }
+
+    @Override
+    public Verdict finish() {
+        finished = true;
+        return content ? Verdict.VALID : Verdict.MALFORMED;
+    }
+
+    @Override
+    public String problem() {
+        return finished && !content ? "empty output" : null;
+    }
+}
@@ -0,0 +1,307 @@
+package com.evopromptopt.core.evaluation;
+
+/**
+ * Text analysis of one model response, shared by all metrics that score it. Every view is
+ * computed on first use and then kept, so the cost of trimming, lower-casing and splitting a
+ * response is paid once no matter how many metrics ask for it. Sentences follow
+ * {@code split("[.!?]+")} on the text and words follow {@code split("\\s+")} on the lower-cased
+ * text, including the empty-piece rules of {@link String#split}, without materializing either.
+ * Not thread-safe; an analysis belongs to the thread scoring the response.
+ */
+public final class ResponseAnalysis {
+    private final String text;
+
+    private ResponseAnalysis trimmed;
+    private String lowerCase;
+
+    private boolean sentencesDone;
+    private int sentenceCount;
+    private long trimmedSentenceLength;
+    private boolean startsWithUpperCase;
+
+    private WordTable words;
+
+    private ResponseAnalysis(String text) {
+        this.text = text;
+    }
+
+    /**
+     * @param text The response, may be null
+     */
+    public static ResponseAnalysis of(String text) {
+        return new ResponseAnalysis(text);
+    }
+
+    /**
+     * @return The raw response, null if there is none
+     */
+    public String text() {
+        return text;
+    }
+
+    /**
+     * @return Whether there is no response or it is empty after {@link String#trim}
+     */
+    public boolean isBlank() {
+        return text == null || trimmed().text().isEmpty();
+    }
+
+    public int length() {
+        return text != null ? text.length() : 0;
+    }
+
+    /**
+     * @return The analysis of the response without leading and trailing whitespace ({@link String#trim})
+     */
+    public ResponseAnalysis trimmed() {
+        if (trimmed == null) {
+            String trimmedText = text != null ? text.trim() : null;
+            trimmed = trimmedText == text ? this : new ResponseAnalysis(trimmedText);
+        }
+        return trimmed;
+    }
+
+    /**
+     * @return The response lower-cased with {@link String#toLowerCase()}, null if there is none
+     */
+    public String lowerCase() {
+        if (lowerCase == null && text != null) {
+            lowerCase = text.toLowerCase();
+        }
+        return lowerCase;
+    }
+
+    /**
+     * @return Number of pieces {@code split("[.!?]+")} returns for the response
+     */
+    public int sentenceCount() {
+        analyzeSentences();
+        return sentenceCount;
+    }
+
+    /**
+     * @return Mean trimmed length of the sentence pieces, 0 without sentences
+     */
+    public double averageSentenceLength() {
+        analyzeSentences();
+        return sentenceCount > 0 ? (double) trimmedSentenceLength / sentenceCount : 0.0;
+    }
+
+    /**
+     * @return Whether the first non-blank character is upper case
+     */
+    public boolean startsWithUpperCase() {
+        analyzeSentences();
+        return startsWithUpperCase;
+    }
+
+    /**
+     * @return Number of pieces {@code split("\\s+")} returns for the lower-cased response
+     */
+    public int wordCount() {
+        return words().total;
+    }
+
+    public int distinctWordCount() {
+        return words().distinct;
+    }
+
+    /**
+     * @return How often the lower-case word occurs as a whole whitespace-separated word
+     */
+    public int occurrences(String lowerCaseWord) {
+        return words().count(lowerCaseWord);
+    }
+
+    private void analyzeSentences() {
+        if (sentencesDone) {
+            return;
+        }
+        sentencesDone = true;
+        if (text == null) {
+            return;
+        }
+
+        int length = text.length();
+        int pieces = 0;
+        boolean inTerminators = false;
+        boolean anyTerminator = false;
+        boolean firstPieceEmpty = false;
+        int pieceStart = 0;
+        int pieceFirst = -1;
+        int pieceLast = -1;
+        boolean firstChecked = false;
+
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (!firstChecked && c > ' ') {
+                startsWithUpperCase = Character.isUpperCase(c);
+                firstChecked = true;
+            }
+            if (c == '.' || c == '!' || c == '?') {
+                if (!inTerminators) {
+                    trimmedSentenceLength += pieceFirst >= 0 ? pieceLast - pieceFirst + 1 : 0;
+                    if (pieces == 0) {
+                        firstPieceEmpty = i == pieceStart;
+                    }
+                    pieces++;
+                    inTerminators = true;
+                    anyTerminator = true;
+                }
+            } else {
+                if (inTerminators) {
+                    pieceStart = i;
+                    pieceFirst = -1;
+                    inTerminators = false;
+                }
+                if (c > ' ') {
+                    if (pieceFirst < 0) {
+                        pieceFirst = i;
+                    }
+                    pieceLast = i;
+                }
+            }
+        }
+
+        if (!inTerminators) {
+            // Last piece; without any terminator split returns the whole text, even when empty
+            trimmedSentenceLength += pieceFirst >= 0 ? pieceLast - pieceFirst + 1 : 0;
+            pieces++;
+        } else if (anyTerminator && pieces == 1 && firstPieceEmpty) {
+            // Only terminators: the empty pieces before and after them are both dropped
+            pieces = 0;
+        }
+        sentenceCount = pieces;
+    }
+
+    private WordTable words() {
+        if (words == null) {
+            words = new WordTable(lowerCase());
+        }
+        return words;
+    }
+
+    /**
+     * Whitespace-separated words of a text with their counts, in an open-addressing table of
+     * offsets into the text instead of substrings
+     */
+    private static final class WordTable {
+        private final String text;
+        private int[] starts = new int[16];
+        private int[] ends = new int[16];
+        private int[] hashes = new int[16];
+        private int[] counts = new int[16];
+        private int total;
+        private int distinct;
+
+        WordTable(String text) {
+            this.text = text;
+            if (text == null) {
+                return;
+            }
+
+            int length = text.length();
+            int wordStart = -1;
+            int hash = 0;
+            boolean leadingEmpty = false;
+            for (int i = 0; i < length; i++) {
+                char c = text.charAt(i);
+                if (isSplitWhitespace(c)) {
+                    if (wordStart >= 0) {
+                        add(wordStart, i, hash);
+                        wordStart = -1;
+                    } else if (i == 0) {
+                        leadingEmpty = true;
+                    }
+                } else {
+                    if (wordStart < 0) {
+                        wordStart = i;
+                        hash = 0;
+                    }
+                    hash = 31 * hash + c;
+                }
+            }
+            if (wordStart >= 0) {
+                add(wordStart, length, hash);
+            }
+            if (total == 0 && !leadingEmpty) {
+                // No whitespace at all: split returns the whole (empty) text
+                add(0, 0, 0);
+            } else if (leadingEmpty && total > 0) {
+                // split keeps the empty piece before leading whitespace
+                add(0, 0, 0);
+            }
+        }
+
+        int count(String word) {
+            int hash = word.hashCode();
+            int mask = starts.length - 1;
+            for (int slot = spread(hash) & mask; counts[slot] > 0; slot = (slot + 1) & mask) {
+                if (hashes[slot] == hash && ends[slot] - starts[slot] == word.length()
+                        && text.regionMatches(starts[slot], word, 0, word.length())) {
+                    return counts[slot];
+                }
+            }
+            return 0;
+        }
+
+        private void add(int start, int end, int hash) {
+            total++;
+            int mask = starts.length - 1;
+            int slot = spread(hash) & mask;
+            while (counts[slot] > 0) {
+                if (hashes[slot] == hash && sameWord(starts[slot], ends[slot], start, end)) {
+                    counts[slot]++;
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            starts[slot] = start;
+            ends[slot] = end;
+            hashes[slot] = hash;
+            counts[slot] = 1;
+            if (++distinct * 2 > starts.length) {
+                grow();
+            }
+        }
+
+        private void grow() {
+            int[] oldStarts = starts;
+            int[] oldEnds = ends;
+            int[] oldHashes = hashes;
+            int[] oldCounts = counts;
+            int capacity = oldStarts.length * 2;
+            starts = new int[capacity];
+            ends = new int[capacity];
+            hashes = new int[capacity];
+            counts = new int[capacity];
+            for (int i = 0; i < oldStarts.length; i++) {
+                if (oldCounts[i] > 0) {
+                    int slot = spread(oldHashes[i]) & (capacity - 1);
+                    while (counts[slot] > 0) {
+                        slot = (slot + 1) & (capacity - 1);
+                    }
+                    starts[slot] = oldStarts[i];
+                    ends[slot] = oldEnds[i];
+                    hashes[slot] = oldHashes[i];
+                    counts[slot] = oldCounts[i];
+                }
+            }
+        }
+
+        private boolean sameWord(int aStart, int aEnd, int bStart, int bEnd) {
+            return aEnd - aStart == bEnd - bStart && text.regionMatches(aStart, text, bStart, aEnd - aStart);
+        }
+
+        private static int spread(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+
+        /**
+         * The characters matched by {@code \s} in a regular expression
+         */
+        private static boolean isSplitWhitespace(char c) {
+            return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.evopromptopt.core.evaluation;
+
+import com.evopromptopt.core.execution.ExecutionResult;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Evaluates meaning rather than wording: the cosine similarity between embeddings of the expected
+ * and the actual output. The task's expected outputs are embedded together in one batch on first
+ * use, responses are embedded once per distinct text, and both go through an {@link EmbeddingCache}.
+ */
+public class SemanticSimilarityEvaluator implements EvaluationMetric {
+    private static final int BATCH_SIZE = 64;
+
+    private final EmbeddingService embeddingService;
+    private final EmbeddingCache cache;
+    private final String model;
+    private final double baseline;
+    private final List<String> expectedOutputs;
+    private volatile boolean expectedEmbedded;
+
+    /**
+     * @param baseline Similarity that scores 0; unrelated texts often still have a cosine well above 0
+     * @param expectedOutputs Expected outputs of the task, embedded in one batch before the first score
+     */
+    public SemanticSimilarityEvaluator(EmbeddingService embeddingService, EmbeddingCache cache, String model,
+                                       double baseline, List<String> expectedOutputs) {
+        if (baseline < 0.0 || baseline >= 1.0) {
+            throw new IllegalArgumentException("Baseline must be in [0, 1)");
+        }
+        this.embeddingService = embeddingService;
+        this.cache = cache;
+        this.model = model;
+        this.baseline = baseline;
+        this.expectedOutputs = List.copyOf(expectedOutputs);
+    }
+
+    @Override
+    public double evaluate(String task, String expectedOutput, String actualOutput, ExecutionResult executionResult) {
+        return evaluate(task, expectedOutput, ResponseAnalysis.of(actualOutput), executionResult);
+    }
+
+    @Override
+    public double evaluate(String task, String expectedOutput, ResponseAnalysis response,
+                           ExecutionResult executionResult) {
+        if (!executionResult.success() || response.isBlank() || expectedOutput == null || expectedOutput.isBlank()) {
+            return 0.0;
+        }
+
+        try {
+            embedExpectedOutputs();
+            double similarity = EmbeddingCache.cosine(embedding(expectedOutput.trim()),
+                                                      embedding(response.trimmed().text()));
+            return Math.max(0.0, Math.min(1.0, (similarity - baseline) / (1.0 - baseline)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Embedding failed", e);
+        }
+    }
+
+    private float[] embedding(String text) throws IOException {
+        float[] vector = cache.get(model, text);
+        if (vector == null) {
+            vector = cache.put(model, text, embeddingService.embed(model, List.of(text))[0]);
+        }
+        return vector;
+    }
+
+    private void embedExpectedOutputs() throws IOException {
+        if (expectedEmbedded) {
+            return;
+        }
+        synchronized (this) {
+            if (expectedEmbedded) {
+                return;
+            }
+            Set<String> missing = new LinkedHashSet<>();
+            for (String expected : expectedOutputs) {
+                if (expected != null && !expected.isBlank() && cache.get(model, expected.trim()) == null) {
+                    missing.add(expected.trim());
+                }
+            }
+            List<String> texts = new ArrayList<>(missing);
+            for (int from = 0; from < texts.size(); from += BATCH_SIZE) {
+                List<String> batch = texts.subList(from, Math.min(texts.size(), from + BATCH_SIZE));
+                float[][] vectors = embeddingService.embed(model, batch);
+                for (int i = 0; i < batch.size(); i++) {
+                    cache.put(model, batch.get(i), vectors[i]);
+                }
+            }
+            expectedEmbedded = true;
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "Semantic Similarity";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Measures embedding cosine similarity between expected and actual output";
+    }
+
+    @Override
+    public double getEstimatedCost() {
+        // An embedding request per distinct response
+        return 1000.0;
+    }
+
+    @Override
+    public String getSignature() {
+        return EvaluationMetric.super.getSignature() + ":model=" + model + ",baseline=" + baseline;
+    }
+}
@@ -0,0 +1,127 @@
+package com.evopromptopt.core.evolution;
+
+import com.evopromptopt.core.execution.MeteredPromptExecutor;
+import io.jenetics.IntegerGene;
+import io.jenetics.engine.EvolutionResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+/**
+ * Evolution stream limit that stops the run once a compute budget is used up: wall-clock time,
+ * number of LLM calls, total tokens, or a fitness plateau. It also remembers the best result
+ * seen so far, so that a run stopped early (or interrupted) still has a result to report.
+ *
+ * <p>Budgets are checked after each generation, so a run may overshoot by at most one generation.
+ */
+public class BudgetLimit implements Predicate<EvolutionResult<IntegerGene, Double>> {
+    private static final Logger logger = LoggerFactory.getLogger(BudgetLimit.class);
+
+    private final EvolutionBudget budget;
+    private final MeteredPromptExecutor meter;
+    private final long startNanos;
+
+    private volatile String stopReason;
+    private EvolutionResult<IntegerGene, Double> bestResult;
+    private double plateauBestFitness = Double.NEGATIVE_INFINITY;
+    private int generationsWithoutImprovement;
+
+    public BudgetLimit(EvolutionBudget budget, MeteredPromptExecutor meter) {
+        this.budget = budget;
+        this.meter = meter;
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * @return true while the evolution may continue
+     */
+    @Override
+    public boolean test(EvolutionResult<IntegerGene, Double> result) {
+        synchronized (this) {
+            if (bestResult == null || result.bestFitness() > bestResult.bestFitness()) {
+                bestResult = result;
+            }
+
+            if (result.bestFitness() > plateauBestFitness + budget.plateauEpsilon()) {
+                plateauBestFitness = result.bestFitness();
+                generationsWithoutImprovement = 0;
+            } else {
+                generationsWithoutImprovement++;
+            }
+        }
+
+        if (stopReason == null) {
+            stopReason = checkBudget();
+            if (stopReason != null) {
+                logger.info("Stopping evolution after generation {}: {}", result.generation(), stopReason);
+            }
+        }
+        return stopReason == null;
+    }
+
+    private String checkBudget() {
+        if (budget.timeBudget() != null && elapsed().compareTo(budget.timeBudget()) >= 0) {
+            return "time budget of " + budget.timeBudget().toSeconds() + "s exhausted";
+        }
+        if (budget.maxLlmCalls() > 0 && meter.getCallCount() >= budget.maxLlmCalls()) {
+            return "LLM call budget of " + budget.maxLlmCalls() + " exhausted";
+        }
+        if (budget.maxTokens() > 0 && meter.getTotalTokens() >= budget.maxTokens()) {
+            return "token budget of " + budget.maxTokens() + " exhausted";
+        }
+        if (budget.plateauGenerations() > 0 && generationsWithoutImprovement >= budget.plateauGenerations()) {
+            return "fitness plateaued for " + generationsWithoutImprovement + " generations";
+        }
+        return null;
+    }
+
+    /**
+     * Requests a graceful stop; the evolution ends after the current generation
+     */
+    public void requestStop(String reason) {
+        if (stopReason == null) {
+            stopReason = reason;
+            logger.info("Stop requested ({}), finishing the current generation", reason);
+        }
+    }
+
+    public boolean isStopped() {
+        return stopReason != null;
+    }
+
+    /**
+     * @return Why the evolution was stopped, empty if it ran to its generation limit
+     */
+    public Optional<String> stopReason() {
+        return Optional.ofNullable(stopReason);
+    }
+
+    /**
+     * @return The best evolution result seen so far, empty before the first generation finishes
+     */
+    public synchronized Optional<EvolutionResult<IntegerGene, Double>> bestResult() {
+        return Optional.ofNullable(bestResult);
+    }
+
+    public Duration elapsed() {
+        return Duration.ofNanos(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Compute budget for a single optimization run. Zero (or null for time) means unlimited.
+     */
+    public record EvolutionBudget(
+            Duration timeBudget,
+            long maxLlmCalls,
+            long maxTokens,
+            int plateauGenerations,
+            double plateauEpsilon
+    ) {
+        public static EvolutionBudget unlimited() {
+            return new EvolutionBudget(null, 0, 0, 0, 0.001);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.evopromptopt.core.evolution;
+
+import com.evopromptopt.core.genome.PromptGenome;
+import com.evopromptopt.core.genome.PromptGenotypeFactory;
+import io.jenetics.AltererResult;
+import io.jenetics.Alterer;
+import io.jenetics.Chromosome;
+import io.jenetics.Genotype;
+import io.jenetics.IntegerGene;
+import io.jenetics.Phenotype;
+import io.jenetics.engine.EvolutionInterceptor;
+import io.jenetics.engine.EvolutionStart;
+import io.jenetics.util.Factory;
+import io.jenetics.util.ISeq;
+import io.jenetics.util.MSeq;
+import io.jenetics.util.RandomRegistry;
+import io.jenetics.util.Seq;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.random.RandomGenerator;
+
+/**
+ * Runs after crossover and mutation and removes offspring that decode to a PromptGenome
+ * already present in the population. Each duplicate would otherwise cost a full task
+ * evaluation for no new information, so it is replaced with a mutated (or fresh)
+ * individual. If no novel replacement can be found, the known fitness of its twin is
+ * reused so the duplicate is not evaluated again, unless that fitness is only a lower bound.
+ *
+ * <p>Must also be registered as the engine's interceptor so it can see the genomes of the
+ * previous generation, which contains all survivors.
+ */
+public class DeduplicatingAlterer implements Alterer<IntegerGene, Double>, EvolutionInterceptor<IntegerGene, Double> {
+    private static final Logger logger = LoggerFactory.getLogger(DeduplicatingAlterer.class);
+    private static final int MAX_REPLACEMENT_ATTEMPTS = 10;
+
+    private final Factory<Genotype<IntegerGene>> genotypeFactory;
+    private final GeneFreezer freezer;
+    private final Predicate<PromptGenome> lowerBound;
+    private volatile Map<PromptGenome, Double> previousPopulation = Map.of();
+
+    private long totalReplaced;
+    private long totalFitnessReused;
+
+    /**
+     * @param genotypeFactory Source of fresh individuals
+     * @param freezer         Frozen genes are never mutated when searching for a replacement, may be null
+     * @param lowerBound      Genomes whose fitness is a lower bound of a pruned evaluation, never reused
+     */
+    public DeduplicatingAlterer(Factory<Genotype<IntegerGene>> genotypeFactory, GeneFreezer freezer,
+                                Predicate<PromptGenome> lowerBound) {
+        this.genotypeFactory = genotypeFactory;
+        this.freezer = freezer;
+        this.lowerBound = lowerBound;
+    }
+
+    public DeduplicatingAlterer(Factory<Genotype<IntegerGene>> genotypeFactory, GeneFreezer freezer) {
+        this(genotypeFactory, freezer, genome -> false);
+    }
+
+    public DeduplicatingAlterer(Factory<Genotype<IntegerGene>> genotypeFactory) {
+        this(genotypeFactory, null);
+    }
+
+    public DeduplicatingAlterer() {
+        this(PromptGenotypeFactory::create);
+    }
+
+    @Override
+    public EvolutionStart<IntegerGene, Double> before(EvolutionStart<IntegerGene, Double> start) {
+        Map<PromptGenome, Double> known = new HashMap<>();
+        for (Phenotype<IntegerGene, Double> phenotype : start.population()) {
+            PromptGenome genome = PromptGenotypeFactory.decode(phenotype.genotype());
+            known.put(genome, reusableFitness(genome, phenotype));
+        }
+        previousPopulation = known;
+        return start;
+    }
+
+    @Override
+    public AltererResult<IntegerGene, Double> alter(Seq<Phenotype<IntegerGene, Double>> population,
+                                                    long generation) {
+        Map<PromptGenome, Double> known = new HashMap<>(previousPopulation);
+        Set<PromptGenome> inOffspring = new HashSet<>();
+        MSeq<Phenotype<IntegerGene, Double>> result = MSeq.of(population);
+
+        // Evaluated offspring are unaltered copies of parents and cost nothing, so claim them first
+        List<Integer> unevaluated = new ArrayList<>();
+        for (int i = 0; i < result.size(); i++) {
+            Phenotype<IntegerGene, Double> phenotype = result.get(i);
+            if (phenotype.isEvaluated()) {
+                PromptGenome genome = PromptGenotypeFactory.decode(phenotype.genotype());
+                inOffspring.add(genome);
+                known.putIfAbsent(genome, reusableFitness(genome, phenotype));
+            } else {
+                unevaluated.add(i);
+            }
+        }
+
+        int replaced = 0;
+        int fitnessReused = 0;
+        RandomGenerator random = RandomRegistry.random();
+
+        for (int index : unevaluated) {
+            Phenotype<IntegerGene, Double> phenotype = result.get(index);
+            PromptGenome genome = PromptGenotypeFactory.decode(phenotype.genotype());
+
+            if (!known.containsKey(genome) && !inOffspring.contains(genome)) {
+                inOffspring.add(genome);
+                known.put(genome, null);
+                continue;
+            }
+
+            Genotype<IntegerGene> replacement = findNovelGenotype(phenotype.genotype(), known, random);
+            if (replacement != null) {
+                PromptGenome replacementGenome = PromptGenotypeFactory.decode(replacement);
+                inOffspring.add(replacementGenome);
+                known.put(replacementGenome, null);
+                result.set(index, Phenotype.of(replacement, generation));
+                replaced++;
+            } else if (known.get(genome) != null) {
+                result.set(index, phenotype.withFitness(known.get(genome)));
+                fitnessReused++;
+            }
+        }
+
+        synchronized (this) {
+            totalReplaced += replaced;
+            totalFitnessReused += fitnessReused;
+        }
+
+        if (replaced + fitnessReused > 0) {
+            logger.info("Generation {}: {} duplicate offspring replaced, {} fitness values reused ({} evaluations saved)",
+                       generation, replaced, fitnessReused, replaced + fitnessReused);
+        }
+
+        return new AltererResult<>(result.toISeq(), replaced);
+    }
+
+    /**
+     * @return The phenotype's fitness if a twin may take it over, otherwise null
+     */
+    private Double reusableFitness(PromptGenome genome, Phenotype<IntegerGene, Double> phenotype) {
+        return phenotype.isEvaluated() && !lowerBound.test(genome) ? phenotype.fitness() : null;
+    }
+
+    private Genotype<IntegerGene> findNovelGenotype(Genotype<IntegerGene> genotype,
+                                                    Map<PromptGenome, Double> known,
+                                                    RandomGenerator random) {
+        // Prefer a single-gene mutation of the duplicate to stay near the selected region
+        for (int attempt = 0; attempt < MAX_REPLACEMENT_ATTEMPTS; attempt++) {
+            Genotype<IntegerGene> candidate = mutateOneGene(genotype, random);
+            if (!known.containsKey(PromptGenotypeFactory.decode(candidate))) {
+                return candidate;
+            }
+        }
+
+        for (int attempt = 0; attempt < MAX_REPLACEMENT_ATTEMPTS; attempt++) {
+            Genotype<IntegerGene> candidate = genotypeFactory.newInstance();
+            if (!known.containsKey(PromptGenotypeFactory.decode(candidate))) {
+                return candidate;
+            }
+        }
+
+        return null;
+    }
+
+    private Genotype<IntegerGene> mutateOneGene(Genotype<IntegerGene> genotype, RandomGenerator random) {
+        int index = random.nextInt(genotype.length());
+        for (int attempt = 0; freezer != null && freezer.isFrozen(index) && attempt < genotype.length(); attempt++) {
+            index = (index + 1) % genotype.length();
+        }
+        List<Chromosome<IntegerGene>> chromosomes = new ArrayList<>(genotype.length());
+        for (int i = 0; i < genotype.length(); i++) {
+            Chromosome<IntegerGene> chromosome = genotype.get(i);
+            chromosomes.add(i == index ?
+                    chromosome.newInstance(ISeq.of(chromosome.gene().newInstance())) : chromosome);
+        }
+        return Genotype.of(chromosomes);
+    }
+
+    /**
+     * @return Evaluations avoided so far, either by replacing duplicates or reusing known fitness
+     */
+    public synchronized long getTotalEvaluationsSaved() {
+        return totalReplaced + totalFitnessReused;
+    }
+}
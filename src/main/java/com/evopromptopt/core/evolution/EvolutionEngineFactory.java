@@ -1,11 +1,18 @@
 package com.evopromptopt.core.evolution;
 
+import com.evopromptopt.core.execution.SpeculativeExecution;
+import com.evopromptopt.core.fitness.FitnessEstimates;
 import com.evopromptopt.core.fitness.PromptFitness;
 import com.evopromptopt.core.genome.PromptGenotypeFactory;
 import com.evopromptopt.core.tasks.TaskDefinition;
 import com.evopromptopt.core.tasks.TaskRunner;
+import com.evopromptopt.core.tasks.TestCaseSampler;
 import io.jenetics.*;
 import io.jenetics.engine.*;
+import io.jenetics.util.Factory;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 public final class EvolutionEngineFactory {
 
@@ -46,24 +53,161 @@ public final class EvolutionEngineFactory {
      */
     public static Engine<IntegerGene, Double> createAdvanced(TaskRunner taskRunner, TaskDefinition taskDefinition,
                                                            EvolutionConfig config) {
+        return createAdvanced(taskRunner, taskDefinition, config, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates an evolution engine with advanced configuration that evaluates genomes on the given executor
+     */
+    public static Engine<IntegerGene, Double> createAdvanced(TaskRunner taskRunner, TaskDefinition taskDefinition,
+                                                           EvolutionConfig config, Executor executor) {
+        return createAdvanced(taskRunner, taskDefinition, config, executor, null);
+    }
+
+    /**
+     * Creates an evolution engine that also evaluates likely offspring speculatively. The task runner
+     * must execute through {@link SpeculativeExecution#foreground()} so both share the response cache.
+     *
+     * @param speculation Backend access for speculative work, null disables speculation
+     */
+    public static Engine<IntegerGene, Double> createAdvanced(TaskRunner taskRunner, TaskDefinition taskDefinition,
+                                                           EvolutionConfig config, Executor executor,
+                                                           SpeculativeExecution speculation) {
+        return createAdvanced(taskRunner, taskDefinition, config, executor, speculation, null);
+    }
+
+    /**
+     * Creates an evolution engine that records its genomes in an archive of previous runs and reuses
+     * archived fitness where it is still valid. Seeding the first population from the archive is up
+     * to the caller, see {@link GenomeArchive#seedPopulation}.
+     *
+     * @param archive Archive of the task and model, null disables archiving
+     */
+    public static Engine<IntegerGene, Double> createAdvanced(TaskRunner taskRunner, TaskDefinition taskDefinition,
+                                                           EvolutionConfig config, Executor executor,
+                                                           SpeculativeExecution speculation, GenomeArchive archive) {
+        MiniBatchConfig miniBatch = config.miniBatch();
+        TestCaseSampler sampler = miniBatch.enabled() ?
+                new TestCaseSampler(taskDefinition, miniBatch.batchSize(), miniBatch.strategy(),
+                                    miniBatch.stratifyKey(), System.nanoTime(),
+                                    taskRunner.getTestCaseStatistics()) : null;
+
+        NoiseConfig noise = config.noise();
         PromptFitness fitnessFunction = new PromptFitness(
                 taskRunner, taskDefinition,
-                config.executionTimeWeight(), config.successRateWeight(), config.scoreWeight()
+                config.executionTimeWeight(), config.successRateWeight(), config.scoreWeight(),
+                sampler, noise.enabled() ? new FitnessEstimates() : null
         );
 
-        return Engine.builder(
+        EvolutionInterceptor<IntegerGene, Double> interceptor = sampler != null ?
+                new MiniBatchInterceptor(fitnessFunction, miniBatch.fullRescoreInterval(), miniBatch.rescoreEliteCount()) :
+                EvolutionInterceptor.identity();
+
+        GeneFreezingConfig geneFreezing = config.geneFreezing();
+        GeneFreezer freezer = geneFreezing.enabled() ? new GeneFreezer() : null;
+
+        RangeNarrowingConfig rangeNarrowing = config.rangeNarrowing();
+        GeneRangeNarrower narrower = rangeNarrowing.enabled() ?
+                new GeneRangeNarrower(taskRunner.getTokenUsageStatistics(), rangeNarrowing.interval(),
+                                      rangeNarrowing.minSamples(), rangeNarrowing.goodShare(),
+                                      rangeNarrowing.safetyMargin(), rangeNarrowing.explorationRate()) : null;
+        if (narrower != null) {
+            interceptor = interceptor.compose(narrower);
+        }
+
+        // Every new individual, from the engine or from a replacement, respects narrowed ranges and frozen genes
+        Factory<Genotype<IntegerGene>> genotypeFactory = PromptGenotypeFactory::create;
+        if (narrower != null) {
+            genotypeFactory = narrower.factory(genotypeFactory);
+        }
+        if (freezer != null) {
+            genotypeFactory = freezer.factory(genotypeFactory);
+        }
+
+        HybridTuningConfig hybridTuning = config.hybridTuning();
+        Mutator<IntegerGene, Double> mutator;
+        if (hybridTuning.enabled()) {
+            // The sampling genes belong to the inner optimizer, the GA only mutates the categorical ones
+            mutator = new FreezeAwareMutator(config.mutationRate(), index ->
+                    PromptGenotypeFactory.isSamplingGene(index) || (freezer != null && freezer.isFrozen(index)),
+                    narrower);
+        } else if (freezer != null || narrower != null) {
+            mutator = new FreezeAwareMutator(config.mutationRate(),
+                    index -> freezer != null && freezer.isFrozen(index), narrower);
+        } else {
+            mutator = new Mutator<>(config.mutationRate());
+        }
+        Alterer<IntegerGene, Double> alterer = mutator.andThen(new SinglePointCrossover<>(config.crossoverRate()));
+
+        if (freezer != null) {
+            // Crossover can reintroduce values of frozen genes from older parents
+            alterer = alterer.andThen(freezer);
+            interceptor = interceptor.compose(new GeneSensitivityAnalyzer(
+                    freezer, geneFreezing.analysisInterval(), geneFreezing.minSamples(),
+                    geneFreezing.inertThreshold(), geneFreezing.convergenceShare()));
+        }
+
+        if (hybridTuning.enabled()) {
+            interceptor = interceptor.compose(new SamplingParameterTuner(
+                    fitnessFunction, executor, hybridTuning.configsPerGeneration(),
+                    hybridTuning.trialsPerConfig(), hybridTuning.startupTrials(), freezer, narrower));
+        }
+
+        if (noise.enabled()) {
+            int topCount = (int) Math.max(1, Math.round(config.eliteRatio() * config.populationSize()));
+            interceptor = interceptor.compose(new NoiseAwareReevaluator(
+                    fitnessFunction, executor, topCount, noise.contenders(),
+                    noise.samplesPerGeneration(), noise.maxSamplesPerGenome()));
+        }
+
+        if (config.deduplicate()) {
+            // Runs after the other alterers so it sees the final offspring before they are evaluated
+            var deduplicator = new DeduplicatingAlterer(genotypeFactory, freezer, fitnessFunction::isLowerBound);
+            alterer = alterer.andThen(deduplicator);
+            interceptor = interceptor.compose(deduplicator);
+        }
+
+        SpeculationConfig speculationConfig = config.speculation();
+        if (speculation != null && speculationConfig.enabled()) {
+            var speculativeFitness = new PromptFitness(
+                    new TaskRunner(speculation.speculative(), false), taskDefinition,
+                    config.executionTimeWeight(), config.successRateWeight(), config.scoreWeight(),
+                    sampler
+            );
+            int eliteCount = (int) Math.max(2, Math.round(config.eliteRatio() * config.populationSize()));
+            var speculator = new SpeculativeEvaluator(speculation, speculativeFitness, sampler == null,
+                                                      speculationConfig.candidatesPerGeneration(), eliteCount);
+            alterer = alterer.andThen(speculator);
+            interceptor = interceptor.compose(speculator);
+        }
+
+        if (archive != null) {
+            // Composed last so it records the fitness after re-evaluation
+            archive.excludeLowerBounds(fitnessFunction::isLowerBound);
+            alterer = alterer.andThen(archive);
+            interceptor = interceptor.compose(archive);
+        }
+
+        BatchEvaluationConfig batchEvaluation = config.batchEvaluation();
+        Engine.Builder<IntegerGene, Double> builder = batchEvaluation.enabled() ?
+                new Engine.Builder<>(
+                        new PopulationEvaluator(fitnessFunction, executor, batchEvaluation.parallelism()),
+                        genotypeFactory
+                ) :
+                Engine.builder(
                         fitnessFunction::evaluate,
-                        PromptGenotypeFactory::create
-                )
+                        genotypeFactory
+                );
+
+        return builder
                 .populationSize(config.populationSize())
                 .optimize(Optimize.MAXIMUM)
-                .alterers(
-                        new Mutator<>(config.mutationRate()),
-                        new SinglePointCrossover<>(config.crossoverRate())
-                )
+                .alterers(alterer)
                 .selector(new TournamentSelector<>(config.tournamentSize()))
                 .survivorsSelector(config.eliteRatio() > 0 ?
                     new EliteSelector<>() : new TournamentSelector<>())
+                .interceptor(interceptor)
+                .executor(executor)
                 .build();
     }
 
@@ -78,7 +222,15 @@ public final class EvolutionEngineFactory {
             double eliteRatio,
             double executionTimeWeight,
             double successRateWeight,
-            double scoreWeight
+            double scoreWeight,
+            MiniBatchConfig miniBatch,
+            boolean deduplicate,
+            GeneFreezingConfig geneFreezing,
+            HybridTuningConfig hybridTuning,
+            RangeNarrowingConfig rangeNarrowing,
+            NoiseConfig noise,
+            BatchEvaluationConfig batchEvaluation,
+            SpeculationConfig speculation
     ) {
         public static EvolutionConfig defaultConfig() {
             return new EvolutionConfig(
@@ -89,8 +241,175 @@ public final class EvolutionEngineFactory {
                     0.1,   // eliteRatio
                     0.1,   // executionTimeWeight
                     0.3,   // successRateWeight
-                    0.6    // scoreWeight
+                    0.6,   // scoreWeight
+                    MiniBatchConfig.disabled(),
+                    true,  // deduplicate
+                    GeneFreezingConfig.disabled(),
+                    HybridTuningConfig.disabled(),
+                    RangeNarrowingConfig.disabled(),
+                    NoiseConfig.disabled(),
+                    BatchEvaluationConfig.disabled(),
+                    SpeculationConfig.disabled()
             );
         }
+
+        public EvolutionConfig withPopulationSize(int populationSize) {
+            return new EvolutionConfig(populationSize, mutationRate, crossoverRate, tournamentSize, eliteRatio,
+                    executionTimeWeight, successRateWeight, scoreWeight, miniBatch, deduplicate, geneFreezing,
+                    hybridTuning, rangeNarrowing, noise, batchEvaluation, speculation);
+        }
+
+        public EvolutionConfig withMiniBatch(MiniBatchConfig miniBatch) {
+            return new EvolutionConfig(populationSize, mutationRate, crossoverRate, tournamentSize, eliteRatio,
+                    executionTimeWeight, successRateWeight, scoreWeight, miniBatch, deduplicate, geneFreezing,
+                    hybridTuning, rangeNarrowing, noise, batchEvaluation, speculation);
+        }
+
+        public EvolutionConfig withDeduplicate(boolean deduplicate) {
+            return new EvolutionConfig(populationSize, mutationRate, crossoverRate, tournamentSize, eliteRatio,
+                    executionTimeWeight, successRateWeight, scoreWeight, miniBatch, deduplicate, geneFreezing,
+                    hybridTuning, rangeNarrowing, noise, batchEvaluation, speculation);
+        }
+
+        public EvolutionConfig withGeneFreezing(GeneFreezingConfig geneFreezing) {
+            return new EvolutionConfig(populationSize, mutationRate, crossoverRate, tournamentSize, eliteRatio,
+                    executionTimeWeight, successRateWeight, scoreWeight, miniBatch, deduplicate, geneFreezing,
+                    hybridTuning, rangeNarrowing, noise, batchEvaluation, speculation);
+        }
+
+        public EvolutionConfig withHybridTuning(HybridTuningConfig hybridTuning) {
+            return new EvolutionConfig(populationSize, mutationRate, crossoverRate, tournamentSize, eliteRatio,
+                    executionTimeWeight, successRateWeight, scoreWeight, miniBatch, deduplicate, geneFreezing,
+                    hybridTuning, rangeNarrowing, noise, batchEvaluation, speculation);
+        }
+
+        public EvolutionConfig withRangeNarrowing(RangeNarrowingConfig rangeNarrowing) {
+            return new EvolutionConfig(populationSize, mutationRate, crossoverRate, tournamentSize, eliteRatio,
+                    executionTimeWeight, successRateWeight, scoreWeight, miniBatch, deduplicate, geneFreezing,
+                    hybridTuning, rangeNarrowing, noise, batchEvaluation, speculation);
+        }
+
+        public EvolutionConfig withNoise(NoiseConfig noise) {
+            return new EvolutionConfig(populationSize, mutationRate, crossoverRate, tournamentSize, eliteRatio,
+                    executionTimeWeight, successRateWeight, scoreWeight, miniBatch, deduplicate, geneFreezing,
+                    hybridTuning, rangeNarrowing, noise, batchEvaluation, speculation);
+        }
+
+        public EvolutionConfig withBatchEvaluation(BatchEvaluationConfig batchEvaluation) {
+            return new EvolutionConfig(populationSize, mutationRate, crossoverRate, tournamentSize, eliteRatio,
+                    executionTimeWeight, successRateWeight, scoreWeight, miniBatch, deduplicate, geneFreezing,
+                    hybridTuning, rangeNarrowing, noise, batchEvaluation, speculation);
+        }
+
+        public EvolutionConfig withSpeculation(SpeculationConfig speculation) {
+            return new EvolutionConfig(populationSize, mutationRate, crossoverRate, tournamentSize, eliteRatio,
+                    executionTimeWeight, successRateWeight, scoreWeight, miniBatch, deduplicate, geneFreezing,
+                    hybridTuning, rangeNarrowing, noise, batchEvaluation, speculation);
+        }
+    }
+
+    /**
+     * Configuration record for gene sensitivity analysis and automatic gene freezing
+     */
+    public record GeneFreezingConfig(
+            boolean enabled,
+            int analysisInterval,
+            int minSamples,
+            double inertThreshold,
+            double convergenceShare
+    ) {
+        public static GeneFreezingConfig disabled() {
+            return new GeneFreezingConfig(false, 5, 60, 0.01, 0.9);
+        }
+    }
+
+    /**
+     * Configuration record for the hybrid search, where a TPE optimizer tunes the sampling parameters
+     */
+    public record HybridTuningConfig(
+            boolean enabled,
+            int configsPerGeneration,
+            int trialsPerConfig,
+            int startupTrials
+    ) {
+        public static HybridTuningConfig disabled() {
+            return new HybridTuningConfig(false, 3, 4, 8);
+        }
+    }
+
+    /**
+     * Configuration record for adaptive narrowing of the wide integer gene ranges
+     */
+    public record RangeNarrowingConfig(
+            boolean enabled,
+            int interval,
+            int minSamples,
+            double goodShare,
+            double safetyMargin,
+            double explorationRate
+    ) {
+        public static RangeNarrowingConfig disabled() {
+            return new RangeNarrowingConfig(false, 5, 60, 0.25, 0.25, 0.1);
+        }
+    }
+
+    /**
+     * Configuration record for noise-aware re-evaluation of the genomes near the top of the ranking
+     */
+    public record NoiseConfig(
+            boolean enabled,
+            int samplesPerGeneration,
+            int contenders,
+            int maxSamplesPerGenome
+    ) {
+        public static NoiseConfig disabled() {
+            return new NoiseConfig(false, 6, 4, 5);
+        }
+    }
+
+    /**
+     * Configuration record for planning the calls of a whole generation as one batch
+     */
+    public record BatchEvaluationConfig(
+            boolean enabled,
+            int parallelism
+    ) {
+        public static BatchEvaluationConfig disabled() {
+            return new BatchEvaluationConfig(false, 4);
+        }
+    }
+
+    /**
+     * Configuration record for speculative evaluation of likely offspring while the backend is idle
+     */
+    public record SpeculationConfig(
+            boolean enabled,
+            int candidatesPerGeneration,
+            int backendSlots,
+            long idleGraceMs,
+            int cacheSize
+    ) {
+        public static SpeculationConfig disabled() {
+            return new SpeculationConfig(false, 8, 1, 50, 10_000);
+        }
+    }
+
+    /**
+     * Configuration record for mini-batch fitness evaluation over large test suites
+     */
+    public record MiniBatchConfig(
+            int batchSize,
+            TestCaseSampler.Strategy strategy,
+            String stratifyKey,
+            int fullRescoreInterval,
+            int rescoreEliteCount
+    ) {
+        public static MiniBatchConfig disabled() {
+            return new MiniBatchConfig(0, TestCaseSampler.Strategy.RANDOM, null, 0, 0);
+        }
+
+        public boolean enabled() {
+            return batchSize > 0;
+        }
     }
 }
@@ -0,0 +1,91 @@
+package com.evopromptopt.core.evolution;
+
+import io.jenetics.Chromosome;
+import io.jenetics.Genotype;
+import io.jenetics.IntegerGene;
+import io.jenetics.Mutator;
+import io.jenetics.MutatorResult;
+import io.jenetics.util.ISeq;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntPredicate;
+import java.util.random.RandomGenerator;
+
+/**
+ * Mutator that skips excluded genes (frozen, or tuned by another optimizer) and redistributes
+ * their share of the mutation rate to the active genes, so the expected number of mutations per
+ * genotype stays the same while the effective search space shrinks. New gene values are drawn
+ * from the narrowed ranges when a {@link GeneRangeNarrower} is given.
+ */
+public class FreezeAwareMutator extends Mutator<IntegerGene, Double> {
+    private final IntPredicate excluded;
+    private final GeneRangeNarrower ranges;
+
+    /**
+     * @param excluded Chromosome indexes that must not be mutated; evaluated on every genotype
+     * @param ranges   Source of the value ranges new gene values are drawn from, may be null
+     */
+    public FreezeAwareMutator(double probability, IntPredicate excluded, GeneRangeNarrower ranges) {
+        super(probability);
+        this.excluded = excluded;
+        this.ranges = ranges;
+    }
+
+    public FreezeAwareMutator(double probability, IntPredicate excluded) {
+        this(probability, excluded, null);
+    }
+
+    public FreezeAwareMutator(double probability, GeneFreezer freezer) {
+        this(probability, freezer::isFrozen);
+    }
+
+    @Override
+    protected MutatorResult<Genotype<IntegerGene>> mutate(Genotype<IntegerGene> genotype, double p,
+                                                          RandomGenerator random) {
+        int active = 0;
+        for (int i = 0; i < genotype.length(); i++) {
+            if (!excluded.test(i)) {
+                active++;
+            }
+        }
+        if (active == 0) {
+            return new MutatorResult<>(genotype, 0);
+        }
+
+        double chromosomeProbability = Math.min(1.0, p * genotype.length() / active);
+        List<Chromosome<IntegerGene>> chromosomes = new ArrayList<>(genotype.length());
+        int mutations = 0;
+
+        for (int i = 0; i < genotype.length(); i++) {
+            Chromosome<IntegerGene> chromosome = genotype.get(i);
+            if (!excluded.test(i) && random.nextDouble() < chromosomeProbability) {
+                MutatorResult<Chromosome<IntegerGene>> result = mutate(i, chromosome, p, random);
+                chromosomes.add(result.result());
+                mutations += result.mutations();
+            } else {
+                chromosomes.add(chromosome);
+            }
+        }
+
+        return new MutatorResult<>(mutations > 0 ? Genotype.of(chromosomes) : genotype, mutations);
+    }
+
+    private MutatorResult<Chromosome<IntegerGene>> mutate(int index, Chromosome<IntegerGene> chromosome,
+                                                          double p, RandomGenerator random) {
+        if (ranges == null) {
+            return mutate(chromosome, p, random);
+        }
+        List<IntegerGene> genes = new ArrayList<>(chromosome.length());
+        int mutations = 0;
+        for (IntegerGene gene : chromosome) {
+            if (random.nextDouble() < p) {
+                genes.add(ranges.sample(index, gene, random));
+                mutations++;
+            } else {
+                genes.add(gene);
+            }
+        }
+        return new MutatorResult<>(mutations > 0 ? chromosome.newInstance(ISeq.of(genes)) : chromosome, mutations);
+    }
+}
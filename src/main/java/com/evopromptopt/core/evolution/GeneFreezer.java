@@ -0,0 +1,106 @@
+package com.evopromptopt.core.evolution;
+
+import com.evopromptopt.core.genome.PromptGenotypeFactory;
+import io.jenetics.AltererResult;
+import io.jenetics.Alterer;
+import io.jenetics.Chromosome;
+import io.jenetics.Genotype;
+import io.jenetics.IntegerGene;
+import io.jenetics.Phenotype;
+import io.jenetics.util.Factory;
+import io.jenetics.util.ISeq;
+import io.jenetics.util.MSeq;
+import io.jenetics.util.Seq;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Holds the genes that have been frozen to a fixed value. As an alterer it pins the frozen genes
+ * of every offspring, since crossover can still carry over values from parents created before
+ * the gene was frozen.
+ */
+public class GeneFreezer implements Alterer<IntegerGene, Double> {
+    private static final Logger logger = LoggerFactory.getLogger(GeneFreezer.class);
+
+    private final AtomicReferenceArray<Integer> frozenValues;
+
+    public GeneFreezer(int geneCount) {
+        this.frozenValues = new AtomicReferenceArray<>(geneCount);
+    }
+
+    public GeneFreezer() {
+        this(PromptGenotypeFactory.GENE_COUNT);
+    }
+
+    /**
+     * Freezes the gene at the given chromosome index to a value; already frozen genes are left as they are
+     */
+    public void freeze(int index, int value, String reason) {
+        if (frozenValues.compareAndSet(index, null, value)) {
+            logger.info("Froze gene '{}' at {} ({})", PromptGenotypeFactory.geneName(index), value, reason);
+        }
+    }
+
+    public boolean isFrozen(int index) {
+        return frozenValues.get(index) != null;
+    }
+
+    public int activeGeneCount() {
+        int active = 0;
+        for (int i = 0; i < frozenValues.length(); i++) {
+            if (frozenValues.get(i) == null) {
+                active++;
+            }
+        }
+        return active;
+    }
+
+    public int geneCount() {
+        return frozenValues.length();
+    }
+
+    /**
+     * @return The genotype with all frozen genes set to their frozen values
+     */
+    public Genotype<IntegerGene> pin(Genotype<IntegerGene> genotype) {
+        List<Chromosome<IntegerGene>> chromosomes = null;
+        for (int i = 0; i < genotype.length(); i++) {
+            Integer frozen = frozenValues.get(i);
+            Chromosome<IntegerGene> chromosome = genotype.get(i);
+            if (frozen != null && chromosome.gene().intValue() != frozen) {
+                if (chromosomes == null) {
+                    chromosomes = new ArrayList<>();
+                    genotype.forEach(chromosomes::add);
+                }
+                chromosomes.set(i, chromosome.newInstance(ISeq.of(chromosome.gene().newInstance(frozen))));
+            }
+        }
+        return chromosomes == null ? genotype : Genotype.of(chromosomes);
+    }
+
+    /**
+     * @return A genotype factory whose new instances respect the frozen genes
+     */
+    public Factory<Genotype<IntegerGene>> factory(Factory<Genotype<IntegerGene>> base) {
+        return () -> pin(base.newInstance());
+    }
+
+    @Override
+    public AltererResult<IntegerGene, Double> alter(Seq<Phenotype<IntegerGene, Double>> population, long generation) {
+        MSeq<Phenotype<IntegerGene, Double>> result = MSeq.of(population);
+        int pinned = 0;
+        for (int i = 0; i < result.size(); i++) {
+            Genotype<IntegerGene> genotype = result.get(i).genotype();
+            Genotype<IntegerGene> pinnedGenotype = pin(genotype);
+            if (pinnedGenotype != genotype) {
+                result.set(i, Phenotype.of(pinnedGenotype, generation));
+                pinned++;
+            }
+        }
+        return new AltererResult<>(result.toISeq(), pinned);
+    }
+}
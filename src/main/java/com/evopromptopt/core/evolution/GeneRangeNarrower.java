@@ -0,0 +1,212 @@
+package com.evopromptopt.core.evolution;
+
+import com.evopromptopt.core.genome.PromptGenotypeFactory;
+import com.evopromptopt.core.tasks.TokenUsageStatistics;
+import io.jenetics.Chromosome;
+import io.jenetics.Genotype;
+import io.jenetics.IntegerGene;
+import io.jenetics.Phenotype;
+import io.jenetics.engine.EvolutionInterceptor;
+import io.jenetics.engine.EvolutionResult;
+import io.jenetics.util.Factory;
+import io.jenetics.util.ISeq;
+import io.jenetics.util.RandomRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.random.RandomGenerator;
+
+/**
+ * Narrows the value ranges that mutation and new individuals draw from for the wide integer genes.
+ * Ranges follow the distribution of each gene among the best genomes evaluated so far, padded by a
+ * safety margin. The max-tokens range is additionally capped just above the output lengths the
+ * model actually produces, since any larger limit yields the same responses. A range edge that the
+ * best genome runs into, or a rising truncation rate, re-expands the range to its original bound,
+ * and a share of draws always uses the full range so the search can escape a wrong narrowing.
+ */
+public class GeneRangeNarrower implements EvolutionInterceptor<IntegerGene, Double> {
+    private static final Logger logger = LoggerFactory.getLogger(GeneRangeNarrower.class);
+    // Genes with at most this many values are categorical and never narrowed
+    private static final int MAX_CATEGORICAL_SPAN = 8;
+    private static final int MAX_SAMPLES = 5000;
+    private static final int MIN_TOKEN_CALLS = 50;
+    private static final double TOKEN_QUANTILE = 0.99;
+    private static final double MAX_TRUNCATION_RATE = 0.02;
+    // A narrowed range never gets narrower than this share of the full range
+    private static final double MIN_WIDTH_SHARE = 0.05;
+
+    private final TokenUsageStatistics tokenUsage;
+    private final int interval;
+    private final int minSamples;
+    private final double goodShare;
+    private final double safetyMargin;
+    private final double explorationRate;
+
+    private final Map<Genotype<IntegerGene>, Double> samples = new LinkedHashMap<>();
+    // Current {min, max} per chromosome index, null until the first narrowing
+    private volatile int[][] ranges;
+
+    /**
+     * @param tokenUsage      Output-token statistics of the task runner, may be null
+     * @param interval        Recompute the ranges every this many generations
+     * @param minSamples      Evaluated genomes required before any range is narrowed
+     * @param goodShare       Share of the best genomes whose gene values define the ranges
+     * @param safetyMargin    Padding added on both sides, relative to the width of the good values
+     * @param explorationRate Probability that a draw ignores the narrowed range
+     */
+    public GeneRangeNarrower(TokenUsageStatistics tokenUsage, int interval, int minSamples,
+                             double goodShare, double safetyMargin, double explorationRate) {
+        this.tokenUsage = tokenUsage;
+        this.interval = Math.max(1, interval);
+        this.minSamples = minSamples;
+        this.goodShare = goodShare;
+        this.safetyMargin = safetyMargin;
+        this.explorationRate = explorationRate;
+    }
+
+    @Override
+    public EvolutionResult<IntegerGene, Double> after(EvolutionResult<IntegerGene, Double> result) {
+        synchronized (samples) {
+            for (Phenotype<IntegerGene, Double> phenotype : result.population()) {
+                if (phenotype.isEvaluated()) {
+                    samples.remove(phenotype.genotype());
+                    samples.put(phenotype.genotype(), phenotype.fitness());
+                }
+            }
+            var iterator = samples.keySet().iterator();
+            while (samples.size() > MAX_SAMPLES && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+
+        if (result.generation() % interval == 0) {
+            narrow(result.bestPhenotype().genotype());
+        }
+        return result;
+    }
+
+    private void narrow(Genotype<IntegerGene> best) {
+        List<Map.Entry<Genotype<IntegerGene>, Double>> snapshot;
+        synchronized (samples) {
+            snapshot = new ArrayList<>(samples.entrySet());
+        }
+        if (snapshot.size() < minSamples) {
+            return;
+        }
+        snapshot.sort(Map.Entry.<Genotype<IntegerGene>, Double>comparingByValue(Comparator.reverseOrder()));
+        List<Map.Entry<Genotype<IntegerGene>, Double>> good =
+                snapshot.subList(0, Math.max(2, (int) Math.ceil(goodShare * snapshot.size())));
+
+        int[][] previous = ranges;
+        int[][] updated = new int[best.length()][];
+        StringBuilder summary = new StringBuilder();
+
+        for (int index = 0; index < best.length(); index++) {
+            IntegerGene gene = best.get(index).gene();
+            int fullSpan = gene.max() - gene.min();
+            if (fullSpan < MAX_CATEGORICAL_SPAN) {
+                continue;
+            }
+
+            int[] values = new int[good.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = good.get(i).getKey().get(index).gene().intValue();
+            }
+            Arrays.sort(values);
+            int low = values[(int) Math.floor(0.05 * (values.length - 1))];
+            int high = values[(int) Math.ceil(0.95 * (values.length - 1))];
+
+            int padding = (int) Math.ceil(Math.max((high - low) * safetyMargin, fullSpan * MIN_WIDTH_SHARE / 2));
+            int min = Math.max(gene.min(), low - padding);
+            int max = Math.min(gene.max(), high + padding);
+
+            boolean cappedByUsage = false;
+            if (index == PromptGenotypeFactory.MAX_TOKENS_INDEX && tokenUsage != null
+                    && tokenUsage.calls() >= MIN_TOKEN_CALLS) {
+                if (tokenUsage.truncationRate() > MAX_TRUNCATION_RATE) {
+                    max = gene.max(); // Responses are being cut off, longer limits matter
+                } else {
+                    int usageCap = (int) Math.ceil(tokenUsage.quantile(TOKEN_QUANTILE) * (1 + safetyMargin));
+                    if (min > usageCap) {
+                        // Good genomes all allow more tokens than the model uses, their limits are equivalent
+                        min = Math.max(gene.min(), usageCap - (int) (fullSpan * MIN_WIDTH_SHARE));
+                    }
+                    max = Math.max(min + (int) (fullSpan * MIN_WIDTH_SHARE), Math.min(max, usageCap));
+                    max = Math.min(gene.max(), max);
+                    cappedByUsage = true;
+                }
+            }
+
+            // The best genome at an edge of the previous range suggests the optimum lies beyond it;
+            // a best genome outside the range predates the narrowing and says nothing about the edge
+            if (previous != null && previous[index] != null) {
+                int bestValue = gene.intValue();
+                int tolerance = Math.max(1, fullSpan / 100);
+                int previousMin = previous[index][0];
+                int previousMax = previous[index][1];
+                boolean inside = bestValue >= previousMin && bestValue <= previousMax;
+                if (inside && bestValue - previousMin < tolerance && previousMin > gene.min()) {
+                    min = gene.min();
+                }
+                if (inside && previousMax - bestValue < tolerance && previousMax < gene.max() && !cappedByUsage) {
+                    max = gene.max();
+                }
+            }
+
+            updated[index] = new int[]{min, max};
+            summary.append(String.format("%n  %-14s [%d, %d] of [%d, %d]",
+                    PromptGenotypeFactory.geneName(index), min, max, gene.min(), gene.max()));
+        }
+
+        ranges = updated;
+        logger.info("Narrowed gene ranges from {} genomes:{}", snapshot.size(), summary);
+    }
+
+    /**
+     * @return A new value for the gene at the chromosome index, drawn from its current range
+     */
+    public IntegerGene sample(int index, IntegerGene gene, RandomGenerator random) {
+        int[][] current = ranges;
+        if (current == null || index >= current.length || current[index] == null
+                || random.nextDouble() < explorationRate) {
+            return gene.newInstance();
+        }
+        int min = current[index][0];
+        int max = current[index][1];
+        return gene.newInstance(min + random.nextInt(max - min + 1));
+    }
+
+    /**
+     * @return A genotype factory whose new instances draw the wide genes from the narrowed ranges
+     */
+    public Factory<Genotype<IntegerGene>> factory(Factory<Genotype<IntegerGene>> base) {
+        return () -> {
+            Genotype<IntegerGene> genotype = base.newInstance();
+            if (ranges == null) {
+                return genotype;
+            }
+            RandomGenerator random = RandomRegistry.random();
+            List<Chromosome<IntegerGene>> chromosomes = new ArrayList<>(genotype.length());
+            for (int i = 0; i < genotype.length(); i++) {
+                Chromosome<IntegerGene> chromosome = genotype.get(i);
+                chromosomes.add(chromosome.newInstance(ISeq.of(sample(i, chromosome.gene(), random))));
+            }
+            return Genotype.of(chromosomes);
+        };
+    }
+
+    /**
+     * @return The current {min, max} range of the gene, or null if it is not narrowed
+     */
+    public int[] range(int index) {
+        int[][] current = ranges;
+        return current == null || current[index] == null ? null : current[index].clone();
+    }
+}
@@ -0,0 +1,213 @@
+package com.evopromptopt.core.evolution;
+
+import com.evopromptopt.core.genome.PromptGenotypeFactory;
+import io.jenetics.Genotype;
+import io.jenetics.IntegerGene;
+import io.jenetics.Phenotype;
+import io.jenetics.engine.EvolutionInterceptor;
+import io.jenetics.engine.EvolutionResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Online sensitivity analysis of the genes over all evaluated genomes. For every gene the share of
+ * fitness variance explained by its value (the correlation ratio, a first-order variance
+ * decomposition) is computed and corrected for the share expected by chance. Genes that explain
+ * no variance are inert, genes whose values have collapsed onto one value in the population are
+ * converged; both are frozen so mutations and evaluations go to the genes that matter.
+ */
+public class GeneSensitivityAnalyzer implements EvolutionInterceptor<IntegerGene, Double> {
+    private static final Logger logger = LoggerFactory.getLogger(GeneSensitivityAnalyzer.class);
+    // Wide integer genes are grouped into this many equal-width bins
+    private static final int MAX_GROUPS = 8;
+    private static final int MAX_SAMPLES = 5000;
+
+    private final GeneFreezer freezer;
+    private final int analysisInterval;
+    private final int minSamples;
+    private final double inertThreshold;
+    private final double convergenceShare;
+
+    private final Map<Genotype<IntegerGene>, Double> samples = new LinkedHashMap<>();
+    // Modal value per gene at the previous analysis if it was above the convergence share, else null
+    private final Integer[] convergedAt;
+    private volatile List<GeneSensitivity> lastReport = List.of();
+
+    /**
+     * @param freezer          Receives the freeze decisions
+     * @param analysisInterval Run the analysis every this many generations
+     * @param minSamples       Distinct evaluated genomes required before any gene is frozen
+     * @param inertThreshold   Chance-corrected explained variance below which a gene is inert
+     * @param convergenceShare Population share of the modal value above which a gene is converged
+     */
+    public GeneSensitivityAnalyzer(GeneFreezer freezer, int analysisInterval, int minSamples,
+                                   double inertThreshold, double convergenceShare) {
+        this.freezer = freezer;
+        this.analysisInterval = Math.max(1, analysisInterval);
+        this.minSamples = minSamples;
+        this.inertThreshold = inertThreshold;
+        this.convergenceShare = convergenceShare;
+        this.convergedAt = new Integer[freezer.geneCount()];
+    }
+
+    @Override
+    public EvolutionResult<IntegerGene, Double> after(EvolutionResult<IntegerGene, Double> result) {
+        synchronized (samples) {
+            for (Phenotype<IntegerGene, Double> phenotype : result.population()) {
+                if (phenotype.isEvaluated()) {
+                    samples.remove(phenotype.genotype());
+                    samples.put(phenotype.genotype(), phenotype.fitness());
+                }
+            }
+            // Drop the oldest samples so the analysis follows the current search region
+            var iterator = samples.keySet().iterator();
+            while (samples.size() > MAX_SAMPLES && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+
+        if (result.generation() % analysisInterval == 0) {
+            analyze(result);
+        }
+        return result;
+    }
+
+    private void analyze(EvolutionResult<IntegerGene, Double> result) {
+        List<Map.Entry<Genotype<IntegerGene>, Double>> snapshot;
+        synchronized (samples) {
+            snapshot = new ArrayList<>(samples.entrySet());
+        }
+        if (snapshot.size() < 2) {
+            return;
+        }
+
+        Genotype<IntegerGene> best = result.bestPhenotype().genotype();
+        List<GeneSensitivity> report = new ArrayList<>();
+
+        for (int gene = 0; gene < freezer.geneCount(); gene++) {
+            double sensitivity = explainedVariance(snapshot, gene);
+            ModalValue modal = modalValue(result, gene);
+            boolean converged = modal.share() >= convergenceShare;
+            // A gene must stay converged on the same value over two analyses, small populations collapse briefly
+            boolean stablyConverged = converged && Integer.valueOf(modal.value()).equals(convergedAt[gene]);
+            convergedAt[gene] = converged ? modal.value() : null;
+
+            if (!freezer.isFrozen(gene) && snapshot.size() >= minSamples && freezer.activeGeneCount() > 1) {
+                if (stablyConverged) {
+                    freezer.freeze(gene, modal.value(),
+                            String.format("converged, %.0f%% of population", modal.share() * 100));
+                } else if (!Double.isNaN(sensitivity) && sensitivity < inertThreshold) {
+                    freezer.freeze(gene, best.get(gene).gene().intValue(),
+                            String.format("inert, explains %.3f of fitness variance", Math.max(0.0, sensitivity)));
+                }
+            }
+
+            report.add(new GeneSensitivity(gene, PromptGenotypeFactory.geneName(gene), sensitivity,
+                                           modal.share(), freezer.isFrozen(gene)));
+        }
+
+        report.sort(Comparator.comparingDouble(GeneSensitivity::sensitivity).reversed());
+        lastReport = List.copyOf(report);
+
+        if (logger.isInfoEnabled()) {
+            StringBuilder summary = new StringBuilder();
+            for (GeneSensitivity entry : report) {
+                summary.append(String.format("%n  %-16s sensitivity=%.3f modal=%.2f%s",
+                        entry.geneName(), entry.sensitivity(), entry.modalShare(), entry.frozen() ? " [frozen]" : ""));
+            }
+            logger.info("Gene sensitivity after generation {} ({} genomes):{}",
+                       result.generation(), snapshot.size(), summary);
+        }
+    }
+
+    /**
+     * Correlation ratio of fitness grouped by gene value, minus its expectation for an unrelated gene.
+     * NaN if all sampled genomes have the same fitness.
+     */
+    private static double explainedVariance(List<Map.Entry<Genotype<IntegerGene>, Double>> samples, int gene) {
+        int n = samples.size();
+        double mean = 0.0;
+        for (var sample : samples) {
+            mean += sample.getValue();
+        }
+        mean /= n;
+
+        Map<Integer, double[]> groups = new HashMap<>(); // group -> {count, sum}
+        double totalSquares = 0.0;
+        for (var sample : samples) {
+            double fitness = sample.getValue();
+            totalSquares += (fitness - mean) * (fitness - mean);
+            double[] group = groups.computeIfAbsent(groupOf(sample.getKey().get(gene).gene()), k -> new double[2]);
+            group[0]++;
+            group[1] += fitness;
+        }
+        if (totalSquares <= 1e-12) {
+            return Double.NaN; // No fitness variance, nothing can be attributed to any gene
+        }
+
+        double betweenSquares = 0.0;
+        for (double[] group : groups.values()) {
+            double groupMean = group[1] / group[0];
+            betweenSquares += group[0] * (groupMean - mean) * (groupMean - mean);
+        }
+
+        double chanceLevel = (double) (groups.size() - 1) / (n - 1);
+        return betweenSquares / totalSquares - chanceLevel;
+    }
+
+    /**
+     * Most frequent exact value of the gene in the current population
+     */
+    private static ModalValue modalValue(EvolutionResult<IntegerGene, Double> result, int gene) {
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (Phenotype<IntegerGene, Double> phenotype : result.population()) {
+            counts.merge(phenotype.genotype().get(gene).gene().intValue(), 1, Integer::sum);
+        }
+
+        int modal = 0;
+        int modalCount = -1;
+        for (var entry : counts.entrySet()) {
+            if (entry.getValue() > modalCount) {
+                modal = entry.getKey();
+                modalCount = entry.getValue();
+            }
+        }
+        return new ModalValue(modal, (double) modalCount / result.population().size());
+    }
+
+    private static int groupOf(IntegerGene gene) {
+        int span = gene.max() - gene.min() + 1;
+        if (span <= MAX_GROUPS) {
+            return gene.intValue();
+        }
+        return (int) ((long) (gene.intValue() - gene.min()) * MAX_GROUPS / span);
+    }
+
+    /**
+     * @return The gene report of the most recent analysis, most sensitive gene first
+     */
+    public List<GeneSensitivity> getLastReport() {
+        return lastReport;
+    }
+
+    /**
+     * Sensitivity of fitness to a single gene
+     */
+    public record GeneSensitivity(
+            int geneIndex,
+            String geneName,
+            double sensitivity,
+            double modalShare,
+            boolean frozen
+    ) {}
+
+    private record ModalValue(int value, double share) {}
+}
@@ -0,0 +1,340 @@
+package com.evopromptopt.core.evolution;
+
+import com.evopromptopt.core.evaluation.EvaluationMetric;
+import com.evopromptopt.core.genome.PromptGenome;
+import com.evopromptopt.core.genome.PromptGenotypeFactory;
+import com.evopromptopt.core.tasks.TaskDefinition;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jenetics.Alterer;
+import io.jenetics.AltererResult;
+import io.jenetics.Chromosome;
+import io.jenetics.Genotype;
+import io.jenetics.IntegerChromosome;
+import io.jenetics.IntegerGene;
+import io.jenetics.Phenotype;
+import io.jenetics.engine.EvolutionInterceptor;
+import io.jenetics.engine.EvolutionResult;
+import io.jenetics.util.ISeq;
+import io.jenetics.util.MSeq;
+import io.jenetics.util.Seq;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Persistent archive of evaluated genomes, one JSON file per task and model. A new run is seeded
+ * with the best archived genomes of the same task, or with the elites of the most similar task
+ * (by word overlap of name and description) when the task has no archive yet; the rest of the
+ * population is random. Archived fitness is only reused when the task fingerprint (test cases,
+ * metrics and fitness settings) is unchanged: seeds then start evaluated, and offspring that
+ * match an archived genome skip evaluation.
+ */
+public class GenomeArchive implements Alterer<IntegerGene, Double>, EvolutionInterceptor<IntegerGene, Double> {
+    private static final Logger logger = LoggerFactory.getLogger(GenomeArchive.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int MIN_WORD_LENGTH = 3;
+
+    private final Path file;
+    private final String taskName;
+    private final String description;
+    private final String model;
+    private final String fingerprint;
+    private final int maxEntries;
+
+    // Archived fitness that is still valid for this task, by gene values
+    private final Map<List<Integer>, Double> knownFitness;
+    private final List<ArchivedGenome> seeds;
+    private final String seedSource;
+    private final Map<List<Integer>, Double> recorded = new ConcurrentHashMap<>();
+    private volatile Predicate<PromptGenome> lowerBound = genome -> false;
+    private long reused;
+
+    private GenomeArchive(Path file, TaskDefinition task, String model, String fingerprint, int maxEntries,
+                          Map<List<Integer>, Double> knownFitness, List<ArchivedGenome> seeds, String seedSource) {
+        this.file = file;
+        this.taskName = task.getName();
+        this.description = task.getDescription();
+        this.model = model;
+        this.fingerprint = fingerprint;
+        this.maxEntries = maxEntries;
+        this.knownFitness = knownFitness;
+        this.seeds = seeds;
+        this.seedSource = seedSource;
+    }
+
+    /**
+     * Opens the archive of a task and model, falling back to the most similar task of the same model
+     * for seeds
+     *
+     * @param directory           Directory holding the archive files, created on save
+     * @param fitnessSettings     Anything besides the task that changes fitness values, part of the fingerprint
+     * @param similarityThreshold Minimum word overlap (Jaccard) for another task's elites to be used
+     * @param reuseFitness        Whether archived fitness of an unchanged task may replace evaluations
+     * @param maxEntries          Best genomes kept per archive file
+     */
+    public static GenomeArchive open(Path directory, TaskDefinition task, String model, String fitnessSettings,
+                                     double similarityThreshold, boolean reuseFitness, int maxEntries) {
+        String fingerprint = fingerprint(task, fitnessSettings);
+        Path file = directory.resolve(slug(task.getName()) + "__" + slug(model) + ".json");
+
+        ArchiveFile own = read(file);
+        if (own != null && !own.genomes().isEmpty()) {
+            boolean unchanged = fingerprint.equals(own.fingerprint());
+            Map<List<Integer>, Double> known = new HashMap<>();
+            if (unchanged && reuseFitness) {
+                own.genomes().forEach(genome -> known.put(genome.genes(), genome.fitness()));
+            }
+            return new GenomeArchive(file, task, model, fingerprint, maxEntries, known, own.genomes(),
+                                     unchanged ? "this task" : "this task (changed since, fitness not reused)");
+        }
+
+        ArchiveFile similar = null;
+        double bestSimilarity = similarityThreshold;
+        Set<String> words = words(task.getName() + " " + task.getDescription());
+        try (Stream<Path> files = Files.isDirectory(directory) ? Files.list(directory) : Stream.empty()) {
+            for (Path candidate : files.filter(path -> path.toString().endsWith(".json")).toList()) {
+                ArchiveFile other = read(candidate);
+                if (other == null || other.genomes().isEmpty() || !model.equals(other.model())
+                        || task.getName().equals(other.task())) {
+                    continue;
+                }
+                double similarity = jaccard(words, words(other.task() + " " + other.description()));
+                if (similarity >= bestSimilarity) {
+                    bestSimilarity = similarity;
+                    similar = other;
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Could not list genome archive directory {}", directory, e);
+        }
+
+        if (similar != null) {
+            return new GenomeArchive(file, task, model, fingerprint, maxEntries, Map.of(), similar.genomes(),
+                                     String.format("similar task '%s' (similarity %.2f)", similar.task(), bestSimilarity));
+        }
+        return new GenomeArchive(file, task, model, fingerprint, maxEntries, Map.of(), List.of(), null);
+    }
+
+    /**
+     * @return The best archived genomes as the first generation of a population; archived fitness is
+     * kept where it is still valid, the engine fills the rest of the population with random genomes
+     */
+    public ISeq<Phenotype<IntegerGene, Double>> seedPopulation(int populationSize, double seedShare) {
+        int count = (int) Math.min(seeds.size(), Math.round(populationSize * seedShare));
+        List<Phenotype<IntegerGene, Double>> population = new ArrayList<>();
+        int evaluated = 0;
+        for (ArchivedGenome seed : seeds.stream()
+                .sorted(Comparator.comparingDouble(ArchivedGenome::fitness).reversed()).toList()) {
+            if (population.size() >= count) {
+                break;
+            }
+            Genotype<IntegerGene> genotype = toGenotype(seed.genes());
+            if (genotype == null) {
+                continue; // Gene ranges have changed since the genome was archived
+            }
+            Double fitness = knownFitness.get(seed.genes());
+            if (fitness != null) {
+                population.add(Phenotype.of(genotype, 1, fitness));
+                evaluated++;
+            } else {
+                population.add(Phenotype.of(genotype, 1));
+            }
+        }
+
+        if (!population.isEmpty()) {
+            logger.info("Warm start: {} of {} genomes seeded from {}, {} with known fitness",
+                       population.size(), populationSize, seedSource, evaluated);
+        }
+        return ISeq.of(population);
+    }
+
+    /**
+     * Sets the genomes whose fitness is a lower bound of a pruned evaluation; they are not recorded
+     */
+    void excludeLowerBounds(Predicate<PromptGenome> lowerBound) {
+        this.lowerBound = lowerBound;
+    }
+
+    @Override
+    public EvolutionResult<IntegerGene, Double> after(EvolutionResult<IntegerGene, Double> result) {
+        for (Phenotype<IntegerGene, Double> phenotype : result.population()) {
+            if (phenotype.isEvaluated() && !lowerBound.test(PromptGenotypeFactory.decode(phenotype.genotype()))) {
+                recorded.put(genes(phenotype.genotype()), phenotype.fitness());
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public AltererResult<IntegerGene, Double> alter(Seq<Phenotype<IntegerGene, Double>> population, long generation) {
+        if (knownFitness.isEmpty()) {
+            return new AltererResult<>(population.asISeq(), 0);
+        }
+
+        MSeq<Phenotype<IntegerGene, Double>> result = MSeq.of(population);
+        int served = 0;
+        for (int i = 0; i < result.size(); i++) {
+            Phenotype<IntegerGene, Double> phenotype = result.get(i);
+            if (phenotype.isEvaluated()) {
+                continue;
+            }
+            Double fitness = knownFitness.get(genes(phenotype.genotype()));
+            if (fitness != null) {
+                result.set(i, phenotype.withFitness(fitness));
+                served++;
+            }
+        }
+
+        if (served > 0) {
+            reused += served;
+            logger.debug("Generation {}: {} offspring took their fitness from the archive", generation, served);
+        }
+        return new AltererResult<>(result.toISeq(), 0);
+    }
+
+    /**
+     * Writes the best genomes of this run, together with the still valid archived ones, to the archive file
+     */
+    public void save() throws IOException {
+        Map<List<Integer>, Double> merged = new HashMap<>(knownFitness);
+        merged.putAll(recorded);
+
+        List<ArchivedGenome> genomes = merged.entrySet().stream()
+                .map(entry -> new ArchivedGenome(entry.getKey(), entry.getValue()))
+                .sorted(Comparator.comparingDouble(ArchivedGenome::fitness).reversed())
+                .limit(maxEntries)
+                .toList();
+
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        MAPPER.writeValue(temporary.toFile(), new ArchiveFile(taskName, description, model, fingerprint, genomes));
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * @return Offspring whose evaluation was replaced by archived fitness
+     */
+    public long getReusedEvaluations() {
+        return reused;
+    }
+
+    private static ArchiveFile read(Path path) {
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try {
+            return MAPPER.readValue(path.toFile(), ArchiveFile.class);
+        } catch (IOException e) {
+            logger.warn("Ignoring unreadable genome archive {}", path, e);
+            return null;
+        }
+    }
+
+    private static List<Integer> genes(Genotype<IntegerGene> genotype) {
+        List<Integer> genes = new ArrayList<>(genotype.length());
+        for (Chromosome<IntegerGene> chromosome : genotype) {
+            genes.add(chromosome.gene().intValue());
+        }
+        return List.copyOf(genes);
+    }
+
+    /**
+     * @return The genotype with the given gene values, null if they do not fit the current gene ranges
+     */
+    private static Genotype<IntegerGene> toGenotype(List<Integer> genes) {
+        Genotype<IntegerGene> template = PromptGenotypeFactory.create();
+        if (genes.size() != template.length()) {
+            return null;
+        }
+        List<IntegerChromosome> chromosomes = new ArrayList<>(genes.size());
+        for (int i = 0; i < genes.size(); i++) {
+            IntegerGene gene = template.get(i).gene().newInstance(genes.get(i));
+            if (!gene.isValid()) {
+                return null;
+            }
+            chromosomes.add(IntegerChromosome.of(gene));
+        }
+        return Genotype.of(chromosomes);
+    }
+
+    private static String fingerprint(TaskDefinition task, String fitnessSettings) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (TaskDefinition.TestCase testCase : task.getTestCases()) {
+                update(digest, testCase.getInput());
+                update(digest, testCase.getExpectedOutput());
+            }
+            for (EvaluationMetric metric : task.getEvaluationMetrics()) {
+                update(digest, metric.getSignature());
+            }
+            update(digest, String.valueOf(task.getConfiguration()));
+            update(digest, fitnessSettings);
+            return HexFormat.of().formatHex(digest.digest(), 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        byte[] bytes = (value != null ? value : "").getBytes(StandardCharsets.UTF_8);
+        digest.update(Integer.toString(bytes.length).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) ':');
+        digest.update(bytes);
+    }
+
+    private static String slug(String value) {
+        return value.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]+", "-").replaceAll("(^-|-$)", "");
+    }
+
+    private static Set<String> words(String text) {
+        Set<String> words = new HashSet<>();
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^a-z0-9]+")) {
+            if (word.length() >= MIN_WORD_LENGTH) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    private static double jaccard(Set<String> a, Set<String> b) {
+        if (a.isEmpty() || b.isEmpty()) {
+            return 0.0;
+        }
+        long shared = a.stream().filter(b::contains).count();
+        return (double) shared / (a.size() + b.size() - shared);
+    }
+
+    /**
+     * Contents of one archive file
+     */
+    public record ArchiveFile(String task, String description, String model, String fingerprint,
+                              List<ArchivedGenome> genomes) {}
+
+    /**
+     * Gene values of an evaluated genome, in chromosome order, and its last known fitness
+     */
+    public record ArchivedGenome(List<Integer> genes, double fitness) {}
+}
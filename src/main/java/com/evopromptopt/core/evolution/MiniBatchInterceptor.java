@@ -0,0 +1,80 @@
+package com.evopromptopt.core.evolution;
+
+import com.evopromptopt.core.execution.EvaluationScheduler;
+import com.evopromptopt.core.fitness.PromptFitness;
+import com.evopromptopt.core.tasks.TestCaseSampler;
+import io.jenetics.IntegerGene;
+import io.jenetics.Phenotype;
+import io.jenetics.engine.EvolutionInterceptor;
+import io.jenetics.engine.EvolutionStart;
+import io.jenetics.util.ISeq;
+import io.jenetics.util.MSeq;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+/**
+ * Draws the mini-batch for each generation before evaluation starts and periodically
+ * re-scores the current elites on the full test suite, so that a lucky mini-batch score
+ * cannot keep a genome at the top of the ranking indefinitely.
+ */
+public class MiniBatchInterceptor implements EvolutionInterceptor<IntegerGene, Double> {
+    private static final Logger logger = LoggerFactory.getLogger(MiniBatchInterceptor.class);
+
+    private final PromptFitness fitnessFunction;
+    private final TestCaseSampler sampler;
+    private final int fullRescoreInterval;
+    private final int eliteCount;
+
+    /**
+     * @param fitnessFunction     Fitness function backed by the sampler
+     * @param fullRescoreInterval Re-score elites every this many generations (0 disables re-scoring)
+     * @param eliteCount          Number of top phenotypes re-scored on the full suite
+     */
+    public MiniBatchInterceptor(PromptFitness fitnessFunction, int fullRescoreInterval, int eliteCount) {
+        if (fitnessFunction.getSampler() == null) {
+            throw new IllegalArgumentException("Fitness function has no mini-batch sampler");
+        }
+        this.fitnessFunction = fitnessFunction;
+        this.sampler = fitnessFunction.getSampler();
+        this.fullRescoreInterval = fullRescoreInterval;
+        this.eliteCount = eliteCount;
+    }
+
+    @Override
+    public EvolutionStart<IntegerGene, Double> before(EvolutionStart<IntegerGene, Double> start) {
+        sampler.resample(start.generation());
+
+        boolean rescoreDue = fullRescoreInterval > 0 && eliteCount > 0 && !sampler.isFullSuite()
+                && start.generation() > 1 && start.generation() % fullRescoreInterval == 0;
+        if (!rescoreDue || start.population().isEmpty()) {
+            return start;
+        }
+
+        ISeq<Phenotype<IntegerGene, Double>> population = start.population();
+        MSeq<Phenotype<IntegerGene, Double>> rescored = population.copy();
+
+        int[] eliteIndexes = IntStream.range(0, population.size())
+                .filter(i -> population.get(i).isEvaluated())
+                .boxed()
+                .sorted(Comparator.comparing((Integer i) -> population.get(i).fitness()).reversed())
+                .limit(eliteCount)
+                .mapToInt(Integer::intValue)
+                .toArray();
+
+        for (int index : eliteIndexes) {
+            Phenotype<IntegerGene, Double> elite = population.get(index);
+            double fullFitness = EvaluationScheduler.withPriority(EvaluationScheduler.Priority.ELITE,
+                    () -> fitnessFunction.evaluateFull(elite.genotype()));
+            logger.debug("Elite re-scored on full suite: {} -> {}", elite.fitness(), fullFitness);
+            rescored.set(index, elite.withFitness(fullFitness));
+        }
+
+        logger.info("Generation {}: re-scored {} elites on the full suite of {} test cases",
+                   start.generation(), eliteIndexes.length, sampler.fullSuite().size());
+
+        return EvolutionStart.of(rescored.toISeq(), start.generation());
+    }
+}
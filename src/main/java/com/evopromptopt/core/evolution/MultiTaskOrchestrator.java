@@ -0,0 +1,185 @@
+package com.evopromptopt.core.evolution;
+
+import com.evopromptopt.core.execution.CachingPromptExecutor;
+import com.evopromptopt.core.execution.EvaluationScheduler;
+import com.evopromptopt.core.execution.MeteredPromptExecutor;
+import com.evopromptopt.core.execution.PromptExecutor;
+import com.evopromptopt.core.execution.ResponseCache;
+import com.evopromptopt.core.tasks.EvaluationResultSink;
+import com.evopromptopt.core.tasks.TaskDefinition;
+import com.evopromptopt.core.tasks.TaskRunner;
+import com.evopromptopt.core.tasks.TestCaseResultStore;
+import io.jenetics.IntegerGene;
+import io.jenetics.engine.EvolutionResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Optimizes prompts for several tasks concurrently against one shared backend. All engines share
+ * a response cache and the backend's bulkhead in the {@link EvaluationScheduler}, whose slots go to
+ * the genome with the fewest calls in flight across all tasks, so the backend stays saturated while
+ * no task starves the others. Evaluation work runs on the scheduler's shared workers.
+ */
+public class MultiTaskOrchestrator {
+    private static final Logger logger = LoggerFactory.getLogger(MultiTaskOrchestrator.class);
+
+    private final String backendName;
+    private final PromptExecutor backend;
+    private final ResponseCache cache;
+    private final TestCaseResultStore resultStore;
+    private final double metricCutoff;
+    private final EvaluationResultSink resultSink;
+
+    /**
+     * @param backendName        Name of the backend's bulkhead in the shared scheduler
+     * @param maxConcurrentCalls Calls the backend serves at once
+     * @param resultStore        Persistent results shared by all tasks, may be null
+     * @param metricCutoff       Metric cutoff of each task's runner, 0 evaluates every metric
+     * @param resultSink         Receives the scored test case results of all tasks
+     */
+    public MultiTaskOrchestrator(String backendName, PromptExecutor backend, int maxConcurrentCalls, int cacheSize,
+                                 TestCaseResultStore resultStore, double metricCutoff,
+                                 EvaluationResultSink resultSink) {
+        this.backendName = backendName;
+        this.backend = EvaluationScheduler.shared().bulkhead(backendName, backend, maxConcurrentCalls);
+        this.cache = new ResponseCache(cacheSize);
+        this.resultStore = resultStore;
+        this.metricCutoff = metricCutoff;
+        this.resultSink = resultSink;
+    }
+
+    public MultiTaskOrchestrator(String backendName, PromptExecutor backend, int maxConcurrentCalls, int cacheSize) {
+        this(backendName, backend, maxConcurrentCalls, cacheSize, null, 0.0, EvaluationResultSink.DISCARD);
+    }
+
+    /**
+     * @return A meter of one task's backend calls; hand it to the task's judge metrics so their calls count
+     *         against the task's budget as well
+     */
+    public MeteredPromptExecutor newMeter() {
+        return new MeteredPromptExecutor(backend);
+    }
+
+    /**
+     * Runs one evolution per task concurrently, each metered separately, and waits for all of them to finish
+     *
+     * @return The outcome of each task, keyed by task name in input order
+     */
+    public Map<String, TaskOutcome> run(List<TaskDefinition> tasks, EvolutionEngineFactory.EvolutionConfig config,
+                                        int generations, BudgetLimit.EvolutionBudget budget)
+            throws InterruptedException {
+        return runJobs(tasks.stream().map(task -> new TaskJob(task, newMeter())).toList(),
+                       config, generations, budget);
+    }
+
+    /**
+     * Runs one evolution per task concurrently and waits for all of them to finish
+     *
+     * @return The outcome of each task, keyed by task name in input order
+     */
+    public Map<String, TaskOutcome> runJobs(List<TaskJob> jobs, EvolutionEngineFactory.EvolutionConfig config,
+                                            int generations, BudgetLimit.EvolutionBudget budget)
+            throws InterruptedException {
+        Set<String> names = new HashSet<>();
+        for (TaskJob job : jobs) {
+            // Outcomes are keyed by task name
+            if (!names.add(job.task().getName())) {
+                throw new IllegalArgumentException("Duplicate task name: " + job.task().getName());
+            }
+        }
+
+        Executor evaluationThreads = EvaluationScheduler.shared().executor();
+        List<CompletableFuture<TaskOutcome>> futures = new ArrayList<>();
+        for (TaskJob job : jobs) {
+            // Each engine is driven by its own thread, which only waits for evaluations on the shared workers
+            futures.add(CompletableFuture.supplyAsync(
+                    () -> optimize(job, config, generations, budget, evaluationThreads),
+                    driver -> startDriver(job.task(), driver)));
+        }
+
+        Map<String, TaskOutcome> outcomes = new LinkedHashMap<>();
+        for (int i = 0; i < jobs.size(); i++) {
+            try {
+                outcomes.put(jobs.get(i).task().getName(), futures.get(i).get());
+            } catch (ExecutionException e) {
+                logger.error("Optimization failed for task: {}", jobs.get(i).task().getName(), e.getCause());
+            }
+        }
+
+        logger.info("Backend calls per priority: {}, cache hits: {}, misses: {}",
+                   EvaluationScheduler.shared().servedPerPriority(backendName), cache.getHits(), cache.getMisses());
+        return outcomes;
+    }
+
+    private static void startDriver(TaskDefinition task, Runnable driver) {
+        Thread thread = new Thread(driver, "optimize-" + task.getName());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private TaskOutcome optimize(TaskJob job, EvolutionEngineFactory.EvolutionConfig config,
+                                 int generations, BudgetLimit.EvolutionBudget budget,
+                                 Executor evaluationThreads) {
+        TaskDefinition task = job.task();
+        MeteredPromptExecutor meter = job.meter();
+        // Cache hits never reach the meter or take a backend slot
+        var taskRunner = new TaskRunner(new CachingPromptExecutor(meter, cache), false, resultStore,
+                                        metricCutoff, resultSink);
+        var engine = EvolutionEngineFactory.createAdvanced(taskRunner, task, config, evaluationThreads);
+        var budgetLimit = new BudgetLimit(budget, meter);
+
+        logger.info("Starting optimization of task '{}' with {} generations", task.getName(), generations);
+
+        EvolutionResult<IntegerGene, Double> result = engine.stream()
+                .limit(budgetLimit)
+                .limit(generations)
+                .peek(r -> logger.info("Task '{}' generation {}: best fitness = {}",
+                                       task.getName(), r.generation(), r.bestFitness()))
+                .collect(EvolutionResult.toBestEvolutionResult());
+
+        if (metricCutoff > 0) {
+            var skipStatistics = taskRunner.getMetricSkipStatistics();
+            logger.info("Task '{}' metric cutoff: {} genome evaluations pruned, {} metric evaluations skipped",
+                       task.getName(), skipStatistics.prunedGenomes(), skipStatistics.totalSkipped());
+        }
+        taskRunner.shutdown();
+        return new TaskOutcome(task, result, meter.getCallCount(), meter.getTotalTokens(), budgetLimit.elapsed());
+    }
+
+    public ResponseCache getCache() {
+        return cache;
+    }
+
+    public String getBackendName() {
+        return backendName;
+    }
+
+    /**
+     * A task to optimize and the meter its calls, including those of its judge metrics, are counted by
+     *
+     * @param meter A meter from {@link #newMeter()}
+     */
+    public record TaskJob(TaskDefinition task, MeteredPromptExecutor meter) {}
+
+    /**
+     * Result of optimizing a single task
+     */
+    public record TaskOutcome(
+            TaskDefinition task,
+            EvolutionResult<IntegerGene, Double> result,
+            long llmCalls,
+            long totalTokens,
+            Duration elapsed
+    ) {}
+}
@@ -0,0 +1,191 @@
+package com.evopromptopt.core.evolution;
+
+import com.evopromptopt.core.execution.EvaluationScheduler;
+import com.evopromptopt.core.execution.Resampling;
+import com.evopromptopt.core.fitness.FitnessEstimates;
+import com.evopromptopt.core.fitness.PromptFitness;
+import com.evopromptopt.core.genome.PromptGenome;
+import com.evopromptopt.core.genome.PromptGenotypeFactory;
+import io.jenetics.Genotype;
+import io.jenetics.IntegerGene;
+import io.jenetics.Phenotype;
+import io.jenetics.engine.EvolutionInterceptor;
+import io.jenetics.engine.EvolutionResult;
+import io.jenetics.util.ISeq;
+import io.jenetics.util.MSeq;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Spends a small per-generation budget of extra evaluations where they can change which genomes
+ * make the top of the ranking. Only the top genomes and the contenders just below them are
+ * considered; a genome whose confidence interval clears the boundary between the two groups is
+ * left alone. The remaining samples go to the genomes with the highest noise-to-distance ratio
+ * (the OCBA allocation rule for selecting a top subset), genomes with a single sample first.
+ * All other genomes keep their single evaluation.
+ */
+public class NoiseAwareReevaluator implements EvolutionInterceptor<IntegerGene, Double> {
+    private static final Logger logger = LoggerFactory.getLogger(NoiseAwareReevaluator.class);
+    private static final double Z_95 = 1.96;
+    private static final int SAMPLES_PER_ROUND = 4;
+
+    private final PromptFitness fitnessFunction;
+    private final FitnessEstimates estimates;
+    private final Executor executor;
+    private final int topCount;
+    private final int contenders;
+    private final int samplesPerGeneration;
+    private final int maxSamplesPerGenome;
+
+    private long totalSamples;
+
+    /**
+     * @param fitnessFunction      Fitness function that records its samples in estimates
+     * @param executor             Runs the extra evaluations of one round in parallel
+     * @param topCount             Size of the top group whose membership should be reliable
+     * @param contenders           Genomes just below the top group that may still enter it
+     * @param samplesPerGeneration Extra evaluations per generation
+     * @param maxSamplesPerGenome  No genome is sampled more often than this
+     */
+    public NoiseAwareReevaluator(PromptFitness fitnessFunction, Executor executor, int topCount, int contenders,
+                                 int samplesPerGeneration, int maxSamplesPerGenome) {
+        if (fitnessFunction.getEstimates() == null) {
+            throw new IllegalArgumentException("Fitness function does not track fitness estimates");
+        }
+        this.fitnessFunction = fitnessFunction;
+        this.estimates = fitnessFunction.getEstimates();
+        this.executor = executor;
+        this.topCount = Math.max(1, topCount);
+        this.contenders = Math.max(1, contenders);
+        this.samplesPerGeneration = samplesPerGeneration;
+        this.maxSamplesPerGenome = maxSamplesPerGenome;
+    }
+
+    @Override
+    public EvolutionResult<IntegerGene, Double> after(EvolutionResult<IntegerGene, Double> result) {
+        ISeq<Phenotype<IntegerGene, Double>> population = result.population();
+
+        // One candidate per distinct genome, best first; a pruned genome's lower bound is no estimate
+        Map<PromptGenome, Genotype<IntegerGene>> ranked = new LinkedHashMap<>();
+        Map<PromptGenome, Double> rankedFitness = new HashMap<>();
+        population.stream()
+                .filter(Phenotype::isEvaluated)
+                .sorted(Comparator.comparing((Phenotype<IntegerGene, Double> p) -> p.fitness()).reversed())
+                .forEach(p -> {
+                    PromptGenome genome = PromptGenotypeFactory.decode(p.genotype());
+                    if (!fitnessFunction.isLowerBound(genome) && ranked.putIfAbsent(genome, p.genotype()) == null) {
+                        rankedFitness.put(genome, p.fitness());
+                    }
+                });
+        if (ranked.size() <= topCount || samplesPerGeneration <= 0) {
+            return result;
+        }
+
+        List<PromptGenome> candidates = ranked.keySet().stream().limit(topCount + contenders).toList();
+        Set<PromptGenome> resampled = new HashSet<>();
+        int spent = 0;
+
+        while (spent < samplesPerGeneration) {
+            List<PromptGenome> round = nextRound(candidates, rankedFitness,
+                                                 Math.min(SAMPLES_PER_ROUND, samplesPerGeneration - spent));
+            if (round.isEmpty()) {
+                break;
+            }
+            CompletableFuture.allOf(round.stream()
+                    .map(genome -> CompletableFuture.runAsync(() -> EvaluationScheduler.runWithPriority(
+                            EvaluationScheduler.Priority.ELITE,
+                            // Each extra evaluation must be an independent sample, not a stored or cached copy
+                            () -> Resampling.run(() -> fitnessFunction.evaluate(ranked.get(genome)))), executor))
+                    .toArray(CompletableFuture[]::new))
+                    .join();
+            resampled.addAll(round);
+            spent += round.size();
+        }
+
+        if (resampled.isEmpty()) {
+            return result;
+        }
+        totalSamples += spent;
+
+        MSeq<Phenotype<IntegerGene, Double>> updated = population.copy();
+        for (int i = 0; i < updated.size(); i++) {
+            Phenotype<IntegerGene, Double> phenotype = updated.get(i);
+            if (!phenotype.isEvaluated()) {
+                continue;
+            }
+            PromptGenome genome = PromptGenotypeFactory.decode(phenotype.genotype());
+            if (resampled.contains(genome)) {
+                updated.set(i, phenotype.withFitness(mean(genome, phenotype.fitness())));
+            }
+        }
+
+        logger.info("Generation {}: {} extra evaluations on {} genomes near the top-{} boundary ({} so far)",
+                   result.generation(), spent, resampled.size(), topCount, totalSamples);
+
+        return EvolutionResult.of(result.optimize(), updated.toISeq(), result.generation(), result.totalGenerations(),
+                                  result.durations(), result.killCount(), result.invalidCount(), result.alterCount());
+    }
+
+    /**
+     * Picks the genomes whose next sample is most likely to change top-group membership
+     *
+     * @param fitness Current fitness of the candidates, a single sample for genomes without estimates
+     *                (fitness taken from the archive or from speculative evaluation)
+     */
+    private List<PromptGenome> nextRound(List<PromptGenome> candidates, Map<PromptGenome, Double> fitness, int size) {
+        List<FitnessEstimates.Estimate> current = new ArrayList<>();
+        for (PromptGenome genome : candidates) {
+            current.add(estimates.get(genome).orElse(new FitnessEstimates.Estimate(1, fitness.get(genome), 0.0)));
+        }
+
+        List<Double> means = current.stream().map(FitnessEstimates.Estimate::mean)
+                .sorted(Comparator.reverseOrder()).toList();
+        double boundary = (means.get(topCount - 1) + means.get(topCount)) / 2;
+        double pooledVariance = estimates.pooledVariance();
+
+        List<Integer> eligible = new ArrayList<>();
+        double[] priority = new double[candidates.size()];
+        for (int i = 0; i < candidates.size(); i++) {
+            FitnessEstimates.Estimate estimate = current.get(i);
+            if (estimate.count() >= maxSamplesPerGenome) {
+                continue;
+            }
+            double distance = Math.abs(estimate.mean() - boundary);
+            double variance = estimate.count() > 1 ? estimate.variance() : pooledVariance;
+            if (Double.isNaN(variance)) {
+                // Noise level still unknown, closest to the boundary first
+                priority[i] = Double.MAX_VALUE / (1 + distance);
+            } else if (distance > Z_95 * Math.sqrt(variance / estimate.count())) {
+                continue; // Confidence interval clears the boundary, more samples would not change the ranking
+            } else {
+                priority[i] = variance / (estimate.count() * (distance * distance + 1e-9));
+            }
+            eligible.add(i);
+        }
+
+        return eligible.stream()
+                .sorted(Comparator.comparingDouble((Integer i) -> priority[i]).reversed())
+                .limit(size)
+                .map(candidates::get)
+                .toList();
+    }
+
+    private double mean(PromptGenome genome, double fallback) {
+        return estimates.get(genome).map(FitnessEstimates.Estimate::mean).orElse(fallback);
+    }
+
+    public long getTotalSamples() {
+        return totalSamples;
+    }
+}
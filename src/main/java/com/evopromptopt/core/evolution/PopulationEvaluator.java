@@ -0,0 +1,84 @@
+package com.evopromptopt.core.evolution;
+
+import com.evopromptopt.core.fitness.PromptFitness;
+import com.evopromptopt.core.tasks.TaskRunner;
+import io.jenetics.Genotype;
+import io.jenetics.IntegerGene;
+import io.jenetics.Phenotype;
+import io.jenetics.engine.Evaluator;
+import io.jenetics.util.ISeq;
+import io.jenetics.util.MSeq;
+import io.jenetics.util.Seq;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Engine evaluator that hands all unevaluated phenotypes of a generation to the fitness function
+ * as one batch instead of evaluating them one by one, so the task runner can deduplicate, group
+ * and order the (genome x test case) calls of the whole generation.
+ */
+public class PopulationEvaluator implements Evaluator<IntegerGene, Double> {
+    private static final Logger logger = LoggerFactory.getLogger(PopulationEvaluator.class);
+
+    private final PromptFitness fitnessFunction;
+    private final Executor executor;
+    private final int parallelism;
+
+    private volatile TaskRunner.BatchExecutionReport lastReport;
+    private long batches;
+
+    /**
+     * @param executor    Runs the call dispatch workers
+     * @param parallelism Number of backend calls in flight at once
+     */
+    public PopulationEvaluator(PromptFitness fitnessFunction, Executor executor, int parallelism) {
+        this.fitnessFunction = fitnessFunction;
+        this.executor = executor;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    @Override
+    public ISeq<Phenotype<IntegerGene, Double>> eval(Seq<Phenotype<IntegerGene, Double>> population) {
+        List<Integer> pending = new ArrayList<>();
+        List<Genotype<IntegerGene>> genotypes = new ArrayList<>();
+        for (int i = 0; i < population.size(); i++) {
+            if (!population.get(i).isEvaluated()) {
+                pending.add(i);
+                genotypes.add(population.get(i).genotype());
+            }
+        }
+        if (pending.isEmpty()) {
+            return population.asISeq();
+        }
+
+        var batch = fitnessFunction.evaluatePopulation(genotypes, executor, parallelism);
+
+        MSeq<Phenotype<IntegerGene, Double>> evaluated = MSeq.of(population);
+        for (int i = 0; i < pending.size(); i++) {
+            int index = pending.get(i);
+            evaluated.set(index, evaluated.get(index).withFitness(batch.fitness()[i]));
+        }
+
+        var report = batch.report();
+        lastReport = report;
+        batches++;
+        logger.info("Batch {}: {} genomes, {} calls planned, {} stored, {} executed ({} shared), {} prefix groups, "
+                   + "{} failed, {} ms wall time, {} calls in flight on average",
+                   batches, report.genomes(), report.requestedCalls(), report.storedResults(),
+                   report.executedCalls(), report.deduplicatedCalls(), report.prefixGroups(), report.failedCalls(),
+                   report.wallTimeMs(), String.format("%.1f", report.effectiveConcurrency()));
+
+        return evaluated.toISeq();
+    }
+
+    /**
+     * @return The execution report of the most recent batch, null before the first one
+     */
+    public TaskRunner.BatchExecutionReport getLastReport() {
+        return lastReport;
+    }
+}
@@ -0,0 +1,224 @@
+package com.evopromptopt.core.evolution;
+
+import com.evopromptopt.core.fitness.PromptFitness;
+import com.evopromptopt.core.genome.PromptGenotypeFactory;
+import io.jenetics.Chromosome;
+import io.jenetics.Genotype;
+import io.jenetics.IntegerGene;
+import io.jenetics.Phenotype;
+import io.jenetics.engine.EvolutionInterceptor;
+import io.jenetics.engine.EvolutionResult;
+import io.jenetics.util.ISeq;
+import io.jenetics.util.MSeq;
+import io.jenetics.util.RandomRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.random.RandomGenerator;
+
+/**
+ * Inner optimizer of the hybrid search. The genetic algorithm explores the categorical genes;
+ * after every generation the best distinct categorical configurations get a few extra trials in
+ * which a Tree-structured Parzen estimator proposes temperature, topP, topK and repeat penalty.
+ * An improved genome replaces its origin in the population, so the GA carries the tuned sampling
+ * parameters forward through crossover.
+ */
+public class SamplingParameterTuner implements EvolutionInterceptor<IntegerGene, Double> {
+    private static final Logger logger = LoggerFactory.getLogger(SamplingParameterTuner.class);
+    private static final int[] SAMPLING_GENES = PromptGenotypeFactory.getSamplingGeneIndexes();
+
+    private final PromptFitness fitnessFunction;
+    private final Executor executor;
+    private final int configsPerGeneration;
+    private final int trialsPerConfig;
+    private final int startupTrials;
+    private final GeneFreezer freezer;
+    private final GeneRangeNarrower narrower;
+
+    // Shared history across all categorical configurations, the prior for configurations without their own
+    private final TreeParzenEstimator globalEstimator;
+    private final Map<List<Integer>, TreeParzenEstimator> configEstimators = new ConcurrentHashMap<>();
+    private final Set<Genotype<IntegerGene>> observed = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong trialsEvaluated = new AtomicLong();
+    private final AtomicLong improvements = new AtomicLong();
+
+    /**
+     * @param fitnessFunction      Evaluates the trial genomes
+     * @param executor             Runs the tuning of different configurations in parallel
+     * @param configsPerGeneration Distinct categorical configurations tuned after each generation
+     * @param trialsPerConfig      Sampling-parameter trials per configuration and generation
+     * @param startupTrials        Observations a configuration needs before its own estimator is used
+     * @param freezer              Frozen sampling genes are left untouched, may be null
+     * @param narrower             Trials of narrowed sampling genes stay within the narrowed range, may be null
+     */
+    public SamplingParameterTuner(PromptFitness fitnessFunction, Executor executor, int configsPerGeneration,
+                                  int trialsPerConfig, int startupTrials, GeneFreezer freezer,
+                                  GeneRangeNarrower narrower) {
+        this.fitnessFunction = fitnessFunction;
+        this.executor = executor;
+        this.configsPerGeneration = configsPerGeneration;
+        this.trialsPerConfig = trialsPerConfig;
+        this.startupTrials = startupTrials;
+        this.freezer = freezer;
+        this.narrower = narrower;
+        this.globalEstimator = new TreeParzenEstimator(SAMPLING_GENES.length, startupTrials);
+    }
+
+    @Override
+    public EvolutionResult<IntegerGene, Double> after(EvolutionResult<IntegerGene, Double> result) {
+        ISeq<Phenotype<IntegerGene, Double>> population = result.population();
+        for (Phenotype<IntegerGene, Double> phenotype : population) {
+            if (phenotype.isEvaluated()) {
+                observe(phenotype.genotype(), phenotype.fitness());
+            }
+        }
+
+        // Best phenotype of each categorical configuration, best configurations first
+        Map<List<Integer>, Integer> bestIndexByConfig = new HashMap<>();
+        for (int i = 0; i < population.size(); i++) {
+            Phenotype<IntegerGene, Double> phenotype = population.get(i);
+            if (!phenotype.isEvaluated()) {
+                continue;
+            }
+            bestIndexByConfig.merge(categoricalKey(phenotype.genotype()), i,
+                    (a, b) -> population.get(a).fitness() >= population.get(b).fitness() ? a : b);
+        }
+        List<Integer> targets = bestIndexByConfig.values().stream()
+                .sorted(Comparator.comparing((Integer i) -> population.get(i).fitness()).reversed())
+                .limit(configsPerGeneration)
+                .toList();
+        if (targets.isEmpty() || trialsPerConfig <= 0) {
+            return result;
+        }
+
+        List<CompletableFuture<Phenotype<IntegerGene, Double>>> futures = new ArrayList<>();
+        for (int index : targets) {
+            futures.add(CompletableFuture.supplyAsync(() -> tune(population.get(index), result.generation()), executor));
+        }
+
+        MSeq<Phenotype<IntegerGene, Double>> tuned = population.copy();
+        int improved = 0;
+        for (int i = 0; i < targets.size(); i++) {
+            Phenotype<IntegerGene, Double> phenotype = futures.get(i).join();
+            if (phenotype != population.get(targets.get(i))) {
+                tuned.set(targets.get(i), phenotype);
+                improved++;
+            }
+        }
+        improvements.addAndGet(improved);
+
+        logger.info("Generation {}: tuned sampling parameters of {} configurations, {} improved ({} trials so far)",
+                   result.generation(), targets.size(), improved, trialsEvaluated.get());
+
+        if (improved == 0) {
+            return result;
+        }
+        return EvolutionResult.of(result.optimize(), tuned.toISeq(), result.generation(), result.totalGenerations(),
+                                  result.durations(), result.killCount(), result.invalidCount(), result.alterCount());
+    }
+
+    /**
+     * Runs the sequential trials for one configuration
+     *
+     * @return The best phenotype found, or the given one if no trial beat it
+     */
+    private Phenotype<IntegerGene, Double> tune(Phenotype<IntegerGene, Double> origin, long generation) {
+        RandomGenerator random = RandomRegistry.random();
+        TreeParzenEstimator estimator = configEstimator(origin.genotype());
+        Phenotype<IntegerGene, Double> best = origin;
+
+        for (int trial = 0; trial < trialsPerConfig; trial++) {
+            TreeParzenEstimator source = estimator.isWarm() ? estimator : globalEstimator;
+            Genotype<IntegerGene> candidate = withSamplingPoint(best.genotype(), source.suggest(random));
+            if (observed.contains(candidate)) {
+                continue; // Same integer gene values as a known genome, the suggestion adds nothing
+            }
+
+            double fitness = fitnessFunction.evaluate(candidate);
+            trialsEvaluated.incrementAndGet();
+            observe(candidate, fitness);
+            if (fitness > best.fitness()) {
+                best = Phenotype.of(candidate, generation, fitness);
+            }
+        }
+
+        if (best != origin) {
+            logger.debug("Sampling parameters tuned: {} -> {}", origin.fitness(), best.fitness());
+        }
+        return best;
+    }
+
+    private void observe(Genotype<IntegerGene> genotype, double fitness) {
+        if (observed.add(genotype)) {
+            double[] point = samplingPoint(genotype);
+            globalEstimator.observe(point, fitness);
+            configEstimator(genotype).observe(point, fitness);
+        }
+    }
+
+    private TreeParzenEstimator configEstimator(Genotype<IntegerGene> genotype) {
+        return configEstimators.computeIfAbsent(categoricalKey(genotype),
+                key -> new TreeParzenEstimator(SAMPLING_GENES.length, startupTrials));
+    }
+
+    /**
+     * Values of all genes the inner optimizer does not tune
+     */
+    private static List<Integer> categoricalKey(Genotype<IntegerGene> genotype) {
+        List<Integer> key = new ArrayList<>(genotype.length());
+        for (int i = 0; i < genotype.length(); i++) {
+            if (!PromptGenotypeFactory.isSamplingGene(i)) {
+                key.add(genotype.get(i).gene().intValue());
+            }
+        }
+        return key;
+    }
+
+    private static double[] samplingPoint(Genotype<IntegerGene> genotype) {
+        double[] point = new double[SAMPLING_GENES.length];
+        for (int d = 0; d < SAMPLING_GENES.length; d++) {
+            IntegerGene gene = genotype.get(SAMPLING_GENES[d]).gene();
+            point[d] = (double) (gene.intValue() - gene.min()) / (gene.max() - gene.min());
+        }
+        return point;
+    }
+
+    private Genotype<IntegerGene> withSamplingPoint(Genotype<IntegerGene> genotype, double[] point) {
+        List<Chromosome<IntegerGene>> chromosomes = new ArrayList<>(genotype.length());
+        genotype.forEach(chromosomes::add);
+        for (int d = 0; d < SAMPLING_GENES.length; d++) {
+            int index = SAMPLING_GENES[d];
+            if (freezer != null && freezer.isFrozen(index)) {
+                continue;
+            }
+            Chromosome<IntegerGene> chromosome = chromosomes.get(index);
+            IntegerGene gene = chromosome.gene();
+            // Suggestions span the narrowed range; observations stay relative to the full range
+            int[] range = narrower != null ? narrower.range(index) : null;
+            int min = range != null ? range[0] : gene.min();
+            int max = range != null ? range[1] : gene.max();
+            int value = min + (int) Math.round(point[d] * (max - min));
+            chromosomes.set(index, chromosome.newInstance(ISeq.of(gene.newInstance(value))));
+        }
+        return Genotype.of(chromosomes);
+    }
+
+    public long getTrialsEvaluated() {
+        return trialsEvaluated.get();
+    }
+
+    public long getImprovements() {
+        return improvements.get();
+    }
+}
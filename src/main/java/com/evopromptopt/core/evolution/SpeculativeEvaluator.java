@@ -0,0 +1,181 @@
+package com.evopromptopt.core.evolution;
+
+import com.evopromptopt.core.execution.SpeculativeExecution;
+import com.evopromptopt.core.fitness.PromptFitness;
+import com.evopromptopt.core.genome.PromptGenome;
+import com.evopromptopt.core.genome.PromptGenotypeFactory;
+import io.jenetics.Alterer;
+import io.jenetics.AltererResult;
+import io.jenetics.Chromosome;
+import io.jenetics.Genotype;
+import io.jenetics.IntegerGene;
+import io.jenetics.Phenotype;
+import io.jenetics.engine.EvolutionInterceptor;
+import io.jenetics.engine.EvolutionResult;
+import io.jenetics.util.MSeq;
+import io.jenetics.util.RandomRegistry;
+import io.jenetics.util.Seq;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.random.RandomGenerator;
+
+/**
+ * Predicts the offspring of the next generation and evaluates them speculatively while the
+ * backend is idle. With length-one chromosomes, single-point crossover copies one whole gene from
+ * the other parent, so the products of the elites are enumerated exactly; single-gene mutations of
+ * the elites fill up the rest. As an alterer it then hands the speculative fitness to matching
+ * offspring before the engine evaluates them. Work left over from the previous generation is
+ * cancelled as soon as a generation completes.
+ */
+public class SpeculativeEvaluator implements Alterer<IntegerGene, Double>, EvolutionInterceptor<IntegerGene, Double> {
+    private static final Logger logger = LoggerFactory.getLogger(SpeculativeEvaluator.class);
+    private static final int MAX_CACHED_FITNESS = 10_000;
+
+    private final SpeculativeExecution speculation;
+    private final PromptFitness fitnessFunction;
+    private final boolean reuseFitness;
+    private final int candidatesPerGeneration;
+    private final int eliteCount;
+
+    private final Map<PromptGenome, Double> speculativeFitness = new ConcurrentHashMap<>();
+    private final AtomicLong evaluated = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+
+    /**
+     * @param speculation             Runs the speculative jobs at low priority
+     * @param fitnessFunction         Fitness function whose task runner executes through
+     *                                {@link SpeculativeExecution#speculative()}
+     * @param reuseFitness            Hand speculative fitness to offspring; false when fitness depends on a
+     *                                per-generation mini-batch, then only the response cache is filled
+     * @param candidatesPerGeneration Genomes evaluated speculatively per generation at most
+     * @param eliteCount              Best genomes whose offspring are predicted
+     */
+    public SpeculativeEvaluator(SpeculativeExecution speculation, PromptFitness fitnessFunction,
+                                boolean reuseFitness, int candidatesPerGeneration, int eliteCount) {
+        this.speculation = speculation;
+        this.fitnessFunction = fitnessFunction;
+        this.reuseFitness = reuseFitness;
+        this.candidatesPerGeneration = candidatesPerGeneration;
+        this.eliteCount = Math.max(2, eliteCount);
+    }
+
+    @Override
+    public EvolutionResult<IntegerGene, Double> after(EvolutionResult<IntegerGene, Double> result) {
+        speculation.cancel();
+
+        Set<PromptGenome> known = new HashSet<>(speculativeFitness.keySet());
+        for (Phenotype<IntegerGene, Double> phenotype : result.population()) {
+            known.add(PromptGenotypeFactory.decode(phenotype.genotype()));
+        }
+
+        for (Genotype<IntegerGene> candidate : predictOffspring(result, known)) {
+            speculation.submit(() -> {
+                double fitness = fitnessFunction.evaluate(candidate);
+                // A cancelled job has failed calls in its score
+                if (!speculation.isCancelled()) {
+                    evaluated.incrementAndGet();
+                    if (reuseFitness && speculativeFitness.size() < MAX_CACHED_FITNESS) {
+                        speculativeFitness.put(PromptGenotypeFactory.decode(candidate), fitness);
+                    }
+                }
+            });
+        }
+        return result;
+    }
+
+    private List<Genotype<IntegerGene>> predictOffspring(EvolutionResult<IntegerGene, Double> result,
+                                                         Set<PromptGenome> known) {
+        List<Genotype<IntegerGene>> elites = result.population().stream()
+                .filter(Phenotype::isEvaluated)
+                .sorted(Comparator.comparing((Phenotype<IntegerGene, Double> p) -> p.fitness()).reversed())
+                .map(Phenotype::genotype)
+                .distinct()
+                .limit(eliteCount)
+                .toList();
+
+        Set<Genotype<IntegerGene>> candidates = new LinkedHashSet<>();
+
+        // Crossover products of the best pairs first
+        for (int a = 0; a < elites.size() && candidates.size() < candidatesPerGeneration; a++) {
+            for (int b = a + 1; b < elites.size() && candidates.size() < candidatesPerGeneration; b++) {
+                for (int gene = 0; gene < elites.get(a).length(); gene++) {
+                    addIfNew(candidates, known, withChromosome(elites.get(a), gene, elites.get(b).get(gene)));
+                    addIfNew(candidates, known, withChromosome(elites.get(b), gene, elites.get(a).get(gene)));
+                }
+            }
+        }
+
+        // Then single-gene mutations of the elites, best elite first
+        RandomGenerator random = RandomRegistry.random();
+        for (int attempt = 0; attempt < candidatesPerGeneration * 4 && !elites.isEmpty()
+                && candidates.size() < candidatesPerGeneration; attempt++) {
+            Genotype<IntegerGene> elite = elites.get(attempt % elites.size());
+            int gene = random.nextInt(elite.length());
+            Chromosome<IntegerGene> chromosome = elite.get(gene);
+            addIfNew(candidates, known, withChromosome(elite, gene, chromosome.newInstance()));
+        }
+
+        return candidates.stream().limit(candidatesPerGeneration).toList();
+    }
+
+    private static void addIfNew(Set<Genotype<IntegerGene>> candidates, Set<PromptGenome> known,
+                                 Genotype<IntegerGene> genotype) {
+        if (known.add(PromptGenotypeFactory.decode(genotype))) {
+            candidates.add(genotype);
+        }
+    }
+
+    private static Genotype<IntegerGene> withChromosome(Genotype<IntegerGene> genotype, int index,
+                                                        Chromosome<IntegerGene> chromosome) {
+        List<Chromosome<IntegerGene>> chromosomes = new ArrayList<>(genotype.length());
+        genotype.forEach(chromosomes::add);
+        chromosomes.set(index, chromosome);
+        return Genotype.of(chromosomes);
+    }
+
+    @Override
+    public AltererResult<IntegerGene, Double> alter(Seq<Phenotype<IntegerGene, Double>> population, long generation) {
+        if (!reuseFitness || speculativeFitness.isEmpty()) {
+            return new AltererResult<>(population.asISeq(), 0);
+        }
+
+        MSeq<Phenotype<IntegerGene, Double>> result = MSeq.of(population);
+        int served = 0;
+        for (int i = 0; i < result.size(); i++) {
+            Phenotype<IntegerGene, Double> phenotype = result.get(i);
+            if (phenotype.isEvaluated()) {
+                continue;
+            }
+            Double fitness = speculativeFitness.remove(PromptGenotypeFactory.decode(phenotype.genotype()));
+            if (fitness != null) {
+                result.set(i, phenotype.withFitness(fitness));
+                served++;
+            }
+        }
+
+        if (served > 0) {
+            hits.addAndGet(served);
+            logger.info("Generation {}: {} offspring served by speculative evaluation ({} of {} speculated so far)",
+                       generation, served, hits.get(), evaluated.get());
+        }
+        return new AltererResult<>(result.toISeq(), 0);
+    }
+
+    public long getSpeculativeEvaluations() {
+        return evaluated.get();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+}
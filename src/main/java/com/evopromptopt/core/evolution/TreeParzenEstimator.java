@@ -0,0 +1,141 @@
+package com.evopromptopt.core.evolution;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * Tree-structured Parzen estimator over the unit hypercube. Observations are split into a good
+ * and a bad group by value; candidates are drawn from a kernel density of the good group and the
+ * one maximizing the density ratio good/bad is suggested. Higher values are better.
+ */
+public class TreeParzenEstimator {
+    private static final double MIN_BANDWIDTH = 0.05;
+    private static final double SQRT_TWO_PI = Math.sqrt(2 * Math.PI);
+
+    private final int dimensions;
+    private final int startupObservations;
+    private final double gamma;
+    private final int candidates;
+    private final List<Observation> observations = new ArrayList<>();
+
+    /**
+     * @param dimensions          Number of parameters, each scaled to [0, 1]
+     * @param startupObservations Suggestions are uniformly random until this many observations exist
+     * @param gamma               Share of observations forming the good group
+     * @param candidates          Candidates drawn from the good density per suggestion
+     */
+    public TreeParzenEstimator(int dimensions, int startupObservations, double gamma, int candidates) {
+        this.dimensions = dimensions;
+        this.startupObservations = Math.max(2, startupObservations);
+        this.gamma = gamma;
+        this.candidates = candidates;
+    }
+
+    public TreeParzenEstimator(int dimensions, int startupObservations) {
+        this(dimensions, startupObservations, 0.25, 24);
+    }
+
+    public synchronized void observe(double[] point, double value) {
+        observations.add(new Observation(point.clone(), value));
+    }
+
+    public synchronized int size() {
+        return observations.size();
+    }
+
+    public synchronized boolean isWarm() {
+        return observations.size() >= startupObservations;
+    }
+
+    /**
+     * @return The next point to evaluate, each coordinate in [0, 1]
+     */
+    public double[] suggest(RandomGenerator random) {
+        List<Observation> sorted;
+        synchronized (this) {
+            if (observations.size() < startupObservations) {
+                return uniform(random);
+            }
+            sorted = new ArrayList<>(observations);
+        }
+        sorted.sort(Comparator.comparingDouble(Observation::value).reversed());
+
+        int goodCount = Math.max(1, (int) Math.ceil(gamma * sorted.size()));
+        List<Observation> good = sorted.subList(0, goodCount);
+        List<Observation> bad = sorted.subList(goodCount, sorted.size());
+        double[] goodBandwidth = bandwidths(good);
+        double[] badBandwidth = bandwidths(bad);
+
+        double[] best = null;
+        double bestRatio = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < candidates; i++) {
+            double[] centre = good.get(random.nextInt(good.size())).point();
+            double[] candidate = new double[dimensions];
+            for (int d = 0; d < dimensions; d++) {
+                candidate[d] = clamp(centre[d] + random.nextGaussian() * goodBandwidth[d]);
+            }
+            double ratio = Math.log(density(candidate, good, goodBandwidth))
+                    - Math.log(density(candidate, bad, badBandwidth));
+            if (ratio > bestRatio) {
+                bestRatio = ratio;
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    private double[] uniform(RandomGenerator random) {
+        double[] point = new double[dimensions];
+        for (int d = 0; d < dimensions; d++) {
+            point[d] = random.nextDouble();
+        }
+        return point;
+    }
+
+    /**
+     * Scott's rule per dimension, with a floor so a collapsed group still explores its neighbourhood
+     */
+    private double[] bandwidths(List<Observation> group) {
+        double[] bandwidth = new double[dimensions];
+        double scale = Math.pow(Math.max(1, group.size()), -1.0 / (dimensions + 4));
+        for (int d = 0; d < dimensions; d++) {
+            double mean = 0.0;
+            for (Observation observation : group) {
+                mean += observation.point()[d];
+            }
+            mean /= Math.max(1, group.size());
+            double variance = 0.0;
+            for (Observation observation : group) {
+                double delta = observation.point()[d] - mean;
+                variance += delta * delta;
+            }
+            variance /= Math.max(1, group.size());
+            bandwidth[d] = Math.max(MIN_BANDWIDTH, Math.sqrt(variance) * scale);
+        }
+        return bandwidth;
+    }
+
+    /**
+     * Gaussian kernel density mixed with one uniform prior component, so it is never zero
+     */
+    private double density(double[] point, List<Observation> group, double[] bandwidth) {
+        double sum = 1.0;
+        for (Observation observation : group) {
+            double kernel = 1.0;
+            for (int d = 0; d < dimensions; d++) {
+                double z = (point[d] - observation.point()[d]) / bandwidth[d];
+                kernel *= Math.exp(-0.5 * z * z) / (bandwidth[d] * SQRT_TWO_PI);
+            }
+            sum += kernel;
+        }
+        return sum / (group.size() + 1);
+    }
+
+    private static double clamp(double value) {
+        return Math.max(0.0, Math.min(1.0, value));
+    }
+
+    private record Observation(double[] point, double value) {}
+}
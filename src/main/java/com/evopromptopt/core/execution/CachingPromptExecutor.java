@@ -0,0 +1,47 @@
+package com.evopromptopt.core.execution;
+
+import com.evopromptopt.core.genome.PromptGenome;
+
+/**
+ * Decorates a PromptExecutor with a (possibly shared) response cache, so a genome is never
+ * sent to the backend twice for the same input. Calls made while {@link Resampling} is active go
+ * straight to the backend.
+ */
+public class CachingPromptExecutor implements PromptExecutor {
+    private final PromptExecutor delegate;
+    private final ResponseCache cache;
+
+    public CachingPromptExecutor(PromptExecutor delegate, ResponseCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    public CachingPromptExecutor(PromptExecutor delegate) {
+        this(delegate, new ResponseCache(10_000));
+    }
+
+    @Override
+    public ExecutionResult execute(PromptGenome genome, String task) {
+        if (Resampling.isActive()) {
+            // A new sample is wanted, neither answer it from the cache nor replace the cached response
+            return delegate.execute(genome, task);
+        }
+        ExecutionResult cached = cache.get(genome, task);
+        if (cached != null) {
+            return cached;
+        }
+
+        ExecutionResult result = delegate.execute(genome, task);
+        cache.put(genome, task, result);
+        return result;
+    }
+
+    @Override
+    public Object requestKey(PromptGenome genome, String task) {
+        return delegate.requestKey(genome, task);
+    }
+
+    public ResponseCache getCache() {
+        return cache;
+    }
+}
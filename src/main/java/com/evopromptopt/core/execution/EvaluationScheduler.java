@@ -0,0 +1,380 @@
+package com.evopromptopt.core.execution;
+
+import com.evopromptopt.core.genome.PromptGenome;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide scheduler for backend calls, in two levels. Each backend gets a bulkhead that bounds
+ * its concurrent calls, so the model server is never oversubscribed however many threads evaluate.
+ * When a slot of a bulkhead frees up, it goes to the highest priority with waiting calls (elite
+ * re-evaluation, then offspring, then speculation), and within that priority to the genome with the
+ * fewest calls in flight, round-robin on ties, so the test cases of concurrently evaluated genomes
+ * interleave instead of one genome holding every slot.
+ * <p>
+ * The priority of a call is that of the thread making it, see {@link #withPriority}; work handed to
+ * {@link #executor()} keeps the priority of the thread that submitted it. Requests to the same server
+ * that are not prompt executions, such as embedding and judging requests, take slots of the same
+ * bulkhead through {@link #call}.
+ */
+public final class EvaluationScheduler {
+    private static final EvaluationScheduler SHARED = new EvaluationScheduler();
+    private static final ThreadLocal<Priority> CURRENT = ThreadLocal.withInitial(() -> Priority.OFFSPRING);
+
+    /**
+     * Priorities in the order slots are handed out
+     */
+    public enum Priority { ELITE, OFFSPRING, SPECULATIVE }
+
+    /**
+     * A request to a backend
+     */
+    @FunctionalInterface
+    public interface BackendCall<T> {
+        T call() throws IOException;
+    }
+
+    private final Map<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor workers;
+    private final AtomicLong submitted = new AtomicLong();
+    private int totalSlots;
+
+    private EvaluationScheduler() {
+        AtomicInteger threadCount = new AtomicInteger();
+        int threads = Runtime.getRuntime().availableProcessors();
+        // Work beyond the pool's threads queues in priority order, so the lanes also apply before a call
+        // reaches its bulkhead
+        this.workers = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "evaluation-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        workers.allowCoreThreadTimeOut(true);
+    }
+
+    public static EvaluationScheduler shared() {
+        return SHARED;
+    }
+
+    /**
+     * Runs the work with calls made from the calling thread scheduled at the given priority
+     */
+    public static <T> T withPriority(Priority priority, Supplier<T> work) {
+        Priority previous = CURRENT.get();
+        CURRENT.set(priority);
+        try {
+            return work.get();
+        } finally {
+            CURRENT.set(previous);
+        }
+    }
+
+    public static void runWithPriority(Priority priority, Runnable work) {
+        withPriority(priority, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    public static Priority currentPriority() {
+        return CURRENT.get();
+    }
+
+    /**
+     * @return Executor for fanning out evaluation work; each task runs at its submitter's priority, and
+     *         resamples if its submitter does
+     */
+    public Executor executor() {
+        return task -> workers.execute(new QueuedTask(currentPriority(), submitted.getAndIncrement(),
+                                                      Resampling.propagate(task)));
+    }
+
+    /**
+     * Routes calls to a backend through its bulkhead. Executors for the same backend name share one
+     * bulkhead, sized by the first registration.
+     *
+     * @param backendName        Name of the model server, e.g. its model or URL
+     * @param maxConcurrentCalls Calls the backend serves at once
+     */
+    public PromptExecutor bulkhead(String backendName, PromptExecutor backend, int maxConcurrentCalls) {
+        if (maxConcurrentCalls <= 0) {
+            throw new IllegalArgumentException("Max concurrent calls must be positive: " + maxConcurrentCalls);
+        }
+        Bulkhead bulkhead = bulkheads.computeIfAbsent(backendName, name -> {
+            growWorkers(maxConcurrentCalls);
+            return new Bulkhead(maxConcurrentCalls);
+        });
+        return new PromptExecutor() {
+            @Override
+            public ExecutionResult execute(PromptGenome genome, String task) {
+                return bulkhead.execute(backend, genome, task);
+            }
+
+            @Override
+            public Object requestKey(PromptGenome genome, String task) {
+                return backend.requestKey(genome, task);
+            }
+        };
+    }
+
+    /**
+     * Runs a request that is not a prompt execution in a slot of the backend's bulkhead, at the
+     * priority of the calling thread
+     *
+     * @param flow Key the request shares its round-robin turn with, e.g. the embedding model
+     * @throws IllegalStateException If no bulkhead is registered for the backend
+     */
+    public <T> T call(String backendName, Object flow, BackendCall<T> call) throws IOException {
+        Bulkhead bulkhead = bulkheads.get(backendName);
+        if (bulkhead == null) {
+            throw new IllegalStateException("No bulkhead registered for backend: " + backendName);
+        }
+        return bulkhead.call(flow, call);
+    }
+
+    /**
+     * @return Calls served per priority by the backend's bulkhead, empty for an unknown backend
+     */
+    public Map<Priority, Long> servedPerPriority(String backendName) {
+        Bulkhead bulkhead = bulkheads.get(backendName);
+        return bulkhead != null ? bulkhead.served() : Map.of();
+    }
+
+    /**
+     * @return Most calls the backend's bulkhead had in flight at once
+     */
+    public int peakInFlight(String backendName) {
+        Bulkhead bulkhead = bulkheads.get(backendName);
+        return bulkhead != null ? bulkhead.peakInFlight() : 0;
+    }
+
+    /**
+     * Sizes the worker pool to keep every backend slot busy, plus a thread per priority so a waiting
+     * higher priority call is never stuck behind workers parked on a full bulkhead
+     */
+    private synchronized void growWorkers(int slots) {
+        totalSlots += slots;
+        int threads = Math.max(workers.getCorePoolSize(), totalSlots + Priority.values().length);
+        if (threads > workers.getMaximumPoolSize()) {
+            workers.setMaximumPoolSize(threads);
+            workers.setCorePoolSize(threads);
+        }
+    }
+
+    /**
+     * Fan-out work in the worker queue, ordered by priority, then by submission
+     */
+    private record QueuedTask(Priority priority, long sequence, Runnable task)
+            implements Runnable, Comparable<QueuedTask> {
+        @Override
+        public void run() {
+            runWithPriority(priority, task);
+        }
+
+        @Override
+        public int compareTo(QueuedTask other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private static final class Bulkhead {
+        private final int maxConcurrentCalls;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<Priority, Lane> lanes = new EnumMap<>(Priority.class);
+        private int inFlight;
+        private int peakInFlight;
+
+        Bulkhead(int maxConcurrentCalls) {
+            this.maxConcurrentCalls = maxConcurrentCalls;
+            for (Priority priority : Priority.values()) {
+                lanes.put(priority, new Lane());
+            }
+        }
+
+        ExecutionResult execute(PromptExecutor backend, PromptGenome genome, String task) {
+            Flow flow;
+            try {
+                flow = acquire(currentPriority(), genome);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return ExecutionResult.failure("Interrupted while waiting for a backend slot", 0);
+            }
+
+            try {
+                return backend.execute(genome, task);
+            } finally {
+                release(flow);
+            }
+        }
+
+        <T> T call(Object key, BackendCall<T> call) throws IOException {
+            Flow flow;
+            try {
+                flow = acquire(currentPriority(), key);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for a backend slot");
+            }
+
+            try {
+                return call.call();
+            } finally {
+                release(flow);
+            }
+        }
+
+        private Flow acquire(Priority priority, Object key) throws InterruptedException {
+            lock.lock();
+            try {
+                Lane lane = lanes.get(priority);
+                Flow flow = lane.flows.computeIfAbsent(key, k -> new Flow(lane, k));
+                Ticket ticket = new Ticket(lock.newCondition());
+                flow.waiting.addLast(ticket);
+                dispatch();
+                while (!ticket.granted) {
+                    try {
+                        ticket.condition.await();
+                    } catch (InterruptedException e) {
+                        if (ticket.granted) {
+                            // Slot was granted concurrently, give it back before bailing out
+                            releaseLocked(flow);
+                        } else {
+                            flow.waiting.remove(ticket);
+                            flow.removeIfIdle();
+                        }
+                        throw e;
+                    }
+                }
+                return flow;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void release(Flow flow) {
+            lock.lock();
+            try {
+                releaseLocked(flow);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void releaseLocked(Flow flow) {
+            flow.inFlight--;
+            inFlight--;
+            flow.removeIfIdle();
+            dispatch();
+        }
+
+        private void dispatch() {
+            while (inFlight < maxConcurrentCalls) {
+                Flow next = null;
+                for (Lane lane : lanes.values()) {
+                    next = lane.next();
+                    if (next != null) {
+                        break;
+                    }
+                }
+                if (next == null) {
+                    return;
+                }
+
+                Ticket ticket = next.waiting.removeFirst();
+                ticket.granted = true;
+                next.inFlight++;
+                next.lane.served++;
+                inFlight++;
+                peakInFlight = Math.max(peakInFlight, inFlight);
+                // Round-robin: the genome just served goes behind the others of its lane
+                next.lane.flows.remove(next.key);
+                next.lane.flows.put(next.key, next);
+                ticket.condition.signal();
+            }
+        }
+
+        Map<Priority, Long> served() {
+            lock.lock();
+            try {
+                Map<Priority, Long> served = new EnumMap<>(Priority.class);
+                lanes.forEach((priority, lane) -> served.put(priority, lane.served));
+                return served;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int peakInFlight() {
+            lock.lock();
+            try {
+                return peakInFlight;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static final class Lane {
+        // Genomes (or other request keys) with calls waiting or in flight, least recently served first
+        private final Map<Object, Flow> flows = new LinkedHashMap<>();
+        private long served;
+
+        /**
+         * @return The waiting genome with the fewest calls in flight, or null if none is waiting
+         */
+        Flow next() {
+            Flow next = null;
+            for (Flow flow : flows.values()) {
+                if (!flow.waiting.isEmpty() && (next == null || flow.inFlight < next.inFlight)) {
+                    next = flow;
+                }
+            }
+            return next;
+        }
+    }
+
+    private static final class Flow {
+        private final Lane lane;
+        private final Object key;
+        private final Deque<Ticket> waiting = new ArrayDeque<>();
+        private int inFlight;
+
+        Flow(Lane lane, Object key) {
+            this.lane = lane;
+            this.key = key;
+        }
+
+        void removeIfIdle() {
+            if (inFlight == 0 && waiting.isEmpty()) {
+                lane.flows.remove(key);
+            }
+        }
+    }
+
+    private static final class Ticket {
+        private final Condition condition;
+        private boolean granted;
+
+        Ticket(Condition condition) {
+            this.condition = condition;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.evopromptopt.core.execution;
+
+import com.evopromptopt.core.genome.PromptGenome;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decorates a PromptExecutor and counts the LLM calls and tokens it consumes,
+ * so that compute budgets can be enforced independently of the backend.
+ */
+public class MeteredPromptExecutor implements PromptExecutor {
+    private final PromptExecutor delegate;
+    private final AtomicLong callCount = new AtomicLong();
+    private final AtomicLong failedCallCount = new AtomicLong();
+    private final AtomicLong inputTokens = new AtomicLong();
+    private final AtomicLong outputTokens = new AtomicLong();
+
+    public MeteredPromptExecutor(PromptExecutor delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public ExecutionResult execute(PromptGenome genome, String task) {
+        ExecutionResult result = delegate.execute(genome, task);
+        record(result);
+        return result;
+    }
+
+    /**
+     * Counts a call that reached the model server without going through this executor, such as a
+     * judging prompt of an LLM judge metric, so that it counts against the same budget
+     */
+    public void record(ExecutionResult result) {
+        callCount.incrementAndGet();
+        if (!result.success()) {
+            failedCallCount.incrementAndGet();
+        }
+        inputTokens.addAndGet(result.inputTokens());
+        outputTokens.addAndGet(result.outputTokens());
+    }
+
+    @Override
+    public Object requestKey(PromptGenome genome, String task) {
+        return delegate.requestKey(genome, task);
+    }
+
+    public long getCallCount() {
+        return callCount.get();
+    }
+
+    public long getFailedCallCount() {
+        return failedCallCount.get();
+    }
+
+    public long getInputTokens() {
+        return inputTokens.get();
+    }
+
+    public long getOutputTokens() {
+        return outputTokens.get();
+    }
+
+    /**
+     * @return Sum of {@link ExecutionResult#getTotalTokens()} over all calls
+     */
+    public long getTotalTokens() {
+        return inputTokens.get() + outputTokens.get();
+    }
+}
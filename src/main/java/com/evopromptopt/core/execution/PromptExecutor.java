@@ -2,6 +2,8 @@ package com.evopromptopt.core.execution;
 
 import com.evopromptopt.core.genome.PromptGenome;
 
+import java.util.List;
+
 public interface PromptExecutor {
     /**
      * Executes a prompt with the given genome configuration on a specific task
@@ -11,4 +13,13 @@ public interface PromptExecutor {
      * @return       ExecutionResult containing response and metrics
      */
     ExecutionResult execute(PromptGenome genome, String task);
+
+    /**
+     * Identifies the backend request that executing the genome on the task would send. Calls with
+     * equal keys get equivalent responses, so a batch only needs to execute one of them. Executors
+     * that ignore some genome parameters return a coarser key than the default.
+     */
+    default Object requestKey(PromptGenome genome, String task) {
+        return List.of(genome, task);
+    }
 }
@@ -0,0 +1,45 @@
+package com.evopromptopt.core.execution;
+
+import java.util.function.Supplier;
+
+/**
+ * Marks evaluations that must draw a new sample of a genome's behaviour, such as the repeated
+ * evaluations behind noise estimates. While resampling is active on a thread, stored results and
+ * cached responses are bypassed, so a sample is never a copy of an earlier one.
+ */
+public final class Resampling {
+    private static final ThreadLocal<Boolean> ACTIVE = ThreadLocal.withInitial(() -> false);
+
+    private Resampling() {
+    }
+
+    /**
+     * Runs the work with evaluations on the calling thread drawing new samples
+     */
+    public static <T> T run(Supplier<T> work) {
+        boolean previous = ACTIVE.get();
+        ACTIVE.set(true);
+        try {
+            return work.get();
+        } finally {
+            ACTIVE.set(previous);
+        }
+    }
+
+    public static boolean isActive() {
+        return ACTIVE.get();
+    }
+
+    /**
+     * @return The task, to run on another thread with the resampling state of the calling thread
+     */
+    public static Runnable propagate(Runnable task) {
+        if (!isActive()) {
+            return task;
+        }
+        return () -> run(() -> {
+            task.run();
+            return null;
+        });
+    }
+}
@@ -0,0 +1,89 @@
+package com.evopromptopt.core.execution;
+
+import com.evopromptopt.core.genome.PromptGenome;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread-safe LRU cache of successful execution results keyed by genome and task input.
+ * One instance can be shared by several executors, e.g. across concurrently optimized tasks.
+ * Responses of genomes that sample (temperature above zero) are one draw from the model, so they
+ * are served once and then dropped instead of being frozen for every later call.
+ */
+public class ResponseCache {
+    private final int maxEntries;
+    private final Map<Key, ExecutionResult> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public ResponseCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, ExecutionResult> eldest) {
+                return size() > ResponseCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @return The cached result, or null if the genome has not been executed on this input or its
+     *         sampled response was already served
+     */
+    public ExecutionResult get(PromptGenome genome, String input) {
+        Key key = new Key(genome, input);
+        ExecutionResult result;
+        synchronized (entries) {
+            result = isDeterministic(genome) ? entries.get(key) : entries.remove(key);
+        }
+        if (result != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return result;
+    }
+
+    /**
+     * Stores a result; failed executions are not cached so they can be retried
+     */
+    public void put(PromptGenome genome, String input, ExecutionResult result) {
+        if (!result.success()) {
+            return;
+        }
+        synchronized (entries) {
+            entries.put(new Key(genome, input), result);
+        }
+    }
+
+    public boolean contains(PromptGenome genome, String input) {
+        synchronized (entries) {
+            return entries.containsKey(new Key(genome, input));
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return Whether the genome decodes greedily, so repeating a call returns the same response
+     */
+    private static boolean isDeterministic(PromptGenome genome) {
+        return genome.temperature() <= 0;
+    }
+
+    private record Key(PromptGenome genome, String input) {}
+}
@@ -0,0 +1,210 @@
+package com.evopromptopt.core.execution;
+
+import com.evopromptopt.core.genome.PromptGenome;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Two-priority access to one backend through a shared response cache. Foreground calls go straight
+ * to the backend. Speculative calls run one at a time on a background thread, and only once the
+ * backend has had a free slot (fewer foreground calls in flight than it can serve at once) for a
+ * short grace period. Cancelling drops all queued speculative work and fails speculative calls that
+ * are still waiting for a free slot; a call already sent to the backend runs to completion.
+ */
+public class SpeculativeExecution {
+    private static final Logger logger = LoggerFactory.getLogger(SpeculativeExecution.class);
+
+    private final PromptExecutor backend;
+    private final ResponseCache cache;
+    private final int backendSlots;
+    private final long idleGraceNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private int foregroundInFlight;
+    // Since when fewer than backendSlots foreground calls have been in flight, or -1 while saturated
+    private long spareSinceNanos = System.nanoTime();
+
+    private final AtomicLong epoch = new AtomicLong();
+    private volatile long runningJobEpoch = -1;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "speculative-evaluation");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    private final AtomicLong speculativeCalls = new AtomicLong();
+    private final AtomicLong cancelledCalls = new AtomicLong();
+
+    /**
+     * @param backend      Executor both priorities share
+     * @param cache        Cache that speculative responses are stored in for later foreground use
+     * @param backendSlots Calls the backend serves concurrently; 1 means speculate only when it is idle
+     * @param idleGraceMs  How long a slot must have been free before a speculative call takes it
+     */
+    public SpeculativeExecution(PromptExecutor backend, ResponseCache cache, int backendSlots, long idleGraceMs) {
+        this.backend = backend;
+        this.cache = cache;
+        this.backendSlots = Math.max(1, backendSlots);
+        this.idleGraceNanos = TimeUnit.MILLISECONDS.toNanos(idleGraceMs);
+    }
+
+    /**
+     * @return Executor for regular evaluations
+     */
+    public PromptExecutor foreground() {
+        return new CachingPromptExecutor(new PromptExecutor() {
+            @Override
+            public ExecutionResult execute(PromptGenome genome, String task) {
+                return executeForeground(genome, task);
+            }
+
+            @Override
+            public Object requestKey(PromptGenome genome, String task) {
+                return backend.requestKey(genome, task);
+            }
+        }, cache);
+    }
+
+    /**
+     * @return Executor for speculative evaluations; only to be used from jobs passed to {@link #submit}
+     */
+    public PromptExecutor speculative() {
+        return new CachingPromptExecutor(new PromptExecutor() {
+            @Override
+            public ExecutionResult execute(PromptGenome genome, String task) {
+                return executeSpeculative(genome, task);
+            }
+
+            @Override
+            public Object requestKey(PromptGenome genome, String task) {
+                return backend.requestKey(genome, task);
+            }
+        }, cache);
+    }
+
+    /**
+     * Queues a speculative job; it is skipped if {@link #cancel()} is called before it starts
+     */
+    public void submit(Runnable job) {
+        long jobEpoch = epoch.get();
+        try {
+            worker.execute(() -> {
+                if (jobEpoch != epoch.get()) {
+                    return;
+                }
+                runningJobEpoch = jobEpoch;
+                try {
+                    EvaluationScheduler.runWithPriority(EvaluationScheduler.Priority.SPECULATIVE, job);
+                } catch (RuntimeException e) {
+                    logger.debug("Speculative job failed", e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Shut down, speculation is best effort
+        }
+    }
+
+    /**
+     * Cancels all queued speculative jobs and speculative calls waiting for the backend
+     */
+    public void cancel() {
+        epoch.incrementAndGet();
+        lock.lock();
+        try {
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Whether the speculative job running on the calling thread has been cancelled
+     */
+    public boolean isCancelled() {
+        return runningJobEpoch != epoch.get();
+    }
+
+    public void shutdown() {
+        cancel();
+        worker.shutdownNow();
+    }
+
+    private ExecutionResult executeForeground(PromptGenome genome, String task) {
+        lock.lock();
+        try {
+            foregroundInFlight++;
+            if (foregroundInFlight >= backendSlots) {
+                spareSinceNanos = -1;
+            }
+        } finally {
+            lock.unlock();
+        }
+        try {
+            return backend.execute(genome, task);
+        } finally {
+            lock.lock();
+            try {
+                foregroundInFlight--;
+                if (foregroundInFlight < backendSlots && spareSinceNanos < 0) {
+                    spareSinceNanos = System.nanoTime();
+                }
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private ExecutionResult executeSpeculative(PromptGenome genome, String task) {
+        lock.lock();
+        try {
+            while (true) {
+                if (isCancelled()) {
+                    cancelledCalls.incrementAndGet();
+                    return ExecutionResult.failure("Speculation cancelled", 0);
+                }
+                if (spareSinceNanos < 0) {
+                    changed.await();
+                    continue;
+                }
+                long spareFor = System.nanoTime() - spareSinceNanos;
+                if (spareFor < idleGraceNanos) {
+                    changed.awaitNanos(idleGraceNanos - spareFor);
+                } else {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelledCalls.incrementAndGet();
+            return ExecutionResult.failure("Speculation interrupted", 0);
+        } finally {
+            lock.unlock();
+        }
+
+        speculativeCalls.incrementAndGet();
+        return backend.execute(genome, task);
+    }
+
+    public long getSpeculativeCalls() {
+        return speculativeCalls.get();
+    }
+
+    public long getCancelledCalls() {
+        return cancelledCalls.get();
+    }
+
+    public ResponseCache getCache() {
+        return cache;
+    }
+}
@@ -1,12 +1,21 @@
 package com.evopromptopt.core.execution.ollama;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import okhttp3.*;
+import okio.BufferedSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
 import java.util.concurrent.TimeUnit;
 
 public class OllamaClient {
@@ -55,6 +64,119 @@ public class OllamaClient {
         }
     }
 
+    /**
+     * Streams a generation, passing each chunk of the response to the listener as it arrives. The
+     * listener can stop the generation by returning false, which closes the connection so the
+     * server stops generating.
+     *
+     * @return The response generated so far; {@link OllamaResponse#isDone()} is false if the listener stopped it
+     */
+    public OllamaResponse generateStreaming(OllamaRequest request, Predicate<String> onChunk) throws IOException {
+        request.setStream(true);
+        String jsonRequest = objectMapper.writeValueAsString(request);
+        logger.debug("Sending streaming request to Ollama: {}", jsonRequest);
+
+        RequestBody body = RequestBody.create(jsonRequest, JSON);
+        Request httpRequest = new Request.Builder()
+                .url(baseUrl + "api/generate")
+                .post(body)
+                .build();
+
+        try (Response response = httpClient.newCall(httpRequest).execute()) {
+            if (!response.isSuccessful()) {
+                String errorBody = response.body() != null ? response.body().string() : "No response body";
+                throw new IOException("Ollama request failed with code " + response.code() + ": " + errorBody);
+            }
+
+            OllamaResponse result = new OllamaResponse();
+            StringBuilder text = new StringBuilder();
+            int chunks = 0;
+            BufferedSource source = response.body().source();
+            String line;
+            while ((line = source.readUtf8Line()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                JsonNode chunk = objectMapper.readTree(line);
+                String piece = chunk.path("response").asText("");
+                text.append(piece);
+                chunks++;
+                if (chunk.path("done").asBoolean(false)) {
+                    result.setDone(true);
+                    result.setEvalCount(chunk.path("eval_count").asInt(0));
+                    result.setPromptEvalCount(chunk.path("prompt_eval_count").asInt(0));
+                    break;
+                }
+                if (!onChunk.test(piece)) {
+                    // No final counts when stopped; a chunk is about one token
+                    result.setEvalCount(chunks);
+                    break;
+                }
+            }
+            result.setModel(request.getModel());
+            result.setResponse(text.toString());
+            return result;
+        }
+    }
+
+    /**
+     * Embeds the texts in one request to the embed endpoint. The response is streamed straight into
+     * float arrays instead of being bound to lists of boxed numbers.
+     */
+    public float[][] embed(String model, List<String> texts) throws IOException {
+        String jsonRequest = objectMapper.writeValueAsString(Map.of("model", model, "input", texts));
+        logger.debug("Sending embedding request to Ollama for {} texts", texts.size());
+
+        RequestBody body = RequestBody.create(jsonRequest, JSON);
+        Request httpRequest = new Request.Builder()
+                .url(baseUrl + "api/embed")
+                .post(body)
+                .build();
+
+        try (Response response = httpClient.newCall(httpRequest).execute()) {
+            if (!response.isSuccessful()) {
+                String errorBody = response.body() != null ? response.body().string() : "No response body";
+                throw new IOException("Ollama embedding request failed with code " + response.code() + ": " + errorBody);
+            }
+
+            try (JsonParser parser = objectMapper.getFactory().createParser(response.body().byteStream())) {
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    throw new IOException("Unexpected Ollama embedding response");
+                }
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    parser.nextToken();
+                    if ("embeddings".equals(field)) {
+                        float[][] vectors = readVectors(parser);
+                        if (vectors.length != texts.size()) {
+                            throw new IOException("Ollama returned " + vectors.length + " embeddings for "
+                                                  + texts.size() + " texts");
+                        }
+                        return vectors;
+                    }
+                    parser.skipChildren();
+                }
+            }
+            throw new IOException("Ollama embedding response has no embeddings");
+        }
+    }
+
+    private static float[][] readVectors(JsonParser parser) throws IOException {
+        List<float[]> vectors = new ArrayList<>();
+        float[] buffer = new float[1024];
+        while (parser.nextToken() == JsonToken.START_ARRAY) {
+            int dimension = 0;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (dimension == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                buffer[dimension++] = parser.getFloatValue();
+            }
+            vectors.add(Arrays.copyOf(buffer, dimension));
+        }
+        return vectors.toArray(new float[0][]);
+    }
+
     public boolean isAvailable() {
         try {
             Request request = new Request.Builder()
@@ -1,5 +1,6 @@
 package com.evopromptopt.core.execution.ollama;
 
+import com.evopromptopt.core.evaluation.FormatValidator;
 import com.evopromptopt.core.execution.ExecutionResult;
 import com.evopromptopt.core.execution.PromptExecutor;
 import com.evopromptopt.core.genome.PromptGenome;
@@ -7,16 +8,27 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.List;
 
 public class OllamaPromptExecutor implements PromptExecutor {
     private static final Logger logger = LoggerFactory.getLogger(OllamaPromptExecutor.class);
 
     private final OllamaClient ollamaClient;
     private final String modelName;
+    private final boolean formatGuard;
 
-    public OllamaPromptExecutor(OllamaClient ollamaClient, String modelName) {
+    /**
+     * @param formatGuard Stream the responses of genomes with the "json" response format and stop
+     *                    as soon as the output can no longer be valid JSON
+     */
+    public OllamaPromptExecutor(OllamaClient ollamaClient, String modelName, boolean formatGuard) {
         this.ollamaClient = ollamaClient;
         this.modelName = modelName;
+        this.formatGuard = formatGuard;
+    }
+
+    public OllamaPromptExecutor(OllamaClient ollamaClient, String modelName) {
+        this(ollamaClient, modelName, false);
     }
 
     public OllamaPromptExecutor(String modelName) {
@@ -29,9 +41,7 @@ public class OllamaPromptExecutor implements PromptExecutor {
 
         try {
             // Construct the prompt from template
-            String prompt = genome.promptTemplate()
-                    .replace("{system_prompt}", genome.systemPrompt())
-                    .replace("{task}", task);
+            String prompt = renderPrompt(genome, task);
 
             // Create Ollama request with genome parameters
             var options = new OllamaRequest.Options(
@@ -44,6 +54,10 @@ public class OllamaPromptExecutor implements PromptExecutor {
 
             var request = new OllamaRequest(modelName, prompt, genome.systemPrompt(), options);
 
+            if (guardsFormat(genome)) {
+                return executeGuarded(request, startTime);
+            }
+
             // Execute the request
             var response = ollamaClient.generate(request);
             long executionTime = System.currentTimeMillis() - startTime;
@@ -72,6 +86,59 @@ public class OllamaPromptExecutor implements PromptExecutor {
         }
     }
 
+    /**
+     * Streams the response through a JSON validator and abandons the generation at the first
+     * character that makes the output malformed
+     */
+    private ExecutionResult executeGuarded(OllamaRequest request, long startTime) throws IOException {
+        FormatValidator validator = FormatValidator.forFormat("json", null);
+        var response = ollamaClient.generateStreaming(request, validator::accept);
+        long executionTime = System.currentTimeMillis() - startTime;
+        if (!response.isDone()) {
+            logger.debug("Stopped malformed JSON output after {} characters: {}",
+                         response.getResponse().length(), validator.problem());
+            return new ExecutionResult(
+                    "",
+                    false,
+                    "Malformed JSON output, stopped after " + response.getResponse().length() + " characters: "
+                    + validator.problem(),
+                    executionTime,
+                    response.getEvalCount(),
+                    response.getPromptEvalCount()
+            );
+        }
+        return new ExecutionResult(
+                response.getResponse().trim(),
+                true,
+                null,
+                executionTime,
+                response.getEvalCount(),
+                response.getPromptEvalCount()
+        );
+    }
+
+    private boolean guardsFormat(PromptGenome genome) {
+        return formatGuard && "json".equals(genome.responseFormat());
+    }
+
+    /**
+     * Only the rendered prompt, the system prompt and the sampling options reach Ollama; genomes that
+     * differ in instruction style, tool policy or response format send identical requests. With the
+     * format guard, JSON genomes are executed differently and get keys of their own.
+     */
+    @Override
+    public Object requestKey(PromptGenome genome, String task) {
+        return List.of(renderPrompt(genome, task), genome.systemPrompt(), genome.temperature(),
+                       genome.maxTokens(), genome.topP(), genome.topK(), genome.repeatPenalty(),
+                       guardsFormat(genome));
+    }
+
+    private static String renderPrompt(PromptGenome genome, String task) {
+        return genome.promptTemplate()
+                .replace("{system_prompt}", genome.systemPrompt())
+                .replace("{task}", task);
+    }
+
     public boolean isAvailable() {
         return ollamaClient.isAvailable();
     }
@@ -0,0 +1,100 @@
+package com.evopromptopt.core.fitness;
+
+import com.evopromptopt.core.genome.PromptGenome;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Running mean and variance of the fitness samples of every evaluated genome. A genome that is
+ * evaluated repeatedly (re-sampled, or re-created by the GA) accumulates samples, so its fitness
+ * estimate gets tighter over time.
+ */
+public class FitnessEstimates {
+    private static final double Z_95 = 1.96;
+
+    private final Map<PromptGenome, Accumulator> accumulators = new ConcurrentHashMap<>();
+
+    /**
+     * Adds a fitness sample for the genome
+     *
+     * @return The updated estimate
+     */
+    public Estimate record(PromptGenome genome, double fitness) {
+        return accumulators.computeIfAbsent(genome, k -> new Accumulator()).add(fitness);
+    }
+
+    public Optional<Estimate> get(PromptGenome genome) {
+        Accumulator accumulator = accumulators.get(genome);
+        return accumulator != null ? Optional.of(accumulator.snapshot()) : Optional.empty();
+    }
+
+    /**
+     * Within-genome variance pooled over all genomes with at least two samples, used as the
+     * noise level of genomes sampled only once
+     *
+     * @return The pooled variance, or NaN if no genome has been sampled twice
+     */
+    public double pooledVariance() {
+        double squares = 0.0;
+        long degreesOfFreedom = 0;
+        for (Accumulator accumulator : accumulators.values()) {
+            Estimate estimate = accumulator.snapshot();
+            if (estimate.count() > 1) {
+                squares += estimate.variance() * (estimate.count() - 1);
+                degreesOfFreedom += estimate.count() - 1;
+            }
+        }
+        return degreesOfFreedom > 0 ? squares / degreesOfFreedom : Double.NaN;
+    }
+
+    public int size() {
+        return accumulators.size();
+    }
+
+    /**
+     * Fitness estimate of one genome
+     */
+    public record Estimate(long count, double mean, double variance) {
+        public double standardError() {
+            return count > 0 ? Math.sqrt(variance / count) : Double.POSITIVE_INFINITY;
+        }
+
+        /**
+         * @return Half-width of the 95% confidence interval of the mean
+         */
+        public double confidenceHalfWidth() {
+            return Z_95 * standardError();
+        }
+
+        public double lower() {
+            return mean - confidenceHalfWidth();
+        }
+
+        public double upper() {
+            return mean + confidenceHalfWidth();
+        }
+    }
+
+    /**
+     * Welford accumulator of the samples of one genome
+     */
+    private static final class Accumulator {
+        private long count;
+        private double mean;
+        private double squares;
+
+        synchronized Estimate add(double fitness) {
+            count++;
+            double delta = fitness - mean;
+            mean += delta / count;
+            squares += delta * (fitness - mean);
+            return snapshot();
+        }
+
+        synchronized Estimate snapshot() {
+            return new Estimate(count, mean, count > 1 ? squares / (count - 1) : 0.0);
+        }
+    }
+}
@@ -6,9 +6,16 @@ import com.evopromptopt.core.genome.PromptGenome;
 import com.evopromptopt.core.genome.PromptGenotypeFactory;
 import com.evopromptopt.core.tasks.TaskDefinition;
 import com.evopromptopt.core.tasks.TaskRunner;
+import com.evopromptopt.core.tasks.TestCaseSampler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
 /**
  * Fitness function that evaluates prompt genomes using actual task execution and evaluation metrics
  */
@@ -20,6 +27,10 @@ public final class PromptFitness {
     private final double executionTimeWeight;
     private final double successRateWeight;
     private final double scoreWeight;
+    private final TestCaseSampler sampler;
+    private final FitnessEstimates estimates;
+    // Genomes whose last fitness is the lower bound of a pruned evaluation
+    private final Set<PromptGenome> lowerBounds = ConcurrentHashMap.newKeySet();
 
     private PromptFitness() {
         // Private constructor for static methods
@@ -28,6 +39,8 @@ public final class PromptFitness {
         this.executionTimeWeight = 0.1;
         this.successRateWeight = 0.3;
         this.scoreWeight = 0.6;
+        this.sampler = null;
+        this.estimates = null;
     }
 
     public PromptFitness(TaskRunner taskRunner, TaskDefinition taskDefinition) {
@@ -36,23 +49,112 @@ public final class PromptFitness {
 
     public PromptFitness(TaskRunner taskRunner, TaskDefinition taskDefinition,
                         double executionTimeWeight, double successRateWeight, double scoreWeight) {
+        this(taskRunner, taskDefinition, executionTimeWeight, successRateWeight, scoreWeight, null);
+    }
+
+    /**
+     * Creates a fitness function that scores genomes on the sampler's current mini-batch
+     * instead of the full test suite. A null sampler evaluates every test case.
+     */
+    public PromptFitness(TaskRunner taskRunner, TaskDefinition taskDefinition,
+                        double executionTimeWeight, double successRateWeight, double scoreWeight,
+                        TestCaseSampler sampler) {
+        this(taskRunner, taskDefinition, executionTimeWeight, successRateWeight, scoreWeight, sampler, null);
+    }
+
+    /**
+     * Creates a fitness function that additionally accumulates the samples of each genome. With
+     * estimates, repeated evaluations of the same genome return the running mean of its samples.
+     */
+    public PromptFitness(TaskRunner taskRunner, TaskDefinition taskDefinition,
+                        double executionTimeWeight, double successRateWeight, double scoreWeight,
+                        TestCaseSampler sampler, FitnessEstimates estimates) {
         this.taskRunner = taskRunner;
         this.taskDefinition = taskDefinition;
         this.executionTimeWeight = executionTimeWeight;
         this.successRateWeight = successRateWeight;
         this.scoreWeight = scoreWeight;
+        this.sampler = sampler;
+        this.estimates = estimates;
     }
 
     /**
      * Evaluates a genotype by decoding it to a PromptGenome and running task evaluation
      */
     public double evaluate(Genotype<IntegerGene> genotype) {
-        try {
-            // Decode genotype to PromptGenome
-            PromptGenome genome = PromptGenotypeFactory.decode(genotype);
+        PromptGenome genome = PromptGenotypeFactory.decode(genotype);
+        return estimate(genome, evaluate(genome, sampler != null ? sampler.currentBatch() : taskDefinition.getTestCases()));
+    }
+
+    /**
+     * Evaluates a genotype on every test case of the task, regardless of mini-batching
+     */
+    public double evaluateFull(Genotype<IntegerGene> genotype) {
+        PromptGenome genome = PromptGenotypeFactory.decode(genotype);
+        Sample sample = evaluate(genome, taskDefinition.getTestCases());
+        markLowerBound(genome, sample.pruned());
+        return sample.fitness();
+    }
 
+    /**
+     * @return Whether the genome's last fitness is only a lower bound, because its evaluation was pruned
+     *         before the expensive metrics ran; such fitness must not be reused, archived or averaged
+     */
+    public boolean isLowerBound(PromptGenome genome) {
+        return lowerBounds.contains(genome);
+    }
+
+    /**
+     * Evaluates many genotypes as one batch on the current mini-batch (or full suite), so the task
+     * runner can plan all their calls together
+     *
+     * @return Fitness per genotype in input order, and the execution report of the batch
+     */
+    public PopulationFitness evaluatePopulation(List<Genotype<IntegerGene>> genotypes,
+                                                Executor executor, int parallelism) {
+        List<PromptGenome> genomes = genotypes.stream().map(PromptGenotypeFactory::decode).toList();
+        var evaluation = taskRunner.evaluatePopulation(
+                genomes, taskDefinition,
+                sampler != null ? sampler.currentBatch() : taskDefinition.getTestCases(),
+                executor, parallelism
+        );
+
+        double[] fitness = new double[genomes.size()];
+        for (int i = 0; i < fitness.length; i++) {
+            var result = evaluation.results().get(i);
+            fitness[i] = estimate(genomes.get(i), new Sample(calculateFitness(result), result.pruned()));
+            logger.debug("Genome fitness: {} (score: {}, success: {}, time: {}ms)",
+                        fitness[i], result.overallScore(), result.successRate(), result.totalExecutionTimeMs());
+        }
+        return new PopulationFitness(fitness, evaluation.report());
+    }
+
+    /**
+     * Adds a sample to the genome's estimate. A pruned sample is only a lower bound, so it is not
+     * recorded, and the genome keeps the estimate of its earlier samples if it has one.
+     */
+    private double estimate(PromptGenome genome, Sample sample) {
+        if (estimates == null || !sample.pruned()) {
+            markLowerBound(genome, sample.pruned());
+            return estimates != null ? estimates.record(genome, sample.fitness()).mean() : sample.fitness();
+        }
+        Optional<FitnessEstimates.Estimate> known = estimates.get(genome);
+        markLowerBound(genome, known.isEmpty());
+        return known.map(FitnessEstimates.Estimate::mean).orElse(sample.fitness());
+    }
+
+    private void markLowerBound(PromptGenome genome, boolean lowerBound) {
+        if (lowerBound) {
+            lowerBounds.add(genome);
+        } else {
+            lowerBounds.remove(genome);
+        }
+    }
+
+    private Sample evaluate(PromptGenome genome, List<TaskDefinition.TestCase> testCases) {
+        try {
             // Run task evaluation
-            var result = taskRunner.evaluateGenome(genome, taskDefinition);
+            var result = taskRunner.evaluateGenome(genome, taskDefinition, testCases);
 
             // Calculate composite fitness score
             double fitnessScore = calculateFitness(result);
@@ -60,17 +162,17 @@ public final class PromptFitness {
             logger.debug("Genome fitness: {} (score: {}, success: {}, time: {}ms)",
                         fitnessScore, result.overallScore(), result.successRate(), result.totalExecutionTimeMs());
 
-            return fitnessScore;
+            return new Sample(fitnessScore, result.pruned());
 
         } catch (Exception e) {
             logger.error("Failed to evaluate genome fitness", e);
-            return 0.0; // Return minimum fitness for failed evaluations
+            return new Sample(0.0, false); // Return minimum fitness for failed evaluations
         }
     }
 
     private double calculateFitness(TaskRunner.TaskEvaluationResult result) {
         // Normalize execution time (assume max reasonable time is 10 seconds per test case)
-        double maxReasonableTime = taskDefinition.getTestCases().size() * 10000.0; // 10 seconds per test case
+        double maxReasonableTime = Math.max(1, result.testCaseCount()) * 10000.0; // 10 seconds per test case
         double timeScore = Math.max(0.0, 1.0 - (result.totalExecutionTimeMs() / maxReasonableTime));
 
         // Combine different aspects of performance
@@ -81,4 +183,21 @@ public final class PromptFitness {
         return Math.max(0.0, Math.min(1.0, fitness)); // Clamp to [0, 1]
     }
 
+    public TestCaseSampler getSampler() {
+        return sampler;
+    }
+
+    /**
+     * @return The per-genome fitness estimates, or null if samples are not tracked
+     */
+    public FitnessEstimates getEstimates() {
+        return estimates;
+    }
+
+    private record Sample(double fitness, boolean pruned) {}
+
+    /**
+     * Fitness of a batch of genotypes
+     */
+    public record PopulationFitness(double[] fitness, TaskRunner.BatchExecutionReport report) {}
 }
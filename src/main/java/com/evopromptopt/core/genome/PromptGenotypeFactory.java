@@ -15,6 +15,18 @@ public final class PromptGenotypeFactory {
     public static final int TOP_K_INDEX = 7;
     public static final int REPEAT_PENALTY_INDEX = 8;
     public static final int RESPONSE_FORMAT_INDEX = 9;
+    public static final int GENE_COUNT = 10;
+
+    // Numeric sampling parameters, tuned by the inner optimizer in hybrid mode
+    private static final int[] SAMPLING_GENE_INDEXES = {
+        TEMPERATURE_INDEX, TOP_P_INDEX, TOP_K_INDEX, REPEAT_PENALTY_INDEX
+    };
+
+    // Gene names by chromosome index, for reporting
+    private static final String[] GENE_NAMES = {
+        "systemPrompt", "promptTemplate", "instructionStyle", "toolPolicy", "temperature",
+        "maxTokens", "topP", "topK", "repeatPenalty", "responseFormat"
+    };
 
     // System prompts array
     private static final String[] SYSTEM_PROMPTS = {
@@ -100,4 +112,21 @@ public final class PromptGenotypeFactory {
     public static String[] getResponseFormats() {
         return RESPONSE_FORMATS.clone();
     }
+
+    public static String geneName(int index) {
+        return GENE_NAMES[index];
+    }
+
+    public static int[] getSamplingGeneIndexes() {
+        return SAMPLING_GENE_INDEXES.clone();
+    }
+
+    public static boolean isSamplingGene(int index) {
+        for (int samplingIndex : SAMPLING_GENE_INDEXES) {
+            if (samplingIndex == index) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
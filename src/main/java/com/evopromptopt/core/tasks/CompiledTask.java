@@ -0,0 +1,363 @@
+package com.evopromptopt.core.tasks;
+
+import com.evopromptopt.core.evaluation.OverlapEvaluator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A task compiled into one binary file that loads by memory-mapping it: the task's header (name,
+ * description, evaluation and configuration) as JSON, a table of test cases pointing into a pool of
+ * de-duplicated UTF-8 strings, and the word hashes of every distinct expected output so overlap
+ * metrics need not tokenize references. Test cases are decoded when read. The file records the
+ * source files it was compiled from, so a stale compilation can be recognized.
+ *
+ * <p>Layout, big-endian: magic, version, case count, pool size, pool data length, distinct expected
+ * outputs, reference slots, word count, header length; then the header, the cases (input, expected
+ * output and metadata string ids), the string ids of the distinct expected outputs in first-seen
+ * order, the pool offsets, the pool data, the reference hash table (string hash, first word, word
+ * count) and the word hashes.
+ */
+public final class CompiledTask extends LazyTestCaseList {
+    public static final String EXTENSION = ".evotask";
+
+    private static final int MAGIC = 0x45565431; // "EVT1"
+    private static final int VERSION = 1;
+    private static final int FIXED_HEADER = 36;
+    private static final int CASE_BYTES = 12;
+    private static final int SLOT_BYTES = 16;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Path file;
+    private final MappedByteBuffer buffer;
+    private final ObjectNode header;
+    private final int caseCount;
+    private final int casesOffset;
+    private final int expectedCount;
+    private final int expectedOffset;
+    private final int poolOffsetsOffset;
+    private final int poolDataOffset;
+    private final int referenceSlots;
+    private final int referencesOffset;
+    private final int wordsOffset;
+
+    private CompiledTask(Path file, MappedByteBuffer buffer) throws IOException {
+        this.file = file;
+        this.buffer = buffer;
+        if (buffer.capacity() < FIXED_HEADER || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a compiled task: " + file);
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported compiled task version " + buffer.getInt(4) + ": " + file);
+        }
+        this.caseCount = buffer.getInt(8);
+        int poolSize = buffer.getInt(12);
+        int poolDataLength = buffer.getInt(16);
+        this.expectedCount = buffer.getInt(20);
+        this.referenceSlots = buffer.getInt(24);
+        int wordCount = buffer.getInt(28);
+        int headerLength = buffer.getInt(32);
+
+        this.casesOffset = FIXED_HEADER + headerLength;
+        this.expectedOffset = casesOffset + caseCount * CASE_BYTES;
+        this.poolOffsetsOffset = expectedOffset + expectedCount * 4;
+        this.poolDataOffset = poolOffsetsOffset + (poolSize + 1) * 4;
+        this.referencesOffset = poolDataOffset + poolDataLength;
+        this.wordsOffset = referencesOffset + referenceSlots * SLOT_BYTES;
+        if ((long) wordsOffset + wordCount * 8L != buffer.capacity()) {
+            throw new IOException("Compiled task is truncated or corrupt: " + file);
+        }
+
+        byte[] headerBytes = new byte[headerLength];
+        buffer.get(FIXED_HEADER, headerBytes);
+        this.header = (ObjectNode) MAPPER.readTree(headerBytes);
+    }
+
+    public static CompiledTask open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new CompiledTask(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * @return Whether the file starts like a compiled task
+     */
+    public static boolean isCompiled(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] magic = in.readNBytes(4);
+            return magic.length == 4 && ByteBuffer.wrap(magic).getInt() == MAGIC;
+        }
+    }
+
+    /**
+     * @return Where the compiled form of a task file is looked for: next to it, with {@link #EXTENSION}
+     */
+    public static Path compiledPathFor(Path taskFile) {
+        String name = taskFile.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return taskFile.resolveSibling((dot > 0 ? name.substring(0, dot) : name) + EXTENSION);
+    }
+
+    /**
+     * Writes a compiled task, replacing the target only once it is complete
+     *
+     * @param header  Task definition without its test cases
+     * @param sources Files the task was read from, checked by {@link #isCurrent}
+     */
+    public static void write(ObjectNode header, List<TaskDefinition.TestCase> testCases, List<Path> sources,
+                             Path target) throws IOException {
+        ObjectNode stamped = header.deepCopy();
+        var compiledFrom = stamped.putArray("compiledFrom");
+        for (Path source : sources) {
+            compiledFrom.addObject()
+                    .put("path", source.toAbsolutePath().toString())
+                    .put("lastModified", Files.getLastModifiedTime(source).toMillis());
+        }
+        byte[] headerBytes = MAPPER.writeValueAsBytes(stamped);
+
+        // Pool every distinct string once; cases refer to them by id
+        Map<String, Integer> poolIds = new HashMap<>();
+        List<byte[]> pool = new ArrayList<>();
+        int[] cases = new int[testCases.size() * 3];
+        Set<Integer> expectedIds = new LinkedHashSet<>();
+        long poolDataLength = 0;
+        for (int i = 0; i < testCases.size(); i++) {
+            TaskDefinition.TestCase testCase = testCases.get(i);
+            String metadata = testCase.getMetadata() == null || testCase.getMetadata().isEmpty() ?
+                    null : MAPPER.writeValueAsString(testCase.getMetadata());
+            String[] strings = {testCase.getInput(), testCase.getExpectedOutput(), metadata};
+            for (int field = 0; field < 3; field++) {
+                String value = strings[field];
+                if (value == null) {
+                    cases[i * 3 + field] = -1;
+                    continue;
+                }
+                Integer id = poolIds.get(value);
+                if (id == null) {
+                    id = pool.size();
+                    poolIds.put(value, id);
+                    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                    pool.add(bytes);
+                    poolDataLength += bytes.length;
+                }
+                if (field == 1) {
+                    expectedIds.add(id);
+                }
+                cases[i * 3 + field] = id;
+            }
+        }
+
+        // Open-addressing table from the hash of each distinct expected output to its word hashes
+        int slots = Integer.highestOneBit(Math.max(8, expectedIds.size() * 2 - 1)) << 1;
+        long[] slotHashes = new long[slots];
+        int[] slotFirstWord = new int[slots];
+        int[] slotWordCount = new int[slots];
+        Arrays.fill(slotWordCount, -1);
+        List<long[]> words = new ArrayList<>();
+        long wordCount = 0;
+        for (int id : expectedIds) {
+            String expected = new String(pool.get(id), StandardCharsets.UTF_8);
+            long hash = hash(expected);
+            int slot = (int) hash & (slots - 1);
+            while (slotWordCount[slot] >= 0 && slotHashes[slot] != hash) {
+                slot = (slot + 1) & (slots - 1);
+            }
+            if (slotWordCount[slot] >= 0) {
+                continue;
+            }
+            long[] hashes = OverlapEvaluator.wordHashes(expected);
+            slotHashes[slot] = hash;
+            slotFirstWord[slot] = (int) wordCount;
+            slotWordCount[slot] = hashes.length;
+            words.add(hashes);
+            wordCount += hashes.length;
+        }
+
+        long size = FIXED_HEADER + headerBytes.length + (long) cases.length * 4 + expectedIds.size() * 4L
+                + (pool.size() + 1) * 4L
+                + poolDataLength + (long) slots * SLOT_BYTES + wordCount * 8;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Compiled task would exceed 2 GB: " + size + " bytes");
+        }
+
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(testCases.size());
+            out.writeInt(pool.size());
+            out.writeInt((int) poolDataLength);
+            out.writeInt(expectedIds.size());
+            out.writeInt(slots);
+            out.writeInt((int) wordCount);
+            out.writeInt(headerBytes.length);
+            out.write(headerBytes);
+            for (int id : cases) {
+                out.writeInt(id);
+            }
+            for (int id : expectedIds) {
+                out.writeInt(id);
+            }
+            int offset = 0;
+            for (byte[] bytes : pool) {
+                out.writeInt(offset);
+                offset += bytes.length;
+            }
+            out.writeInt(offset);
+            for (byte[] bytes : pool) {
+                out.write(bytes);
+            }
+            for (int slot = 0; slot < slots; slot++) {
+                out.writeLong(slotHashes[slot]);
+                out.writeInt(slotFirstWord[slot]);
+                out.writeInt(slotWordCount[slot]);
+            }
+            for (long[] hashes : words) {
+                for (long word : hashes) {
+                    out.writeLong(word);
+                }
+            }
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return The task definition without its test cases, as written by {@link #write}
+     */
+    public ObjectNode header() {
+        return header;
+    }
+
+    /**
+     * @return Whether every source file still has the modification time it had when compiled
+     */
+    public boolean isCurrent() {
+        JsonNode sources = header.get("compiledFrom");
+        if (sources == null) {
+            return false;
+        }
+        for (JsonNode source : sources) {
+            Path path = Path.of(source.get("path").asText());
+            try {
+                if (!Files.exists(path) || Files.getLastModifiedTime(path).toMillis() != source.get("lastModified").asLong()) {
+                    return false;
+                }
+            } catch (IOException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The distinct expected outputs of the test cases, in order of first appearance
+     */
+    public List<String> expectedOutputs() {
+        List<String> expectedOutputs = new ArrayList<>(expectedCount);
+        for (int i = 0; i < expectedCount; i++) {
+            expectedOutputs.add(string(buffer.getInt(expectedOffset + i * 4)));
+        }
+        return expectedOutputs;
+    }
+
+    /**
+     * @return Precomputed {@link OverlapEvaluator#wordHashes} of an expected output of this task,
+     * null for any other text
+     */
+    public long[] referenceWords(String expectedOutput) {
+        long hash = hash(expectedOutput);
+        int mask = referenceSlots - 1;
+        for (int slot = (int) hash & mask; ; slot = (slot + 1) & mask) {
+            int position = referencesOffset + slot * SLOT_BYTES;
+            int count = buffer.getInt(position + 12);
+            if (count < 0) {
+                return null;
+            }
+            if (buffer.getLong(position) == hash) {
+                long[] words = new long[count];
+                int first = wordsOffset + buffer.getInt(position + 8) * 8;
+                for (int i = 0; i < count; i++) {
+                    words[i] = buffer.getLong(first + i * 8);
+                }
+                return words;
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return caseCount;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    @Override
+    protected TaskDefinition.TestCase read(int index) {
+        int position = casesOffset + index * CASE_BYTES;
+        String input = string(buffer.getInt(position));
+        String expectedOutput = string(buffer.getInt(position + 4));
+        String metadata = string(buffer.getInt(position + 8));
+        return new TaskDefinition.TestCase(input, expectedOutput != null ? expectedOutput : "",
+                                           metadata != null ? metadata(metadata) : Map.of());
+    }
+
+    private String string(int id) {
+        if (id < 0) {
+            return null;
+        }
+        int start = buffer.getInt(poolOffsetsOffset + id * 4);
+        int end = buffer.getInt(poolOffsetsOffset + (id + 1) * 4);
+        byte[] bytes = new byte[end - start];
+        buffer.get(poolDataOffset + start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private Map<String, Object> metadata(String json) {
+        try {
+            JsonNode node = MAPPER.readTree(json);
+            Map<String, Object> metadata = new LinkedHashMap<>();
+            node.fieldNames().forEachRemaining(name -> metadata.put(name, node.get(name).asText()));
+            return metadata;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupt metadata in " + file, e);
+        }
+    }
+
+    /**
+     * 64-bit FNV-1a over the characters, finished with a mixing step so the low bits pick table slots well
+     */
+    private static long hash(String text) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < text.length(); i++) {
+            hash = (hash ^ text.charAt(i)) * 0x100000001B3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,28 @@
+package com.evopromptopt.core.tasks;
+
+import com.evopromptopt.core.genome.PromptGenome;
+
+import java.io.IOException;
+
+/**
+ * Receives the result of every test case the task runner scores, as each genome's evaluation
+ * completes, so per-case detail such as inputs and outputs can be written out instead of being
+ * kept in memory with the genome's {@link TaskRunner.TaskEvaluationResult}.
+ */
+@FunctionalInterface
+public interface EvaluationResultSink extends AutoCloseable {
+    /**
+     * Sink that drops every result
+     */
+    EvaluationResultSink DISCARD = (taskName, genome, testCase, result) -> {};
+
+    void record(String taskName, PromptGenome genome, TaskDefinition.TestCase testCase,
+                TaskRunner.TestCaseResult result);
+
+    default void flush() throws IOException {
+    }
+
+    @Override
+    default void close() throws IOException {
+    }
+}
@@ -0,0 +1,207 @@
+package com.evopromptopt.core.tasks;
+
+import com.evopromptopt.core.genome.PromptGenome;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Appends test case results to a JSON-lines file from a background thread. Results are handed over
+ * through a bounded queue, so evaluation only waits when the disk falls behind, and memory use stays
+ * at the queue's capacity however many results are written. Each distinct genome is written once as
+ * a {@code genome} line with its content hash as id; result lines refer to it by that id.
+ */
+public final class JsonlResultSink implements EvaluationResultSink {
+    private static final Logger logger = LoggerFactory.getLogger(JsonlResultSink.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int QUEUE_CAPACITY = 4096;
+
+    private final Path file;
+    private final BufferedWriter writer;
+    private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread writerThread;
+    // Ids of the genomes already written, only touched by the writer thread
+    private final Map<PromptGenome, String> genomeIds = new HashMap<>();
+    private volatile boolean closed;
+    private volatile long written;
+    private boolean failed;
+
+    private record Entry(String taskName, PromptGenome genome, TaskDefinition.TestCase testCase,
+                         TaskRunner.TestCaseResult result) {}
+
+    private record Flush(CountDownLatch done) {}
+
+    private static final Object STOP = new Object();
+
+    private JsonlResultSink(Path file, BufferedWriter writer) {
+        this.file = file;
+        this.writer = writer;
+        this.writerThread = new Thread(this::drain, "result-sink-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Opens the file for appending, creating it and its directory if needed
+     */
+    public static JsonlResultSink open(Path file) throws IOException {
+        if (file.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+        }
+        BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                                                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        return new JsonlResultSink(file, writer);
+    }
+
+    @Override
+    public void record(String taskName, PromptGenome genome, TaskDefinition.TestCase testCase,
+                       TaskRunner.TestCaseResult result) {
+        if (closed) {
+            return;
+        }
+        try {
+            queue.put(new Entry(taskName, genome, testCase, result));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits until every result recorded so far is written to the file
+     */
+    @Override
+    public void flush() throws IOException {
+        if (closed) {
+            return;
+        }
+        var flush = new Flush(new CountDownLatch(1));
+        try {
+            queue.put(flush);
+            flush.done().await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while flushing " + file);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            queue.put(STOP);
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * @return Result lines written so far
+     */
+    public long getWritten() {
+        return written;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    private void drain() {
+        while (true) {
+            Object item;
+            try {
+                item = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                if (item == STOP) {
+                    writer.flush();
+                    return;
+                }
+                if (item instanceof Flush) {
+                    writer.flush();
+                } else if (!failed) {
+                    write((Entry) item);
+                    if (queue.isEmpty()) {
+                        // Idle: push the buffer out, so the file trails evaluation by little
+                        writer.flush();
+                    }
+                }
+            } catch (IOException e) {
+                // Keep draining so evaluation never blocks on a broken file
+                failed = true;
+                logger.warn("Failed to write to result sink {}, further results are dropped", file, e);
+            } catch (RuntimeException e) {
+                // A result that cannot be serialized only loses its own line
+                logger.warn("Failed to write a result to result sink {}", file, e);
+            } finally {
+                if (item instanceof Flush flush) {
+                    flush.done().countDown();
+                }
+            }
+        }
+    }
+
+    private void write(Entry entry) throws IOException {
+        String genomeId = genomeIds.get(entry.genome());
+        if (genomeId == null) {
+            genomeId = genomeId(entry.genome());
+            genomeIds.put(entry.genome(), genomeId);
+            ObjectNode line = MAPPER.createObjectNode();
+            line.put("genomeId", genomeId);
+            line.set("genome", MAPPER.valueToTree(entry.genome()));
+            writer.write(MAPPER.writeValueAsString(line));
+            writer.newLine();
+        }
+
+        TaskRunner.TestCaseResult result = entry.result();
+        ObjectNode line = MAPPER.createObjectNode();
+        line.put("task", entry.taskName());
+        line.put("genomeId", genomeId);
+        line.put("input", result.input());
+        line.put("expectedOutput", entry.testCase().getExpectedOutput());
+        line.put("actualOutput", result.actualOutput());
+        line.put("score", result.score());
+        line.put("success", result.success());
+        line.put("executionTimeMs", result.executionTimeMs());
+        if (result.errorMessage() != null) {
+            line.put("errorMessage", result.errorMessage());
+        }
+        writer.write(MAPPER.writeValueAsString(line));
+        writer.newLine();
+        written++;
+    }
+
+    private static String genomeId(PromptGenome genome) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(genome.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
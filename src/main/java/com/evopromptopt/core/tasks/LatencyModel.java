@@ -0,0 +1,50 @@
+package com.evopromptopt.core.tasks;
+
+/**
+ * Online linear model of call latency over the expected number of tokens processed (prompt tokens
+ * plus the tokens the response is expected to generate). Only used to order calls, so a rough fit
+ * is enough; until two calls have been observed the token count itself is the prediction.
+ */
+final class LatencyModel {
+    private static final double CHARS_PER_TOKEN = 4.0;
+    private static final double TYPICAL_OUTPUT_QUANTILE = 0.9;
+
+    private final TokenUsageStatistics tokenUsage;
+
+    private long count;
+    private double sumX;
+    private double sumY;
+    private double sumXX;
+    private double sumXY;
+
+    LatencyModel(TokenUsageStatistics tokenUsage) {
+        this.tokenUsage = tokenUsage;
+    }
+
+    /**
+     * @return Tokens a call is expected to process, bounded by the genome's max-tokens limit
+     */
+    double expectedTokens(String input, int maxTokens) {
+        int typicalOutput = tokenUsage.quantile(TYPICAL_OUTPUT_QUANTILE);
+        int expectedOutput = typicalOutput > 0 ? Math.min(maxTokens, typicalOutput) : maxTokens;
+        return input.length() / CHARS_PER_TOKEN + expectedOutput;
+    }
+
+    synchronized void observe(double tokens, long latencyMs) {
+        count++;
+        sumX += tokens;
+        sumY += latencyMs;
+        sumXX += tokens * tokens;
+        sumXY += tokens * latencyMs;
+    }
+
+    synchronized double predictMs(double tokens) {
+        double denominator = count * sumXX - sumX * sumX;
+        if (count < 2 || denominator <= 0) {
+            return tokens;
+        }
+        double slope = (count * sumXY - sumX * sumY) / denominator;
+        double intercept = (sumY - slope * sumX) / count;
+        return Math.max(0.0, intercept + slope * tokens);
+    }
+}
@@ -0,0 +1,60 @@
+package com.evopromptopt.core.tasks;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * Immutable list of test cases that are decoded from a file when read rather than held in memory.
+ * Recently read cases are kept in a small direct-mapped cache; cases are immutable, so racing writes
+ * to the cache are harmless.
+ */
+abstract class LazyTestCaseList extends AbstractList<TaskDefinition.TestCase> implements RandomAccess {
+    private static final int CACHE_SIZE = 1024;
+
+    private final Entry[] recent = new Entry[CACHE_SIZE];
+
+    @Override
+    public TaskDefinition.TestCase get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Test case " + index + " of " + size());
+        }
+        int slot = index & (CACHE_SIZE - 1);
+        Entry cached = recent[slot];
+        if (cached != null && cached.index == index) {
+            return cached;
+        }
+        Entry entry = new Entry(this, index, read(index));
+        recent[slot] = entry;
+        return entry;
+    }
+
+    /**
+     * Decodes the test case at the position
+     */
+    protected abstract TaskDefinition.TestCase read(int index);
+
+    /**
+     * A test case read from a lazy list. Reading the same position again gives an equal case, so maps
+     * keyed by test case keep working when a case was evicted from the cache and decoded anew.
+     */
+    private static final class Entry extends TaskDefinition.TestCase {
+        private final LazyTestCaseList source;
+        private final int index;
+
+        Entry(LazyTestCaseList source, int index, TaskDefinition.TestCase decoded) {
+            super(decoded.getInput(), decoded.getExpectedOutput(), decoded.getMetadata());
+            this.source = source;
+            this.index = index;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Entry other && other.source == source && other.index == index;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(source) + index;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.evopromptopt.core.tasks;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the metric evaluations the task runner made and those it skipped because a genome could
+ * no longer reach the score cutoff, per metric name.
+ */
+public class MetricSkipStatistics {
+    private final Map<String, LongAdder> evaluated = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> skipped = new ConcurrentHashMap<>();
+    private final LongAdder prunedGenomes = new LongAdder();
+
+    void recordEvaluated(String metric, int responses) {
+        evaluated.computeIfAbsent(metric, k -> new LongAdder()).add(responses);
+    }
+
+    void recordSkipped(String metric, int responses) {
+        skipped.computeIfAbsent(metric, k -> new LongAdder()).add(responses);
+    }
+
+    void recordPruned() {
+        prunedGenomes.increment();
+    }
+
+    /**
+     * @return Genome evaluations that ended before their expensive metrics
+     */
+    public long prunedGenomes() {
+        return prunedGenomes.sum();
+    }
+
+    public long evaluated(String metric) {
+        LongAdder count = evaluated.get(metric);
+        return count != null ? count.sum() : 0;
+    }
+
+    public long skipped(String metric) {
+        LongAdder count = skipped.get(metric);
+        return count != null ? count.sum() : 0;
+    }
+
+    public long totalSkipped() {
+        return skipped.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    /**
+     * @return Skipped response evaluations per metric name, sorted by name
+     */
+    public Map<String, Long> skippedByMetric() {
+        Map<String, Long> counts = new TreeMap<>();
+        skipped.forEach((metric, count) -> counts.put(metric, count.sum()));
+        return counts;
+    }
+}
@@ -1,13 +1,24 @@
 package com.evopromptopt.core.tasks;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.evopromptopt.core.evaluation.*;
+import com.evopromptopt.core.execution.EvaluationScheduler;
+import com.evopromptopt.core.execution.ExecutionResult;
+import com.evopromptopt.core.execution.MeteredPromptExecutor;
+import com.evopromptopt.core.execution.ollama.OllamaClient;
+import com.evopromptopt.core.execution.ollama.OllamaRequest;
+import com.evopromptopt.core.execution.ollama.OllamaResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 
 /**
@@ -15,10 +26,59 @@ import java.util.*;
  */
 public class TaskLoader {
     private static final Logger logger = LoggerFactory.getLogger(TaskLoader.class);
+    private static final String DEFAULT_EMBEDDING_MODEL = "nomic-embed-text";
+    private static final String DEFAULT_JUDGE_MODEL = "llama3.2:3b";
+    private static final String DEFAULT_JUDGE_CRITERIA = "correctness and completeness compared to the reference answer";
+
     private final ObjectMapper objectMapper;
+    private final EmbeddingCache embeddingCache;
+    private final OllamaClient ollamaClient;
+    private final String backendName;
+    private final MeteredPromptExecutor judgeMeter;
+    private EmbeddingService embeddingService;
 
+    /**
+     * Creates a loader without a model server; embedding and judge metrics fail when they are evaluated
+     */
     public TaskLoader() {
+        this((OllamaClient) null, EmbeddingCache.inMemory());
+    }
+
+    /**
+     * @param ollamaClient   Server for embedding and judge metrics, null if there is none (e.g. mock runs)
+     * @param embeddingCache Cache for the embeddings of semantic similarity metrics
+     */
+    public TaskLoader(OllamaClient ollamaClient, EmbeddingCache embeddingCache) {
+        this(ollamaClient, embeddingCache, null, null);
+    }
+
+    /**
+     * @param backendName Bulkhead in the {@link EvaluationScheduler} that embedding and judging requests
+     *                    take their slots from, the one of the server's candidate calls; null to send
+     *                    them unbounded
+     * @param judgeMeter  Meter that counts the calls and tokens of judge metrics against the compute
+     *                    budget, null to leave them uncounted
+     */
+    public TaskLoader(OllamaClient ollamaClient, EmbeddingCache embeddingCache, String backendName,
+                      MeteredPromptExecutor judgeMeter) {
+        this(ollamaClient, null, embeddingCache, backendName, judgeMeter);
+    }
+
+    /**
+     * @param embeddingService Embedding source for semantic similarity metrics
+     */
+    public TaskLoader(EmbeddingService embeddingService, EmbeddingCache embeddingCache) {
+        this(null, embeddingService, embeddingCache, null, null);
+    }
+
+    private TaskLoader(OllamaClient ollamaClient, EmbeddingService embeddingService, EmbeddingCache embeddingCache,
+                       String backendName, MeteredPromptExecutor judgeMeter) {
         this.objectMapper = new ObjectMapper();
+        this.ollamaClient = ollamaClient;
+        this.embeddingService = embeddingService;
+        this.embeddingCache = embeddingCache;
+        this.backendName = backendName;
+        this.judgeMeter = judgeMeter;
     }
 
     /**
@@ -43,28 +103,103 @@ public class TaskLoader {
         return parseTaskDefinition(rootNode);
     }
 
-    private TaskDefinition parseTaskDefinition(JsonNode rootNode) {
-        String name = rootNode.get("name").asText();
-        String description = rootNode.get("description").asText();
+    /**
+     * Load a task definition from a file without reading it into memory. A compiled task is mapped
+     * directly, and is preferred over a JSON task file when an up-to-date one lies next to it.
+     * Otherwise the JSON is parsed as a stream; its test cases, or those of the JSONL file named by
+     * "testCasesFile", are indexed in place and only parsed when read.
+     */
+    public TaskDefinition loadFromFile(Path path) throws IOException {
+        if (CompiledTask.isCompiled(path)) {
+            return loadCompiled(CompiledTask.open(path));
+        }
+        Path compiledPath = CompiledTask.compiledPathFor(path);
+        if (Files.exists(compiledPath)) {
+            CompiledTask compiled = CompiledTask.open(compiledPath);
+            if (compiled.isCurrent()) {
+                logger.info("Using compiled task {}", compiledPath);
+                return loadCompiled(compiled);
+            }
+            logger.warn("Compiled task {} is out of date, parsing {}", compiledPath, path);
+        }
+
+        TaskSource source = readTaskFile(path);
+        return parseTaskDefinition(source.rootNode(), source.testCases());
+    }
 
-        // Parse test cases
+    /**
+     * Compile a task file, with its test cases, into the binary form {@link #loadFromFile} maps
+     */
+    public void compile(Path path, Path target) throws IOException {
+        TaskSource source = readTaskFile(path);
+        List<Path> sources = new ArrayList<>(List.of(path));
+        if (source.testCasesFile() != null) {
+            sources.add(source.testCasesFile());
+        }
+        CompiledTask.write(source.rootNode(), source.testCases(), sources, target);
+    }
+
+    private TaskDefinition loadCompiled(CompiledTask compiled) {
+        return parseTaskDefinition(compiled.header(), compiled);
+    }
+
+    private TaskSource readTaskFile(Path path) throws IOException {
+        ObjectNode rootNode = objectMapper.createObjectNode();
+        TestCaseIndex testCases = null;
+        try (JsonParser parser = objectMapper.createParser(path.toFile())) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Task file must contain a JSON object: " + path);
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.currentName();
+                parser.nextToken();
+                if (fieldName.equals("testCases")) {
+                    testCases = TestCaseIndex.index(path, parser);
+                } else {
+                    rootNode.set(fieldName, parser.readValueAsTree());
+                }
+            }
+        }
+
+        Path casesPath = null;
+        if (rootNode.has("testCasesFile")) {
+            if (testCases != null) {
+                logger.warn("Task file {} has both testCases and testCasesFile, using testCasesFile", path);
+            }
+            casesPath = path.toAbsolutePath().getParent().resolve(rootNode.remove("testCasesFile").asText());
+            testCases = TestCaseIndex.open(casesPath);
+        }
+        return new TaskSource(rootNode, testCases != null ? testCases : List.of(), casesPath);
+    }
+
+    private TaskDefinition parseTaskDefinition(JsonNode rootNode) {
         List<TaskDefinition.TestCase> testCases = new ArrayList<>();
         if (rootNode.has("testCases")) {
             for (JsonNode testCaseNode : rootNode.get("testCases")) {
-                String input = testCaseNode.get("input").asText();
-                String expectedOutput = testCaseNode.has("expectedOutput") ?
-                    testCaseNode.get("expectedOutput").asText() : "";
-
-                Map<String, Object> metadata = new HashMap<>();
-                if (testCaseNode.has("metadata")) {
-                    JsonNode metadataNode = testCaseNode.get("metadata");
-                    metadataNode.fieldNames().forEachRemaining(fieldName ->
-                        metadata.put(fieldName, metadataNode.get(fieldName).asText()));
-                }
-
-                testCases.add(new TaskDefinition.TestCase(input, expectedOutput, metadata));
+                testCases.add(parseTestCase(testCaseNode));
             }
         }
+        return parseTaskDefinition(rootNode, testCases);
+    }
+
+    static TaskDefinition.TestCase parseTestCase(JsonNode testCaseNode) {
+        String input = testCaseNode.get("input").asText();
+        String expectedOutput = testCaseNode.has("expectedOutput") ?
+            testCaseNode.get("expectedOutput").asText() : "";
+
+        Map<String, Object> metadata = new HashMap<>();
+        if (testCaseNode.has("metadata")) {
+            JsonNode metadataNode = testCaseNode.get("metadata");
+            metadataNode.fieldNames().forEachRemaining(fieldName ->
+                metadata.put(fieldName, metadataNode.get(fieldName).asText()));
+        }
+
+        return new TaskDefinition.TestCase(input, expectedOutput, metadata);
+    }
+
+    private TaskDefinition parseTaskDefinition(JsonNode rootNode, List<TaskDefinition.TestCase> testCases) {
+        String name = rootNode.get("name").asText();
+        String description = rootNode.get("description").asText();
 
         // Parse evaluation metrics
         List<EvaluationMetric> evaluationMetrics = new ArrayList<>();
@@ -73,7 +208,7 @@ public class TaskLoader {
 
             if (evalNode.has("metrics")) {
                 for (JsonNode metricNode : evalNode.get("metrics")) {
-                    EvaluationMetric metric = parseEvaluationMetric(metricNode);
+                    EvaluationMetric metric = parseEvaluationMetric(metricNode, testCases);
                     if (metric != null) {
                         evaluationMetrics.add(metric);
                     }
@@ -81,7 +216,7 @@ public class TaskLoader {
             } else {
                 // Default evaluation based on type
                 String evalType = evalNode.has("type") ? evalNode.get("type").asText() : "accuracy";
-                EvaluationMetric defaultMetric = createDefaultMetric(evalType, evalNode);
+                EvaluationMetric defaultMetric = createDefaultMetric(evalType, evalNode, testCases);
                 if (defaultMetric != null) {
                     evaluationMetrics.add(defaultMetric);
                 }
@@ -112,7 +247,7 @@ public class TaskLoader {
         return new TaskDefinition(name, description, testCases, evaluationMetrics, configuration);
     }
 
-    private EvaluationMetric parseEvaluationMetric(JsonNode metricNode) {
+    private EvaluationMetric parseEvaluationMetric(JsonNode metricNode, List<TaskDefinition.TestCase> testCases) {
         String type = metricNode.get("type").asText();
 
         switch (type.toLowerCase()) {
@@ -146,13 +281,29 @@ public class TaskLoader {
 
                 return new ContentQualityEvaluator(requiredKeywords, bonusKeywords, 0.4, 0.3, 0.3);
 
+            case "semantic":
+                return createSemanticMetric(metricNode, testCases);
+
+            case "label":
+                return createLabelMetric(metricNode, testCases);
+
+            case "judge":
+                return createJudgeMetric(metricNode);
+
+            case "rouge":
+            case "bleu":
+                return createOverlapMetric(type, metricNode, testCases);
+
+            case "format":
+                return createFormatMetric(metricNode);
+
             default:
                 logger.warn("Unknown evaluation metric type: {}", type);
                 return null;
         }
     }
 
-    private EvaluationMetric createDefaultMetric(String type, JsonNode evalNode) {
+    private EvaluationMetric createDefaultMetric(String type, JsonNode evalNode, List<TaskDefinition.TestCase> testCases) {
         return switch (type.toLowerCase()) {
             case "accuracy" -> new AccuracyEvaluator();
             case "length" -> {
@@ -161,7 +312,157 @@ public class TaskLoader {
                 yield new LengthEvaluator(minLength, maxLength);
             }
             case "content" -> new ContentQualityEvaluator(Set.of());
+            case "semantic" -> createSemanticMetric(evalNode, testCases);
+            case "label" -> createLabelMetric(evalNode, testCases);
+            case "judge" -> createJudgeMetric(evalNode);
+            case "rouge", "bleu" -> createOverlapMetric(type, evalNode, testCases);
+            case "format" -> createFormatMetric(evalNode);
             default -> new AccuracyEvaluator();
         };
     }
+
+    private EvaluationMetric createSemanticMetric(JsonNode node, List<TaskDefinition.TestCase> testCases) {
+        String model = node.has("embeddingModel") ? node.get("embeddingModel").asText() : DEFAULT_EMBEDDING_MODEL;
+        double baseline = node.has("baseline") ? node.get("baseline").asDouble() : 0.0;
+        return new SemanticSimilarityEvaluator(embeddingService(), embeddingCache, model, baseline,
+                                               expectedOutputs(testCases));
+    }
+
+    private EvaluationMetric createLabelMetric(JsonNode node, List<TaskDefinition.TestCase> testCases) {
+        // The label set is the explicit list plus every expected output
+        Set<String> labels = new LinkedHashSet<>();
+        if (node.has("labels")) {
+            node.get("labels").forEach(label -> labels.add(label.asText()));
+        }
+        if (testCases instanceof CompiledTask compiled) {
+            labels.addAll(compiled.expectedOutputs());
+        } else if (testCases instanceof LazyTestCaseList) {
+            // Collecting labels would decode the whole file-backed suite
+            if (labels.isEmpty()) {
+                throw new IllegalArgumentException("Label evaluation of a test case file requires explicit labels");
+            }
+        } else {
+            testCases.forEach(testCase -> labels.add(testCase.getExpectedOutput()));
+        }
+        int maxEdits = node.has("maxEdits") ? node.get("maxEdits").asInt() : 2;
+        double editPenalty = node.has("editPenalty") ? node.get("editPenalty").asDouble() : 0.1;
+        return new FuzzyLabelEvaluator(labels, maxEdits, editPenalty);
+    }
+
+    private EvaluationMetric createOverlapMetric(String type, JsonNode node, List<TaskDefinition.TestCase> testCases) {
+        OverlapEvaluator.Measure measure = OverlapEvaluator.Measure.BLEU;
+        if (type.equalsIgnoreCase("rouge")) {
+            String variant = node.has("variant") ? node.get("variant").asText() : "rougeL";
+            measure = switch (variant.toLowerCase()) {
+                case "rouge1" -> OverlapEvaluator.Measure.ROUGE_1;
+                case "rouge2" -> OverlapEvaluator.Measure.ROUGE_2;
+                case "rougel" -> OverlapEvaluator.Measure.ROUGE_L;
+                default -> throw new IllegalArgumentException("Unknown ROUGE variant: " + variant);
+            };
+        }
+        if (testCases instanceof CompiledTask compiled) {
+            return new OverlapEvaluator(measure, List.of(), compiled::referenceWords);
+        }
+        return new OverlapEvaluator(measure, expectedOutputs(testCases));
+    }
+
+    /**
+     * @return Expected outputs to prepare up front; lazy suites are prepared on first use instead
+     */
+    private static List<String> expectedOutputs(List<TaskDefinition.TestCase> testCases) {
+        if (testCases instanceof LazyTestCaseList) {
+            return List.of();
+        }
+        return testCases.stream().map(TaskDefinition.TestCase::getExpectedOutput).toList();
+    }
+
+    private EvaluationMetric createFormatMetric(JsonNode node) {
+        String format = node.has("format") ? node.get("format").asText() : "json";
+        return new FormatComplianceEvaluator(format, node.has("schema") ? parseJsonSchema(node.get("schema")) : null);
+    }
+
+    /**
+     * Reads the supported subset of a JSON Schema: type, required and the types of properties
+     */
+    private FormatValidator.JsonSchema parseJsonSchema(JsonNode schemaNode) {
+        String type = schemaNode.has("type") ? schemaNode.get("type").asText() : null;
+        // Format compliance only accepts an object or array as the root value
+        if (type != null && !type.equals("object") && !type.equals("array")) {
+            throw new IllegalArgumentException("JSON schema root type must be object or array: " + type);
+        }
+        Set<String> required = new HashSet<>();
+        if (schemaNode.has("required")) {
+            schemaNode.get("required").forEach(key -> required.add(key.asText()));
+        }
+        Map<String, String> propertyTypes = new HashMap<>();
+        if (schemaNode.has("properties")) {
+            JsonNode properties = schemaNode.get("properties");
+            properties.fieldNames().forEachRemaining(name -> {
+                JsonNode property = properties.get(name);
+                if (property.has("type")) {
+                    propertyTypes.put(name, property.get("type").asText());
+                }
+            });
+        }
+        return new FormatValidator.JsonSchema(type, required, propertyTypes);
+    }
+
+    private EvaluationMetric createJudgeMetric(JsonNode node) {
+        String model = node.has("judgeModel") ? node.get("judgeModel").asText() : DEFAULT_JUDGE_MODEL;
+        String criteria = node.has("criteria") ? node.get("criteria").asText() : DEFAULT_JUDGE_CRITERIA;
+        int batchSize = node.has("batchSize") ? node.get("batchSize").asInt() : 8;
+        int maxResponseChars = node.has("maxResponseChars") ? node.get("maxResponseChars").asInt() : 2000;
+        // Deterministic grading, with room for one short grade per response
+        var options = new OllamaRequest.Options(0.0, 16 * batchSize + 32, 1.0, 40, 1.0);
+        JudgeService judgeService = ollamaClient != null ?
+                (judgeModel, prompt) -> judge(new OllamaRequest(judgeModel, prompt, null, options)) :
+                (judgeModel, prompt) -> {
+                    throw new IOException("No model server for judge model " + judgeModel);
+                };
+        return new LlmJudgeEvaluator(judgeService, model, criteria, batchSize, maxResponseChars);
+    }
+
+    /**
+     * Sends a judging prompt to the model server and reports the call to the judge meter
+     */
+    private String judge(OllamaRequest request) throws IOException {
+        long startTime = System.currentTimeMillis();
+        try {
+            OllamaResponse response = onServer("judge:" + request.getModel(), () -> ollamaClient.generate(request));
+            if (judgeMeter != null) {
+                judgeMeter.record(ExecutionResult.success(response.getResponse(),
+                        System.currentTimeMillis() - startTime, response.getEvalCount(), response.getPromptEvalCount()));
+            }
+            return response.getResponse();
+        } catch (IOException e) {
+            if (judgeMeter != null) {
+                judgeMeter.record(ExecutionResult.failure("Judge call failed: " + e.getMessage(),
+                                                          System.currentTimeMillis() - startTime));
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Sends a request to the model server in a slot of its bulkhead, if there is one
+     */
+    private <T> T onServer(String flow, EvaluationScheduler.BackendCall<T> call) throws IOException {
+        return backendName != null ? EvaluationScheduler.shared().call(backendName, flow, call) : call.call();
+    }
+
+    private EmbeddingService embeddingService() {
+        if (embeddingService == null) {
+            embeddingService = ollamaClient != null ?
+                    (model, texts) -> onServer("embed:" + model, () -> ollamaClient.embed(model, texts)) :
+                    (model, texts) -> {
+                        throw new IOException("No model server for embedding model " + model);
+                    };
+        }
+        return embeddingService;
+    }
+
+    /**
+     * A task file's definition without test cases, and its test cases
+     */
+    private record TaskSource(ObjectNode rootNode, List<TaskDefinition.TestCase> testCases, Path testCasesFile) {}
 }
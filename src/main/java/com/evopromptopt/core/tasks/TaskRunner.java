@@ -1,33 +1,75 @@
 package com.evopromptopt.core.tasks;
 
+import com.evopromptopt.core.evaluation.BatchEvaluationMetric;
 import com.evopromptopt.core.evaluation.EvaluationMetric;
+import com.evopromptopt.core.evaluation.ResponseAnalysis;
 import com.evopromptopt.core.execution.ExecutionResult;
+import com.evopromptopt.core.execution.EvaluationScheduler;
 import com.evopromptopt.core.execution.PromptExecutor;
+import com.evopromptopt.core.execution.Resampling;
 import com.evopromptopt.core.genome.PromptGenome;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
 
 /**
  * Executes task evaluation for prompt genomes and calculates fitness scores
  */
 public class TaskRunner {
     private static final Logger logger = LoggerFactory.getLogger(TaskRunner.class);
+    // Genomes are only pruned before metrics at least this costly; cheaper ones always run
+    private static final double EXPENSIVE_METRIC_COST = 100.0;
 
     private final PromptExecutor promptExecutor;
-    private final ExecutorService executorService;
-    private final boolean parallelExecution;
+    private final Executor parallelExecutor;
+    private final TestCaseStatistics testCaseStatistics = new TestCaseStatistics();
+    private final TokenUsageStatistics tokenUsageStatistics = new TokenUsageStatistics();
+    private final LatencyModel latencyModel = new LatencyModel(tokenUsageStatistics);
+    private final TestCaseResultStore resultStore;
+    private final double metricCutoff;
+    private final Map<String, Double> bestScores = new ConcurrentHashMap<>();
+    private final MetricSkipStatistics metricSkipStatistics = new MetricSkipStatistics();
+    private final EvaluationResultSink resultSink;
 
-    public TaskRunner(PromptExecutor promptExecutor, boolean parallelExecution) {
+    /**
+     * @param resultStore  Persistent results reused instead of executing a test case again, may be null
+     * @param metricCutoff Share of the best overall score seen for the task that a genome must still be
+     *                     able to reach for its expensive metrics to be evaluated; 0 evaluates every metric
+     * @param resultSink   Receives every scored test case result; results are not kept in memory
+     */
+    public TaskRunner(PromptExecutor promptExecutor, boolean parallelExecution, TestCaseResultStore resultStore,
+                      double metricCutoff, EvaluationResultSink resultSink) {
         this.promptExecutor = promptExecutor;
-        this.parallelExecution = parallelExecution;
-        this.executorService = parallelExecution ?
-            Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors()) : null;
+        this.resultStore = resultStore;
+        this.metricCutoff = metricCutoff;
+        this.resultSink = resultSink;
+        // Test cases fan out on the shared scheduler; the backend's bulkhead bounds the calls in flight
+        this.parallelExecutor = parallelExecution ? EvaluationScheduler.shared().executor() : null;
+    }
+
+    public TaskRunner(PromptExecutor promptExecutor, boolean parallelExecution, TestCaseResultStore resultStore,
+                      double metricCutoff) {
+        this(promptExecutor, parallelExecution, resultStore, metricCutoff, EvaluationResultSink.DISCARD);
+    }
+
+    public TaskRunner(PromptExecutor promptExecutor, boolean parallelExecution, TestCaseResultStore resultStore) {
+        this(promptExecutor, parallelExecution, resultStore, 0.0);
+    }
+
+    public TaskRunner(PromptExecutor promptExecutor, boolean parallelExecution) {
+        this(promptExecutor, parallelExecution, null);
     }
 
     public TaskRunner(PromptExecutor promptExecutor) {
@@ -38,118 +80,462 @@ public class TaskRunner {
      * Evaluates a prompt genome against a task definition and returns fitness score
      */
     public TaskEvaluationResult evaluateGenome(PromptGenome genome, TaskDefinition task) {
-        List<TestCaseResult> testCaseResults = new ArrayList<>();
+        return evaluateGenome(genome, task, task.getTestCases());
+    }
+
+    /**
+     * Evaluates a prompt genome against all test cases, passing each test case result to the given sink
+     * as well, e.g. to display them
+     */
+    public TaskEvaluationResult evaluateGenome(PromptGenome genome, TaskDefinition task,
+                                               EvaluationResultSink details) {
+        return evaluateGenome(genome, task, task.getTestCases(), details);
+    }
+
+    /**
+     * Evaluates a prompt genome against a subset of the task's test cases, e.g. a mini-batch
+     */
+    public TaskEvaluationResult evaluateGenome(PromptGenome genome, TaskDefinition task,
+                                               List<TaskDefinition.TestCase> testCases) {
+        return evaluateGenome(genome, task, testCases, EvaluationResultSink.DISCARD);
+    }
+
+    private TaskEvaluationResult evaluateGenome(PromptGenome genome, TaskDefinition task,
+                                                List<TaskDefinition.TestCase> testCases,
+                                                EvaluationResultSink details) {
+        List<EvaluationMetric> metrics = task.getEvaluationMetrics();
+        TestCaseResult[] testCaseResults = new TestCaseResult[testCases.size()];
+        List<TaskDefinition.TestCase> pending = new ArrayList<>();
+        List<Integer> pendingIndices = new ArrayList<>();
+        double storedScore = 0.0;
+        // A new sample of the genome must not be answered with the result stored for the first one
+        boolean useStore = resultStore != null && !Resampling.isActive();
+        for (int t = 0; t < testCases.size(); t++) {
+            if (useStore) {
+                testCaseResults[t] = resultStore.get(genome, testCases.get(t), metrics).orElse(null);
+            }
+            if (testCaseResults[t] == null) {
+                pending.add(testCases.get(t));
+                pendingIndices.add(t);
+            } else {
+                storedScore += testCaseResults[t].score();
+            }
+        }
 
-        if (parallelExecution && task.getTestCases().size() > 1) {
+        List<ExecutionResult> executionResults = new ArrayList<>(pending.size());
+        if (parallelExecutor != null && pending.size() > 1) {
             // Parallel execution of test cases
-            List<CompletableFuture<TestCaseResult>> futures = task.getTestCases().stream()
+            List<CompletableFuture<ExecutionResult>> futures = pending.stream()
                 .map(testCase -> CompletableFuture.supplyAsync(() ->
-                    executeTestCase(genome, testCase, task.getEvaluationMetrics()), executorService))
+                    execute(genome, testCase.getInput()), parallelExecutor))
                 .toList();
+            futures.forEach(future -> executionResults.add(future.join()));
+        } else {
+            // Sequential execution
+            for (TaskDefinition.TestCase testCase : pending) {
+                executionResults.add(execute(genome, testCase.getInput()));
+            }
+        }
 
-            // Collect results
-            for (CompletableFuture<TestCaseResult> future : futures) {
-                try {
-                    testCaseResults.add(future.get());
-                } catch (Exception e) {
-                    logger.error("Failed to execute test case", e);
-                    testCaseResults.add(new TestCaseResult("", "", 0.0, 0, false, e.getMessage()));
+        // Scored after executing, so batch metrics see all responses of the genome at once
+        ScoredCases scored = scoreTestCases(pending, executionResults, metrics,
+                new Standing(new int[pending.size()], new double[] {storedScore}, testCases.size(), cutoff(task)));
+        boolean pruned = scored.pruned()[0];
+        for (int i = 0; i < pending.size(); i++) {
+            testCaseResults[pendingIndices.get(i)] = scored.results().get(i);
+            if (resultStore != null && !pruned) {
+                resultStore.put(genome, pending.get(i), metrics, scored.results().get(i));
+            }
+        }
+
+        return summarize(task, genome, testCases, Arrays.asList(testCaseResults), pruned, details);
+    }
+
+    /**
+     * Evaluates several genomes on the same test cases as one planned batch. Calls that send the
+     * same backend request (see {@link PromptExecutor#requestKey}) are executed once and shared.
+     * Calls with the same system prompt and template share a prompt prefix and are dispatched
+     * together so the backend can reuse its prompt cache; prefix groups start in order of expected
+     * latency, longest first, so the slowest calls do not end up at the tail of the batch.
+     *
+     * @param executor    Runs the dispatch workers
+     * @param parallelism Number of calls in flight at once
+     * @return Results in the order of the genomes, and a report of how the batch was executed
+     */
+    public PopulationEvaluation evaluatePopulation(List<PromptGenome> genomes, TaskDefinition task,
+                                                   List<TaskDefinition.TestCase> testCases,
+                                                   Executor executor, int parallelism) {
+        long startTime = System.nanoTime();
+
+        // Plan: one call per distinct backend request that has no stored result
+        List<EvaluationMetric> metrics = task.getEvaluationMetrics();
+        Map<Object, PlannedCall> calls = new LinkedHashMap<>();
+        PlannedCall[][] assignment = new PlannedCall[genomes.size()][testCases.size()];
+        TestCaseResult[][] stored = new TestCaseResult[genomes.size()][testCases.size()];
+        double[] storedScores = new double[genomes.size()];
+        int storedResults = 0;
+        boolean useStore = resultStore != null && !Resampling.isActive();
+        for (int g = 0; g < genomes.size(); g++) {
+            PromptGenome genome = genomes.get(g);
+            for (int t = 0; t < testCases.size(); t++) {
+                if (useStore) {
+                    stored[g][t] = resultStore.get(genome, testCases.get(t), metrics).orElse(null);
+                    if (stored[g][t] != null) {
+                        storedResults++;
+                        storedScores[g] += stored[g][t].score();
+                        continue;
+                    }
                 }
+                String input = testCases.get(t).getInput();
+                assignment[g][t] = calls.computeIfAbsent(promptExecutor.requestKey(genome, input), key -> {
+                    double tokens = latencyModel.expectedTokens(input, genome.maxTokens());
+                    return new PlannedCall(genome, input, tokens, latencyModel.predictMs(tokens));
+                });
             }
-        } else {
-            // Sequential execution
-            for (TaskDefinition.TestCase testCase : task.getTestCases()) {
-                testCaseResults.add(executeTestCase(genome, testCase, task.getEvaluationMetrics()));
+        }
+
+        Map<List<String>, List<PlannedCall>> prefixGroups = new LinkedHashMap<>();
+        for (PlannedCall call : calls.values()) {
+            prefixGroups.computeIfAbsent(List.of(call.genome.systemPrompt(), call.genome.promptTemplate()),
+                                         key -> new ArrayList<>()).add(call);
+        }
+        for (List<PlannedCall> group : prefixGroups.values()) {
+            group.sort(Comparator.comparingDouble((PlannedCall c) -> c.expectedMs).reversed());
+        }
+        Queue<PlannedCall> queue = new ConcurrentLinkedQueue<>();
+        prefixGroups.values().stream()
+                .sorted(Comparator.comparingDouble((List<PlannedCall> group) ->
+                        group.stream().mapToDouble(c -> c.expectedMs).sum()).reversed())
+                .forEach(queue::addAll);
+
+        // Execute: workers pull calls in plan order, at the priority of the caller
+        int workers = Math.max(1, Math.min(parallelism, calls.size()));
+        EvaluationScheduler.Priority priority = EvaluationScheduler.currentPriority();
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[workers];
+        for (int i = 0; i < workers; i++) {
+            futures[i] = CompletableFuture.runAsync(Resampling.propagate(
+                    () -> EvaluationScheduler.runWithPriority(priority, () -> {
+                        PlannedCall call;
+                        while ((call = queue.poll()) != null) {
+                            call.result = executeCall(call);
+                        }
+                    })), executor);
+        }
+        CompletableFuture.allOf(futures).join();
+
+        // Score every genome against its share of the calls, all responses of the batch together
+        List<TaskDefinition.TestCase> scoredCases = new ArrayList<>();
+        List<ExecutionResult> scoredCalls = new ArrayList<>();
+        int[] owners = new int[genomes.size() * testCases.size() - storedResults];
+        for (int g = 0; g < genomes.size(); g++) {
+            for (int t = 0; t < testCases.size(); t++) {
+                if (stored[g][t] == null) {
+                    owners[scoredCases.size()] = g;
+                    scoredCases.add(testCases.get(t));
+                    scoredCalls.add(assignment[g][t].result);
+                }
+            }
+        }
+        ScoredCases scoredBatch = scoreTestCases(scoredCases, scoredCalls, metrics,
+                new Standing(owners, storedScores, testCases.size(), cutoff(task)));
+        Iterator<TestCaseResult> scored = scoredBatch.results().iterator();
+        List<TaskEvaluationResult> results = new ArrayList<>(genomes.size());
+        for (int g = 0; g < genomes.size(); g++) {
+            List<TestCaseResult> testCaseResults = new ArrayList<>(testCases.size());
+            for (int t = 0; t < testCases.size(); t++) {
+                if (stored[g][t] != null) {
+                    testCaseResults.add(stored[g][t]);
+                    continue;
+                }
+                TestCaseResult result = scored.next();
+                if (resultStore != null && !scoredBatch.pruned()[g]) {
+                    resultStore.put(genomes.get(g), testCases.get(t), metrics, result);
+                }
+                testCaseResults.add(result);
             }
+            results.add(summarize(task, genomes.get(g), testCases, testCaseResults, scoredBatch.pruned()[g],
+                                  EvaluationResultSink.DISCARD));
         }
 
-        // Calculate overall fitness score
-        double totalScore = testCaseResults.stream()
-            .mapToDouble(TestCaseResult::score)
-            .average()
-            .orElse(0.0);
+        long callTimeMs = 0;
+        int failedCalls = 0;
+        for (PlannedCall call : calls.values()) {
+            callTimeMs += call.result.executionTimeMs();
+            if (!call.result.success()) {
+                failedCalls++;
+            }
+        }
+        var report = new BatchExecutionReport(
+            genomes.size(),
+            genomes.size() * testCases.size(),
+            storedResults,
+            calls.size(),
+            prefixGroups.size(),
+            failedCalls,
+            (System.nanoTime() - startTime) / 1_000_000,
+            callTimeMs
+        );
+        return new PopulationEvaluation(results, report);
+    }
 
-        // Calculate success rate
-        long successCount = testCaseResults.stream()
-            .mapToLong(result -> result.success() ? 1 : 0)
-            .sum();
-        double successRate = (double) successCount / testCaseResults.size();
+    private ExecutionResult executeCall(PlannedCall call) {
+        ExecutionResult result = execute(call.genome, call.input);
+        if (result.success()) {
+            latencyModel.observe(call.expectedTokens, result.executionTimeMs());
+        }
+        return result;
+    }
 
-        // Calculate total execution time
-        long totalExecutionTime = testCaseResults.stream()
-            .mapToLong(TestCaseResult::executionTimeMs)
-            .sum();
+    private ExecutionResult execute(PromptGenome genome, String input) {
+        try {
+            ExecutionResult result = promptExecutor.execute(genome, input);
+            if (result.success()) {
+                tokenUsageStatistics.record(result.outputTokens(), genome.maxTokens());
+            }
+            return result;
+        } catch (Exception e) {
+            logger.error("Failed to execute test case: {}", input, e);
+            return ExecutionResult.failure("Execution failed: " + e.getMessage(), 0);
+        }
+    }
+
+    /**
+     * @return Overall score a genome must still be able to reach to have its expensive metrics evaluated
+     */
+    private double cutoff(TaskDefinition task) {
+        return metricCutoff > 0 ? metricCutoff * bestScores.getOrDefault(task.getName(), 0.0) : 0.0;
+    }
+
+    /**
+     * Reduces the test case results of one genome to aggregates and records them in the statistics;
+     * the results themselves only go to the sinks, so they are garbage once the evaluation returns
+     *
+     * @param pruned  Whether the scores are lower bounds because expensive metrics were skipped
+     * @param details Sink that receives every result, pruned or not
+     */
+    private TaskEvaluationResult summarize(TaskDefinition task, PromptGenome genome,
+                                           List<TaskDefinition.TestCase> testCases,
+                                           List<TestCaseResult> testCaseResults, boolean pruned,
+                                           EvaluationResultSink details) {
+        double scoreSum = 0.0;
+        int successCount = 0;
+        long totalExecutionTime = 0;
+        for (int i = 0; i < testCaseResults.size(); i++) {
+            TestCaseResult result = testCaseResults.get(i);
+            scoreSum += result.score();
+            if (result.success()) {
+                successCount++;
+            }
+            totalExecutionTime += result.executionTimeMs();
+            // Scores of a pruned genome are bounds, not worth keeping
+            if (!pruned) {
+                resultSink.record(task.getName(), genome, testCases.get(i), result);
+            }
+            details.record(task.getName(), genome, testCases.get(i), result);
+        }
+        double totalScore = testCaseResults.isEmpty() ? 0.0 : scoreSum / testCaseResults.size();
+
+        // Track per-test-case difficulty and discrimination across genomes; bounds would skew both
+        if (!pruned) {
+            testCaseStatistics.record(task, testCases, testCaseResults, totalScore);
+            bestScores.merge(task.getName(), totalScore, Math::max);
+        }
 
         return new TaskEvaluationResult(
             task.getName(),
             totalScore,
-            successRate,
+            testCaseResults.size(),
+            successCount,
             totalExecutionTime,
-            testCaseResults
+            pruned
         );
     }
 
-    private TestCaseResult executeTestCase(PromptGenome genome, TaskDefinition.TestCase testCase,
-                                         List<EvaluationMetric> evaluationMetrics) {
-        try {
-            // Execute the prompt
-            ExecutionResult executionResult = promptExecutor.execute(genome, testCase.getInput());
-
-            if (!executionResult.success()) {
-                return new TestCaseResult(
-                    testCase.getInput(),
-                    "",
-                    0.0,
-                    executionResult.executionTimeMs(),
-                    false,
-                    executionResult.errorMessage()
-                );
+    /**
+     * Scores executed test cases, cheapest metrics first. Per-response metrics score one response at
+     * a time and share one analysis of it; batch metrics get all successful responses in one call.
+     * Before each expensive metric, genomes that could not reach the cutoff even with the highest
+     * scores of all remaining metrics are pruned: the remaining metrics are skipped for them, and
+     * count with their lowest score, so a pruned genome gets no credit for work that was not done.
+     */
+    private ScoredCases scoreTestCases(List<TaskDefinition.TestCase> testCases,
+                                       List<ExecutionResult> executionResults,
+                                       List<EvaluationMetric> evaluationMetrics, Standing standing) {
+        int count = testCases.size();
+        int metricCount = evaluationMetrics.size();
+        double[] totalScores = new double[count];
+        String[] scoringErrors = new String[count];
+        List<Integer> succeeded = new ArrayList<>(count);
+        List<BatchEvaluationMetric.Item> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ExecutionResult executionResult = executionResults.get(i);
+            if (executionResult.success()) {
+                succeeded.add(i);
+                items.add(new BatchEvaluationMetric.Item(testCases.get(i).getInput(),
+                        testCases.get(i).getExpectedOutput(),
+                        ResponseAnalysis.of(executionResult.response()),
+                        executionResult));
             }
+        }
+
+        List<EvaluationMetric> ordered = new ArrayList<>(evaluationMetrics);
+        ordered.sort(Comparator.comparingDouble(EvaluationMetric::getEstimatedCost));
+        double remainingMax = ordered.stream().mapToDouble(EvaluationMetric::getMaxScore).sum();
+        double remainingMin = ordered.stream().mapToDouble(EvaluationMetric::getMinScore).sum();
+        boolean[] pruned = new boolean[standing.fixedScores().length];
+        double[] prunedRemainder = new double[pruned.length];
 
-            // Calculate score using evaluation metrics
-            double totalScore = 0.0;
-            int metricCount = evaluationMetrics.size();
+        for (EvaluationMetric metric : ordered) {
+            if (standing.cutoff() > 0 && metric.getEstimatedCost() >= EXPENSIVE_METRIC_COST) {
+                prune(standing, totalScores, scoringErrors, succeeded, remainingMax, remainingMin, metricCount,
+                      pruned, prunedRemainder);
+            }
+            remainingMax -= metric.getMaxScore();
+            remainingMin -= metric.getMinScore();
 
-            for (EvaluationMetric metric : evaluationMetrics) {
-                double score = metric.evaluate(
-                    testCase.getInput(),
-                    testCase.getExpectedOutput(),
-                    executionResult.response(),
-                    executionResult
-                );
-                totalScore += score;
-                logger.debug("Metric '{}' scored: {}", metric.getName(), score);
+            boolean batch = metric instanceof BatchEvaluationMetric;
+            List<Integer> active = new ArrayList<>(items.size());
+            List<BatchEvaluationMetric.Item> activeItems = new ArrayList<>(items.size());
+            int skipped = 0;
+            for (int j = 0; j < items.size(); j++) {
+                int i = succeeded.get(j);
+                if (pruned[standing.owners()[i]]) {
+                    skipped++;
+                } else if (batch || scoringErrors[i] == null) {
+                    active.add(i);
+                    activeItems.add(items.get(j));
+                }
+            }
+            if (skipped > 0) {
+                metricSkipStatistics.recordSkipped(metric.getName(), skipped);
             }
+            if (activeItems.isEmpty()) {
+                continue;
+            }
+            metricSkipStatistics.recordEvaluated(metric.getName(), activeItems.size());
 
-            // Average score across all metrics
-            double averageScore = metricCount > 0 ? totalScore / metricCount : 0.0;
+            if (metric instanceof BatchEvaluationMetric batchMetric) {
+                try {
+                    double[] scores = batchMetric.evaluateBatch(activeItems);
+                    for (int j = 0; j < activeItems.size(); j++) {
+                        int i = active.get(j);
+                        if (!Double.isNaN(scores[j])) {
+                            totalScores[i] += scores[j];
+                        } else if (scoringErrors[i] == null) {
+                            scoringErrors[i] = "Scoring failed: " + metric.getName() + " could not score the response";
+                        }
+                    }
+                } catch (Exception e) {
+                    logger.error("Metric '{}' failed to score {} responses", metric.getName(), activeItems.size(), e);
+                    for (int i : active) {
+                        if (scoringErrors[i] == null) {
+                            scoringErrors[i] = "Scoring failed: " + e.getMessage();
+                        }
+                    }
+                }
+                continue;
+            }
+            for (int j = 0; j < activeItems.size(); j++) {
+                int i = active.get(j);
+                BatchEvaluationMetric.Item item = activeItems.get(j);
+                try {
+                    double score = metric.evaluate(item.task(), item.expectedOutput(), item.response(),
+                                                   item.executionResult());
+                    totalScores[i] += score;
+                    logger.debug("Metric '{}' scored: {}", metric.getName(), score);
+                } catch (Exception e) {
+                    logger.error("Failed to score test case: {}", item.task(), e);
+                    scoringErrors[i] = "Scoring failed: " + e.getMessage();
+                }
+            }
+        }
 
-            return new TestCaseResult(
-                testCase.getInput(),
+        List<TestCaseResult> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ExecutionResult executionResult = executionResults.get(i);
+            String error = !executionResult.success() ? executionResult.errorMessage() : scoringErrors[i];
+            if (error != null) {
+                results.add(new TestCaseResult(
+                    testCases.get(i).getInput(),
+                    "",
+                    0.0,
+                    executionResult.executionTimeMs(),
+                    false,
+                    error
+                ));
+                continue;
+            }
+            // Average score across all metrics, skipped metrics counting with their lowest score
+            double total = totalScores[i] + prunedRemainder[standing.owners()[i]];
+            results.add(new TestCaseResult(
+                testCases.get(i).getInput(),
                 executionResult.response(),
-                averageScore,
+                metricCount > 0 ? total / metricCount : 0.0,
                 executionResult.executionTimeMs(),
                 true,
                 null
-            );
+            ));
+        }
+        return new ScoredCases(results, pruned);
+    }
 
-        } catch (Exception e) {
-            logger.error("Failed to execute test case: {}", testCase.getInput(), e);
-            return new TestCaseResult(
-                testCase.getInput(),
-                "",
-                0.0,
-                0,
-                false,
-                "Execution failed: " + e.getMessage()
-            );
+    /**
+     * Prunes every genome whose overall score stays below the cutoff even if each of its scored test
+     * cases gains the highest remaining score
+     *
+     * @param remainingMax Sum of the highest scores of the metrics not yet evaluated
+     * @param remainingMin Sum of their lowest scores, which pruned test cases are scored with
+     */
+    private void prune(Standing standing, double[] totalScores, String[] scoringErrors, List<Integer> succeeded,
+                       double remainingMax, double remainingMin, int metricCount, boolean[] pruned,
+                       double[] prunedRemainder) {
+        double[] upperBounds = standing.fixedScores().clone();
+        for (int i : succeeded) {
+            if (scoringErrors[i] == null) {
+                upperBounds[standing.owners()[i]] += (totalScores[i] + remainingMax) / metricCount;
+            }
         }
+        for (int owner = 0; owner < pruned.length; owner++) {
+            if (!pruned[owner] && upperBounds[owner] / Math.max(1, standing.casesPerOwner()) < standing.cutoff()) {
+                pruned[owner] = true;
+                prunedRemainder[owner] = remainingMin;
+                metricSkipStatistics.recordPruned();
+            }
+        }
+    }
+
+    /**
+     * @return Item-difficulty statistics collected over all genomes evaluated by this runner
+     */
+    public TestCaseStatistics getTestCaseStatistics() {
+        return testCaseStatistics;
+    }
+
+    /**
+     * @return The persistent result store, null when results are not stored
+     */
+    public TestCaseResultStore getResultStore() {
+        return resultStore;
     }
 
+    /**
+     * @return Output-token usage of all successful calls made by this runner
+     */
+    public TokenUsageStatistics getTokenUsageStatistics() {
+        return tokenUsageStatistics;
+    }
+
+    /**
+     * @return Metric evaluations made and skipped by the score cutoff
+     */
+    public MetricSkipStatistics getMetricSkipStatistics() {
+        return metricSkipStatistics;
+    }
+
+    /**
+     * Kept for callers; parallel work runs on the shared {@link EvaluationScheduler}, which outlives runners
+     */
     public void shutdown() {
-        if (executorService != null) {
-            executorService.shutdown();
-        }
     }
 
     /**
@@ -165,13 +551,87 @@ public class TaskRunner {
     ) {}
 
     /**
-     * Result of evaluating a genome against an entire task
+     * Which genome each scored test case belongs to, the score sum of each genome's test cases that
+     * are not scored here, the number of test cases per genome, and the overall score a genome must
+     * still be able to reach
+     */
+    private record Standing(int[] owners, double[] fixedScores, int casesPerOwner, double cutoff) {}
+
+    /**
+     * Scored test cases, and per genome whether its expensive metrics were skipped
+     */
+    private record ScoredCases(List<TestCaseResult> results, boolean[] pruned) {}
+
+    /**
+     * One backend call of a batch plan, shared by every genome and test case that maps to it
+     */
+    private static final class PlannedCall {
+        private final PromptGenome genome;
+        private final String input;
+        private final double expectedTokens;
+        private final double expectedMs;
+        private volatile ExecutionResult result;
+
+        private PlannedCall(PromptGenome genome, String input, double expectedTokens, double expectedMs) {
+            this.genome = genome;
+            this.input = input;
+            this.expectedTokens = expectedTokens;
+            this.expectedMs = expectedMs;
+        }
+    }
+
+    /**
+     * Results of a population batch, in the order of the genomes
+     */
+    public record PopulationEvaluation(
+        List<TaskEvaluationResult> results,
+        BatchExecutionReport report
+    ) {}
+
+    /**
+     * How a population batch was executed
+     */
+    public record BatchExecutionReport(
+        int genomes,
+        int requestedCalls,
+        int storedResults,
+        int executedCalls,
+        int prefixGroups,
+        int failedCalls,
+        long wallTimeMs,
+        long callTimeMs
+    ) {
+        public int deduplicatedCalls() {
+            return requestedCalls - storedResults - executedCalls;
+        }
+
+        /**
+         * @return Average number of calls in flight over the batch
+         */
+        public double effectiveConcurrency() {
+            return wallTimeMs > 0 ? (double) callTimeMs / wallTimeMs : 0.0;
+        }
+    }
+
+    /**
+     * Aggregated result of evaluating a genome against a task; per test case results go to the
+     * runner's {@link EvaluationResultSink}. When {@code pruned}, the score is a lower bound because
+     * expensive metrics were skipped.
      */
     public record TaskEvaluationResult(
         String taskName,
         double overallScore,
-        double successRate,
+        int testCaseCount,
+        int successCount,
         long totalExecutionTimeMs,
-        List<TestCaseResult> testCaseResults
-    ) {}
+        boolean pruned
+    ) {
+        public double successRate() {
+            return testCaseCount > 0 ? (double) successCount / testCaseCount : 0.0;
+        }
+
+        public double meanExecutionTimeMs() {
+            return testCaseCount > 0 ? (double) totalExecutionTimeMs / testCaseCount : 0.0;
+        }
+    }
 }
@@ -0,0 +1,40 @@
+package com.evopromptopt.core.tasks;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Immutable batch of test cases drawn from a suite, together with their positions in the suite.
+ * Only the drawn cases are decoded, once, when the batch is built; the positions let statistics
+ * be kept per suite position without touching the cases themselves.
+ */
+final class TestCaseBatch extends AbstractList<TaskDefinition.TestCase> implements RandomAccess {
+    private final int[] positions;
+    private final TaskDefinition.TestCase[] testCases;
+
+    TestCaseBatch(List<TaskDefinition.TestCase> suite, int[] positions) {
+        this.positions = positions.clone();
+        this.testCases = new TaskDefinition.TestCase[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            testCases[i] = suite.get(positions[i]);
+        }
+    }
+
+    @Override
+    public TaskDefinition.TestCase get(int index) {
+        return testCases[index];
+    }
+
+    @Override
+    public int size() {
+        return testCases.length;
+    }
+
+    /**
+     * @return Position in the suite of the batch's test case at the index
+     */
+    int position(int index) {
+        return positions[index];
+    }
+}
@@ -0,0 +1,153 @@
+package com.evopromptopt.core.tasks;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Test cases of a large suite, kept in the file they were loaded from. The file is scanned once with
+ * Jackson's streaming parser to record where each test case object starts and ends; the file is then
+ * memory-mapped and a test case is only parsed when it is read. Memory use is the offsets plus a
+ * small cache of recently read cases, whatever the size of the suite. Thread-safe.
+ */
+public final class TestCaseIndex extends LazyTestCaseList {
+    private static final ObjectReader READER = new ObjectMapper().reader();
+    // A mapping covers at most 1 GiB, records never span two mappings
+    private static final long MAX_SEGMENT = 1L << 30;
+
+    private final Path file;
+    private final long[] starts;
+    private final int[] lengths;
+    private final long[] segmentStarts;
+    private final MappedByteBuffer[] segments;
+
+    private TestCaseIndex(Path file, long[] starts, int[] lengths) throws IOException {
+        this.file = file;
+        this.starts = starts;
+        this.lengths = lengths;
+
+        long[] segmentStarts = new long[4];
+        long[] segmentEnds = new long[4];
+        int segmentCount = 0;
+        for (int i = 0; i < starts.length; i++) {
+            long end = starts[i] + lengths[i];
+            if (segmentCount == 0 || end - segmentStarts[segmentCount - 1] > MAX_SEGMENT) {
+                if (segmentCount == segmentStarts.length) {
+                    segmentStarts = Arrays.copyOf(segmentStarts, segmentCount * 2);
+                    segmentEnds = Arrays.copyOf(segmentEnds, segmentCount * 2);
+                }
+                segmentStarts[segmentCount++] = starts[i];
+            }
+            segmentEnds[segmentCount - 1] = end;
+        }
+
+        this.segmentStarts = Arrays.copyOf(segmentStarts, segmentCount);
+        this.segments = new MappedByteBuffer[segmentCount];
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            for (int s = 0; s < segmentCount; s++) {
+                segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, segmentStarts[s],
+                                          segmentEnds[s] - segmentStarts[s]);
+            }
+        }
+    }
+
+    /**
+     * Indexes a JSONL file: every top-level JSON object is a test case, blank lines are ignored
+     */
+    public static TestCaseIndex open(Path file) throws IOException {
+        try (JsonParser parser = READER.createParser(file.toFile())) {
+            Builder builder = new Builder();
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                if (token != JsonToken.START_OBJECT) {
+                    throw new IOException("Expected a test case object at " + parser.currentTokenLocation());
+                }
+                builder.add(parser);
+            }
+            return builder.build(file);
+        }
+    }
+
+    /**
+     * Indexes the elements of the array the parser is positioned at, leaving the parser after it
+     */
+    static TestCaseIndex index(Path file, JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            throw new IOException("Expected an array of test cases at " + parser.currentTokenLocation());
+        }
+        Builder builder = new Builder();
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token != JsonToken.START_OBJECT) {
+                throw new IOException("Expected a test case object at " + parser.currentTokenLocation());
+            }
+            builder.add(parser);
+        }
+        return builder.build(file);
+    }
+
+    @Override
+    public int size() {
+        return starts.length;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    @Override
+    protected TaskDefinition.TestCase read(int index) {
+        int segment = Arrays.binarySearch(segmentStarts, starts[index]);
+        if (segment < 0) {
+            segment = -segment - 2;
+        }
+        byte[] bytes = new byte[lengths[index]];
+        segments[segment].get((int) (starts[index] - segmentStarts[segment]), bytes, 0, bytes.length);
+        try {
+            return TaskLoader.parseTestCase(READER.readTree(bytes));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read test case " + index + " of " + file, e);
+        }
+    }
+
+    /**
+     * Collects the byte range of each test case object while the parser skips over it
+     */
+    private static final class Builder {
+        private long[] starts = new long[1024];
+        private int[] lengths = new int[1024];
+        private int count;
+
+        void add(JsonParser parser) throws IOException {
+            long start = parser.currentTokenLocation().getByteOffset();
+            parser.skipChildren();
+            long end = parser.currentLocation().getByteOffset();
+            if (start < 0 || end < 0) {
+                throw new IOException("Parser does not report byte offsets");
+            }
+            if (end - start > Integer.MAX_VALUE) {
+                throw new IOException("Test case too large at byte " + start);
+            }
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                lengths = Arrays.copyOf(lengths, count * 2);
+            }
+            starts[count] = start;
+            lengths[count] = (int) (end - start);
+            count++;
+        }
+
+        TestCaseIndex build(Path file) throws IOException {
+            return new TestCaseIndex(file, Arrays.copyOf(starts, count), Arrays.copyOf(lengths, count));
+        }
+    }
+}
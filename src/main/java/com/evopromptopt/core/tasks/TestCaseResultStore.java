@@ -0,0 +1,166 @@
+package com.evopromptopt.core.tasks;
+
+import com.evopromptopt.core.evaluation.EvaluationMetric;
+import com.evopromptopt.core.genome.PromptGenome;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Persistent store of scored (genome, test case) results. A result is keyed by a content hash of
+ * the test case (input, expected output and metric signatures) together with the genome and a
+ * scope such as the model, so after a task is edited only new or changed test cases are executed
+ * again and every other result is reused. The file is an append-only JSON-lines log; the last
+ * entry for a key wins. Only successful results are stored, failures may be transient.
+ */
+public class TestCaseResultStore implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(TestCaseResultStore.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Path file;
+    private final String scope;
+    private final Map<String, TaskRunner.TestCaseResult> results = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private BufferedWriter writer;
+
+    private TestCaseResultStore(Path file, String scope) {
+        this.file = file;
+        this.scope = scope;
+    }
+
+    /**
+     * Opens a store, loading the results already in the file
+     *
+     * @param scope Everything besides genome and test case that changes results, e.g. the model name
+     */
+    public static TestCaseResultStore open(Path file, String scope) throws IOException {
+        TestCaseResultStore store = new TestCaseResultStore(file, scope);
+        if (Files.isRegularFile(file)) {
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    try {
+                        StoredResult stored = MAPPER.readValue(line, StoredResult.class);
+                        store.results.put(stored.key(), stored.result());
+                    } catch (IOException e) {
+                        // A run that was killed mid-write leaves a truncated last line
+                        logger.warn("Skipping unreadable line in result store {}", file);
+                    }
+                }
+            }
+        }
+        if (file.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+        }
+        store.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                                               StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        logger.info("Result store {}: {} stored results", file, store.results.size());
+        return store;
+    }
+
+    /**
+     * @return The stored result of the genome on the test case, if it was scored with the same metrics
+     */
+    public Optional<TaskRunner.TestCaseResult> get(PromptGenome genome, TaskDefinition.TestCase testCase,
+                                                   List<EvaluationMetric> metrics) {
+        TaskRunner.TestCaseResult result = results.get(key(genome, testCase, metrics));
+        (result != null ? hits : misses).incrementAndGet();
+        return Optional.ofNullable(result);
+    }
+
+    public void put(PromptGenome genome, TaskDefinition.TestCase testCase, List<EvaluationMetric> metrics,
+                    TaskRunner.TestCaseResult result) {
+        if (!result.success()) {
+            return;
+        }
+        String key = key(genome, testCase, metrics);
+        if (results.put(key, result) == null) {
+            append(new StoredResult(key, result));
+        }
+    }
+
+    private synchronized void append(StoredResult stored) {
+        try {
+            writer.write(MAPPER.writeValueAsString(stored));
+            writer.newLine();
+        } catch (IOException e) {
+            logger.warn("Failed to append to result store {}", file, e);
+        }
+    }
+
+    public synchronized void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public int size() {
+        return results.size();
+    }
+
+    private String key(PromptGenome genome, TaskDefinition.TestCase testCase, List<EvaluationMetric> metrics) {
+        // Hashed on every call rather than memoized per test case: a map keyed by test case would keep
+        // every case of a lazily read suite on the heap
+        StringBuilder caseContent = new StringBuilder();
+        append(caseContent, testCase.getInput());
+        append(caseContent, testCase.getExpectedOutput());
+        for (EvaluationMetric metric : metrics) {
+            append(caseContent, metric.getSignature());
+        }
+        StringBuilder content = new StringBuilder();
+        append(content, scope);
+        append(content, genome.toString());
+        append(content, hash(caseContent.toString()));
+        return hash(content.toString());
+    }
+
+    private static void append(StringBuilder content, String value) {
+        String text = value != null ? value : "";
+        content.append(text.length()).append(':').append(text);
+    }
+
+    private static String hash(String content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * One line of the store file
+     */
+    public record StoredResult(String key, TaskRunner.TestCaseResult result) {}
+}
@@ -0,0 +1,282 @@
+package com.evopromptopt.core.tasks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Draws a fresh mini-batch of test cases for every generation so that the cost of
+ * evaluating a genome stays bounded no matter how large the task's test suite is.
+ */
+public class TestCaseSampler {
+
+    public enum Strategy {
+        RANDOM,
+        STRATIFIED,
+        DISCRIMINATIVE
+    }
+
+    // Cases need this many observations before their discrimination estimate is trusted
+    private static final int MIN_OBSERVATIONS = 3;
+    // Share of a discriminative batch that is still drawn at random, so estimates keep updating
+    private static final double EXPLORATION_SHARE = 0.2;
+
+    private final TaskDefinition task;
+    private final List<TaskDefinition.TestCase> testCases;
+    private final int batchSize;
+    private final Strategy strategy;
+    private final String stratifyKey;
+    private final Random random;
+    private final TestCaseStatistics statistics;
+
+    private List<TaskDefinition.TestCase> currentBatch;
+    // Built on the first stratified draw
+    private Map<String, int[]> strata;
+    private long currentGeneration = -1;
+
+    /**
+     * @param task        The task whose test cases are sampled
+     * @param batchSize   Number of test cases per generation
+     * @param strategy    How test cases are drawn
+     * @param stratifyKey Metadata key used to build strata; the expected output is used when null
+     * @param seed        Seed for reproducible sampling
+     * @param statistics  Item statistics used by the discriminative strategy, may be null otherwise
+     */
+    public TestCaseSampler(TaskDefinition task, int batchSize, Strategy strategy, String stratifyKey, long seed,
+                           TestCaseStatistics statistics) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        if (strategy == Strategy.DISCRIMINATIVE && statistics == null) {
+            throw new IllegalArgumentException("Discriminative sampling requires test case statistics");
+        }
+        this.task = task;
+        // A lazy suite is immutable already, copying it would decode every test case
+        this.testCases = task.getTestCases() instanceof LazyTestCaseList lazy ? lazy : List.copyOf(task.getTestCases());
+        this.batchSize = batchSize;
+        this.strategy = strategy;
+        this.stratifyKey = stratifyKey;
+        this.random = new Random(seed);
+        this.statistics = statistics;
+        this.currentBatch = testCases;
+    }
+
+    public TestCaseSampler(TaskDefinition task, int batchSize, Strategy strategy, String stratifyKey, long seed) {
+        this(task, batchSize, strategy, stratifyKey, seed, null);
+    }
+
+    public TestCaseSampler(TaskDefinition task, int batchSize) {
+        this(task, batchSize, Strategy.RANDOM, null, System.nanoTime());
+    }
+
+    /**
+     * Draws a new batch if the generation changed since the last call and returns the batch
+     * that all genomes of this generation are evaluated on
+     */
+    public synchronized List<TaskDefinition.TestCase> resample(long generation) {
+        if (generation != currentGeneration) {
+            currentGeneration = generation;
+            currentBatch = isFullSuite() ? testCases : drawBatch();
+        }
+        return currentBatch;
+    }
+
+    /**
+     * @return The test cases of the current generation's batch
+     */
+    public synchronized List<TaskDefinition.TestCase> currentBatch() {
+        return currentBatch;
+    }
+
+    /**
+     * @return All test cases of the task, used for full re-scoring of elites
+     */
+    public List<TaskDefinition.TestCase> fullSuite() {
+        return testCases;
+    }
+
+    public boolean isFullSuite() {
+        return batchSize >= testCases.size();
+    }
+
+    public int getBatchSize() {
+        return Math.min(batchSize, testCases.size());
+    }
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    private List<TaskDefinition.TestCase> drawBatch() {
+        int[] positions = switch (strategy) {
+            case RANDOM -> sample(null, testCases.size(), batchSize);
+            case STRATIFIED -> drawStratifiedBatch();
+            case DISCRIMINATIVE -> drawDiscriminativeBatch();
+        };
+        return new TestCaseBatch(testCases, positions);
+    }
+
+    /**
+     * Ranks suite positions by their statistics alone, so only the cases that end up in the batch
+     * are decoded
+     */
+    private int[] drawDiscriminativeBatch() {
+        int[] unexplored = new int[testCases.size()];
+        int[] explored = new int[testCases.size()];
+        int unexploredCount = 0;
+        int exploredCount = 0;
+        for (int i = 0; i < testCases.size(); i++) {
+            if (statistics.observations(task, i) < MIN_OBSERVATIONS) {
+                unexplored[unexploredCount++] = i;
+            } else {
+                explored[exploredCount++] = i;
+            }
+        }
+
+        // Cases without a reliable estimate come first, then the most discriminative ones
+        int[] batch = new int[Math.min(batchSize, testCases.size())];
+        int[] drawn = sample(unexplored, unexploredCount, batchSize);
+        System.arraycopy(drawn, 0, batch, 0, drawn.length);
+        int size = drawn.length;
+        int exploitCount = Math.min(batchSize - size - (int) Math.ceil(batchSize * EXPLORATION_SHARE), exploredCount);
+        if (exploitCount > 0) {
+            // Bounded min-heap of the best candidates; on ties the earlier position wins
+            Comparator<Integer> rank = Comparator
+                    .comparingDouble((Integer p) -> statistics.discrimination(task, p))
+                    .thenComparingDouble(p -> statistics.variance(task, p))
+                    .thenComparing(Comparator.reverseOrder());
+            PriorityQueue<Integer> top = new PriorityQueue<>(exploitCount + 1, rank);
+            for (int i = 0; i < exploredCount; i++) {
+                top.add(explored[i]);
+                if (top.size() > exploitCount) {
+                    top.poll();
+                }
+            }
+            BitSet chosen = new BitSet(testCases.size());
+            for (int i = size + top.size() - 1; i >= size; i--) {
+                batch[i] = top.poll();
+                chosen.set(batch[i]);
+            }
+            size += exploitCount;
+
+            int remaining = 0;
+            for (int i = 0; i < exploredCount; i++) {
+                if (!chosen.get(explored[i])) {
+                    explored[remaining++] = explored[i];
+                }
+            }
+            exploredCount = remaining;
+        }
+
+        drawn = sample(explored, exploredCount, batchSize - size);
+        System.arraycopy(drawn, 0, batch, size, drawn.length);
+        return Arrays.copyOf(batch, size + drawn.length);
+    }
+
+    private int[] drawStratifiedBatch() {
+        if (strata == null) {
+            strata = buildStrata();
+        }
+
+        // Proportional allocation with largest remainder, so every batch mirrors the suite's mix
+        List<int[]> members = new ArrayList<>(strata.values());
+        int[] allocation = new int[members.size()];
+        double[] remainders = new double[members.size()];
+        int allocated = 0;
+
+        for (int i = 0; i < members.size(); i++) {
+            double share = (double) batchSize * members.get(i).length / testCases.size();
+            allocation[i] = (int) Math.floor(share);
+            remainders[i] = share - allocation[i];
+            allocated += allocation[i];
+        }
+
+        while (allocated < batchSize) {
+            int best = -1;
+            for (int i = 0; i < members.size(); i++) {
+                boolean hasRoom = allocation[i] < members.get(i).length;
+                if (hasRoom && (best < 0 || remainders[i] > remainders[best])) {
+                    best = i;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            allocation[best]++;
+            remainders[best] = -1.0;
+            allocated++;
+        }
+
+        int[] batch = new int[allocated];
+        int size = 0;
+        for (int i = 0; i < members.size(); i++) {
+            int[] drawn = sample(members.get(i), members.get(i).length, allocation[i]);
+            System.arraycopy(drawn, 0, batch, size, drawn.length);
+            size += drawn.length;
+        }
+        return batch;
+    }
+
+    /**
+     * @return Suite positions of the members of each stratum, so indexed suites are not materialized
+     */
+    private Map<String, int[]> buildStrata() {
+        Map<String, int[]> positions = new LinkedHashMap<>();
+        Map<String, Integer> sizes = new HashMap<>();
+        for (int i = 0; i < testCases.size(); i++) {
+            String stratum = stratumOf(testCases.get(i));
+            int size = sizes.merge(stratum, 1, Integer::sum);
+            int[] members = positions.computeIfAbsent(stratum, k -> new int[16]);
+            if (size > members.length) {
+                positions.put(stratum, members = Arrays.copyOf(members, members.length * 2));
+            }
+            members[size - 1] = i;
+        }
+
+        positions.replaceAll((stratum, members) -> Arrays.copyOf(members, sizes.get(stratum)));
+        return positions;
+    }
+
+    private String stratumOf(TaskDefinition.TestCase testCase) {
+        if (stratifyKey != null) {
+            Object value = testCase.getMetadata().get(stratifyKey);
+            return value != null ? value.toString() : "";
+        }
+        String expected = testCase.getExpectedOutput();
+        return expected != null ? expected.trim().toLowerCase() : "";
+    }
+
+    /**
+     * Draws {@code count} distinct entries of the first {@code size} positions, all of them in order
+     * when there are no more than {@code count}
+     *
+     * @param source Suite positions to draw from, or null for the positions {@code 0..size-1}
+     */
+    private int[] sample(int[] source, int size, int count) {
+        if (count >= size) {
+            int[] all = new int[size];
+            for (int i = 0; i < size; i++) {
+                all[i] = source != null ? source[i] : i;
+            }
+            return all;
+        }
+        // Partial Fisher-Yates: only the first `count` positions need to be shuffled, and only the
+        // positions touched by a swap are tracked, so a draw costs O(count) even for huge suites
+        Map<Integer, Integer> swapped = new HashMap<>();
+        int[] batch = new int[Math.max(count, 0)];
+        for (int i = 0; i < count; i++) {
+            int j = i + random.nextInt(size - i);
+            int drawn = swapped.getOrDefault(j, j);
+            swapped.put(j, swapped.getOrDefault(i, i));
+            batch[i] = source != null ? source[drawn] : drawn;
+        }
+        return batch;
+    }
+}
@@ -0,0 +1,187 @@
+package com.evopromptopt.core.tasks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Collects item-difficulty statistics for every test case across all evaluated genomes.
+ * The discrimination of a test case is the point-biserial style correlation between its
+ * score and the genome's overall score: cases that every genome passes (or fails) have no
+ * discrimination and contribute nothing to ranking.
+ */
+public class TestCaseStatistics {
+    private static final double PASS_THRESHOLD = 0.5;
+
+    // Per task, one slot per suite position, filled when the position is first observed
+    private final Map<String, AtomicReferenceArray<Accumulator>> accumulators = new ConcurrentHashMap<>();
+
+    /**
+     * Records the results of one genome evaluation. Results must be in the same order as the test cases,
+     * which must be the task's full suite or a batch drawn by a {@link TestCaseSampler}; results on
+     * other subsets cannot be placed in the suite and are not recorded.
+     */
+    public void record(TaskDefinition task, List<TaskDefinition.TestCase> testCases,
+                       List<TaskRunner.TestCaseResult> results, double genomeScore) {
+        int suiteSize = task.getTestCases().size();
+        TestCaseBatch batch = testCases instanceof TestCaseBatch drawn ? drawn : null;
+        if (batch == null && testCases.size() != suiteSize) {
+            return;
+        }
+        AtomicReferenceArray<Accumulator> slots =
+                accumulators.computeIfAbsent(task.getName(), name -> new AtomicReferenceArray<>(suiteSize));
+        int count = Math.min(testCases.size(), results.size());
+        for (int i = 0; i < count; i++) {
+            int position = batch != null ? batch.position(i) : i;
+            Accumulator accumulator = slots.get(position);
+            if (accumulator == null) {
+                slots.compareAndSet(position, null, new Accumulator());
+                accumulator = slots.get(position);
+            }
+            TaskRunner.TestCaseResult result = results.get(i);
+            boolean passed = result.success() && result.score() >= PASS_THRESHOLD;
+            accumulator.add(result.score(), passed, genomeScore);
+        }
+    }
+
+    /**
+     * @return Number of genomes that have been evaluated on the test case at the suite position
+     */
+    public long observations(TaskDefinition task, int position) {
+        return moments(task, position).count();
+    }
+
+    /**
+     * @return Discrimination estimate in [-1, 1], 0 when the case has not been observed yet
+     */
+    public double discrimination(TaskDefinition task, int position) {
+        return moments(task, position).discrimination();
+    }
+
+    /**
+     * @return Score variance of the test case across genomes
+     */
+    public double variance(TaskDefinition task, int position) {
+        return moments(task, position).variance();
+    }
+
+    /**
+     * @return Statistics for every test case of the task, in task order
+     */
+    public List<TestCaseStat> snapshot(TaskDefinition task) {
+        List<TestCaseStat> stats = new ArrayList<>();
+        List<TaskDefinition.TestCase> testCases = task.getTestCases();
+        for (int i = 0; i < testCases.size(); i++) {
+            Moments moments = moments(task, i);
+            stats.add(new TestCaseStat(
+                    i,
+                    testCases.get(i).getInput(),
+                    moments.count(),
+                    moments.passRate(),
+                    moments.meanScore(),
+                    moments.variance(),
+                    moments.discrimination()
+            ));
+        }
+        return stats;
+    }
+
+    /**
+     * Writes the statistics of every test case of the task as a JSON array
+     */
+    public void exportJson(TaskDefinition task, Path path) throws IOException {
+        new ObjectMapper()
+                .enable(SerializationFeature.INDENT_OUTPUT)
+                .writeValue(path.toFile(), snapshot(task));
+    }
+
+    public void clear() {
+        accumulators.clear();
+    }
+
+    /**
+     * Exported statistics of a single test case
+     */
+    public record TestCaseStat(
+            int index,
+            String input,
+            long observations,
+            double passRate,
+            double meanScore,
+            double variance,
+            double discrimination
+    ) {}
+
+    private Moments moments(TaskDefinition task, int position) {
+        AtomicReferenceArray<Accumulator> slots = accumulators.get(task.getName());
+        Accumulator accumulator = slots != null && position < slots.length() ? slots.get(position) : null;
+        return accumulator != null ? accumulator.snapshot() : Moments.EMPTY;
+    }
+
+    private record Moments(long count, long passes, double sumX, double sumXX, double sumY, double sumYY,
+                           double sumXY) {
+        static final Moments EMPTY = new Moments(0, 0, 0, 0, 0, 0, 0);
+
+        double passRate() {
+            return count > 0 ? (double) passes / count : 0.0;
+        }
+
+        double meanScore() {
+            return count > 0 ? sumX / count : 0.0;
+        }
+
+        double variance() {
+            if (count < 2) {
+                return 0.0;
+            }
+            double mean = sumX / count;
+            return Math.max(0.0, sumXX / count - mean * mean);
+        }
+
+        double discrimination() {
+            if (count < 2) {
+                return 0.0;
+            }
+            double covariance = sumXY / count - (sumX / count) * (sumY / count);
+            double varianceX = sumXX / count - (sumX / count) * (sumX / count);
+            double varianceY = sumYY / count - (sumY / count) * (sumY / count);
+            if (varianceX <= 1e-12 || varianceY <= 1e-12) {
+                return 0.0;
+            }
+            return Math.max(-1.0, Math.min(1.0, covariance / Math.sqrt(varianceX * varianceY)));
+        }
+    }
+
+    private static final class Accumulator {
+        private long count;
+        private long passes;
+        private double sumX;
+        private double sumXX;
+        private double sumY;
+        private double sumYY;
+        private double sumXY;
+
+        synchronized void add(double score, boolean passed, double genomeScore) {
+            count++;
+            if (passed) {
+                passes++;
+            }
+            sumX += score;
+            sumXX += score * score;
+            sumY += genomeScore;
+            sumYY += genomeScore * genomeScore;
+            sumXY += score * genomeScore;
+        }
+
+        synchronized Moments snapshot() {
+            return new Moments(count, passes, sumX, sumXX, sumY, sumYY, sumXY);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.evopromptopt.core.tasks;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of the output tokens generated per successful LLM call, together with how often a
+ * response hit the genome's max-tokens limit. Used to tell which part of the max-tokens range
+ * actually changes the responses.
+ */
+public class TokenUsageStatistics {
+    private static final int BUCKET_WIDTH = 8;
+    private static final int BUCKET_COUNT = 1024; // Last bucket collects everything above 8184 tokens
+
+    private final AtomicLongArray histogram = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong truncatedCalls = new AtomicLong();
+
+    /**
+     * @param outputTokens Tokens generated for the response
+     * @param maxTokens    Max-tokens limit of the genome that produced it
+     */
+    public void record(int outputTokens, int maxTokens) {
+        histogram.incrementAndGet(Math.min(BUCKET_COUNT - 1, Math.max(0, outputTokens) / BUCKET_WIDTH));
+        calls.incrementAndGet();
+        if (outputTokens >= maxTokens) {
+            truncatedCalls.incrementAndGet();
+        }
+    }
+
+    public long calls() {
+        return calls.get();
+    }
+
+    /**
+     * @return Share of responses that were cut off by the max-tokens limit
+     */
+    public double truncationRate() {
+        long total = calls.get();
+        return total == 0 ? 0.0 : (double) truncatedCalls.get() / total;
+    }
+
+    /**
+     * @return Upper bound of the output-token quantile, 0 if nothing was recorded
+     */
+    public int quantile(double q) {
+        long total = calls.get();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(q * total);
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            seen += histogram.get(bucket);
+            if (seen >= rank) {
+                return (bucket + 1) * BUCKET_WIDTH;
+            }
+        }
+        return BUCKET_COUNT * BUCKET_WIDTH;
+    }
+}